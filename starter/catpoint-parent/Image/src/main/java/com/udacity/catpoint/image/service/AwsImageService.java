@@ -10,15 +10,20 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+import software.amazon.awssdk.services.rekognition.model.BoundingBox;
 import software.amazon.awssdk.services.rekognition.model.Image;
+import software.amazon.awssdk.services.rekognition.model.Instance;
+import software.amazon.awssdk.services.rekognition.model.Label;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 /**
  * Image Recognition Service that can identify cats. Requires aws credentials to be entered in config.properties to work.
@@ -35,18 +40,54 @@ import java.util.stream.Collectors;
  */
 public class AwsImageService implements ImageService {
 
-    private Logger log = LoggerFactory.getLogger(AwsImageService.class);
+    private static final Logger log = LoggerFactory.getLogger(AwsImageService.class);
 
     //aws recommendation is to maintain only a single instance of client objects
     private static RekognitionClient rekognitionClient;
+    private static boolean sharedClientInitialized;
 
+    private final Supplier<RekognitionClient> client;
+
+    /**
+     * Uses the shared client configured from config.properties. The properties are read and the
+     * client is built on the first scan rather than here, so creating the service is cheap.
+     */
     public AwsImageService() {
+        this.client = AwsImageService::sharedClient;
+    }
+
+    /**
+     * Uses the provided client instead of building one from config.properties. Mostly useful
+     * for pointing the service at a different endpoint.
+     */
+    public AwsImageService(RekognitionClient client) {
+        this.client = () -> client;
+    }
+
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
+    private static synchronized RekognitionClient sharedClient() {
+        if (!sharedClientInitialized) {
+            sharedClientInitialized = true;
+            rekognitionClient = buildClient();
+        }
+        return rekognitionClient;
+    }
+
+    private static RekognitionClient buildClient() {
         Properties props = new Properties();
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+        try (InputStream is = AwsImageService.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (is == null) {
+                log.error("Unable to initialize AWS Rekognition, no properties file found");
+                return null;
+            }
             props.load(is);
         } catch (IOException ioe ) {
             log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
-            return;
+            return null;
         }
 
         String awsId = props.getProperty("aws.id");
@@ -54,7 +95,7 @@ public class AwsImageService implements ImageService {
         String awsRegion = props.getProperty("aws.region");
 
         AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
-        rekognitionClient = RekognitionClient.builder()
+        return RekognitionClient.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
                 .region(Region.of(awsRegion))
                 .build();
@@ -65,25 +106,58 @@ public class AwsImageService implements ImageService {
      * @param image Image to scan
      * @param confidenceThreshold Minimum threshhold to consider for cat. For example, 90.0f would require 90% confidence minimum
      * @return
+     * @throws IllegalStateException if the Rekognition client could not be initialized
      */
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return detect(image, confidenceThreshold).containsCat(confidenceThreshold);
+    }
+
+    /**
+     * Returns every label Rekognition found with at least the given confidence, including the
+     * bounding boxes of the instances it located.
+     * @throws IllegalStateException if the Rekognition client could not be initialized
+     */
+    @Override
+    public DetectionResult detect(BufferedImage image, float confidenceThreshold) {
+        RekognitionClient rekognition = client.get();
+        if (rekognition == null) {
+            throw new IllegalStateException("AWS Rekognition client is not initialized");
+        }
         Image awsImage = null;
         try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
             ImageIO.write(image, "jpg", os);
             awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
-            return false;
+            return DetectionResult.EMPTY;
         }
         DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshold).build();
-        DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
-        logLabelsForFun(response);
-        return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
+        DetectLabelsResponse response = rekognition.detectLabels(detectLabelsRequest);
+        DetectionResult result = toResult(response);
+        //results go to the audit log when one is configured, so only trace them here
+        log.debug("{}", result);
+        return result;
+    }
+
+    private static DetectionResult toResult(DetectLabelsResponse response) {
+        List<DetectionResult.Label> labels = new ArrayList<>(response.labels().size());
+        for (Label label : response.labels()) {
+            List<DetectionResult.BoundingBox> boxes = new ArrayList<>();
+            if (label.instances() != null) {
+                for (Instance instance : label.instances()) {
+                    BoundingBox box = instance.boundingBox();
+                    if (box != null) {
+                        boxes.add(new DetectionResult.BoundingBox(orZero(box.left()), orZero(box.top()), orZero(box.width()),
+                                orZero(box.height()), orZero(instance.confidence())));
+                    }
+                }
+            }
+            labels.add(new DetectionResult.Label(label.name(), orZero(label.confidence()), boxes));
+        }
+        return new DetectionResult(labels);
     }
 
-    private void logLabelsForFun(DetectLabelsResponse response) {
-        log.info(response.labels().stream()
-                .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
-                .collect(Collectors.joining(", ")));
+    private static float orZero(Float value) {
+        return value == null ? 0.0f : value;
     }
 }
@@ -0,0 +1,10 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Receives the result of every frame a {@link SharedDetectionService} analyses.
+ */
+public interface DetectionListener {
+    void detected(BufferedImage image, DetectionResult result);
+}
@@ -0,0 +1,153 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Everything an {@link ImageService} found in one frame: the labels it recognised, how confident
+ * it is in each, and where in the frame each instance of a label is. Immutable, so one result can
+ * be handed to any number of consumers.
+ */
+public final class DetectionResult {
+
+    public static final DetectionResult EMPTY = new DetectionResult(Collections.emptyList());
+
+    private final List<Label> labels;
+
+    public DetectionResult(List<Label> labels) {
+        this.labels = Collections.unmodifiableList(new ArrayList<>(labels));
+    }
+
+    public List<Label> getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return the label with the given name, ignoring case, or null if there is none
+     */
+    public Label getLabel(String name) {
+        for (Label label : labels) {
+            if (label.getName().equalsIgnoreCase(name)) {
+                return label;
+            }
+        }
+        return null;
+    }
+
+    public boolean containsLabel(String name, float minConfidence) {
+        Label label = getLabel(name);
+        return label != null && label.getConfidence() >= minConfidence;
+    }
+
+    /**
+     * Same test the boolean API has always used: any label whose name mentions a cat.
+     */
+    public boolean containsCat(float minConfidence) {
+        for (Label label : labels) {
+            if (label.getConfidence() >= minConfidence && label.getName().toLowerCase(Locale.ROOT).contains("cat")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return this result without the labels below the given confidence
+     */
+    public DetectionResult withMinConfidence(float minConfidence) {
+        List<Label> kept = new ArrayList<>(labels.size());
+        for (Label label : labels) {
+            if (label.getConfidence() >= minConfidence) {
+                kept.add(label);
+            }
+        }
+        return kept.size() == labels.size() ? this : new DetectionResult(kept);
+    }
+
+    @Override
+    public String toString() {
+        return labels.toString();
+    }
+
+    /**
+     * Something recognised in the frame, with a box for every instance the service could locate.
+     * Labels for things that can't be boxed, like "Indoors", have no instances.
+     */
+    public static final class Label {
+        private final String name;
+        private final float confidence;
+        private final List<BoundingBox> instances;
+
+        public Label(String name, float confidence) {
+            this(name, confidence, Collections.emptyList());
+        }
+
+        /**
+         * @param confidence Percentage, 0 to 100
+         */
+        public Label(String name, float confidence, List<BoundingBox> instances) {
+            this.name = name;
+            this.confidence = confidence;
+            this.instances = Collections.unmodifiableList(new ArrayList<>(instances));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+
+        public List<BoundingBox> getInstances() {
+            return instances;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%.1f%%)", name, confidence);
+        }
+    }
+
+    /**
+     * Where an instance of a label is, as fractions of the frame's width and height, so boxes
+     * stay valid for any scaled copy of the frame.
+     */
+    public static final class BoundingBox {
+        private final float left;
+        private final float top;
+        private final float width;
+        private final float height;
+        private final float confidence;
+
+        public BoundingBox(float left, float top, float width, float height, float confidence) {
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.confidence = confidence;
+        }
+
+        public float getLeft() {
+            return left;
+        }
+
+        public float getTop() {
+            return top;
+        }
+
+        public float getWidth() {
+            return width;
+        }
+
+        public float getHeight() {
+            return height;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+    }
+}
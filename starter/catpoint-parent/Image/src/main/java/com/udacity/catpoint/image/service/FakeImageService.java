@@ -7,7 +7,22 @@ import java.util.Random;
  * Service that tries to guess if an image displays a cat.
  */
 public class FakeImageService implements ImageService {
-    private final Random r = new Random();
+    private final Random r;
+
+    public FakeImageService() {
+        this(new Random());
+    }
+
+    /**
+     * Creates a service whose guesses are repeatable for the given seed.
+     */
+    public FakeImageService(long seed) {
+        this(new Random(seed));
+    }
+
+    private FakeImageService(Random r) {
+        this.r = r;
+    }
 
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
         return r.nextBoolean();
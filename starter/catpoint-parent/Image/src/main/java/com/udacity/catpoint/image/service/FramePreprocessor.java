@@ -0,0 +1,253 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.*;
+import java.awt.color.ColorSpace;
+import java.awt.image.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Shrinks camera frames before they are sent for analysis. Every frame is normalized into packed
+ * sRGB, optionally cropped to a region of interest and area-averaged down so that it fits inside
+ * the target size. Aspect ratio is preserved and frames are never scaled up.
+ *
+ * Pixels are read straight out of the backing DataBufferByte/DataBufferInt and the output is split
+ * into tiles that are processed on a fork/join pool. Raster layouts we don't read directly are
+ * converted to TYPE_INT_RGB once up front.
+ */
+public class FramePreprocessor {
+
+    //number of output pixels a single fork/join task handles before splitting further
+    private static final int TILE_PIXELS = 64 * 64;
+
+    private final int targetWidth;
+    private final int targetHeight;
+    private final Rectangle regionOfInterest;
+    private final ForkJoinPool pool;
+
+    public FramePreprocessor(int targetWidth, int targetHeight) {
+        this(targetWidth, targetHeight, null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param targetWidth Maximum width of the processed frame
+     * @param targetHeight Maximum height of the processed frame
+     * @param regionOfInterest Area of the source frame to keep, in source pixels. Null keeps the whole frame
+     * @param pool Pool used to process tiles
+     */
+    public FramePreprocessor(int targetWidth, int targetHeight, Rectangle regionOfInterest, ForkJoinPool pool) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("Target size must be positive");
+        }
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.regionOfInterest = regionOfInterest == null ? null : new Rectangle(regionOfInterest);
+        this.pool = pool;
+    }
+
+    /**
+     * Returns a new TYPE_INT_RGB image containing the normalized, cropped and downscaled frame.
+     * @param frame Frame to process
+     */
+    public BufferedImage process(BufferedImage frame) {
+        Rectangle source = new Rectangle(0, 0, frame.getWidth(), frame.getHeight());
+        if (regionOfInterest != null) {
+            source = source.intersection(regionOfInterest);
+            if (source.isEmpty()) {
+                throw new IllegalArgumentException("Region of interest lies outside the frame");
+            }
+        }
+
+        double scale = Math.min(1.0, Math.min((double) targetWidth / source.width, (double) targetHeight / source.height));
+        int outWidth = Math.max(1, (int) Math.round(source.width * scale));
+        int outHeight = Math.max(1, (int) Math.round(source.height * scale));
+
+        SourcePixels pixels = SourcePixels.of(frame, source);
+        BufferedImage out = new BufferedImage(outWidth, outHeight, BufferedImage.TYPE_INT_RGB);
+        int[] dest = ((DataBufferInt) out.getRaster().getDataBuffer()).getData();
+
+        pool.invoke(new TileTask(pixels, dest, outWidth, outHeight, 0, 0, outWidth, outHeight));
+        return out;
+    }
+
+    /**
+     * Area-averages one rectangle of the output image, splitting along its longer side
+     * until the tile is small enough to process directly.
+     */
+    private static class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SourcePixels pixels;
+        private final int[] dest;
+        private final int outWidth;
+        private final int outHeight;
+        private final int x0;
+        private final int y0;
+        private final int x1;
+        private final int y1;
+
+        TileTask(SourcePixels pixels, int[] dest, int outWidth, int outHeight, int x0, int y0, int x1, int y1) {
+            this.pixels = pixels;
+            this.dest = dest;
+            this.outWidth = outWidth;
+            this.outHeight = outHeight;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        @Override
+        protected void compute() {
+            int w = x1 - x0;
+            int h = y1 - y0;
+            if (w * h <= TILE_PIXELS) {
+                averageTile();
+            } else if (w >= h) {
+                int mid = x0 + w / 2;
+                invokeAll(new TileTask(pixels, dest, outWidth, outHeight, x0, y0, mid, y1),
+                        new TileTask(pixels, dest, outWidth, outHeight, mid, y0, x1, y1));
+            } else {
+                int mid = y0 + h / 2;
+                invokeAll(new TileTask(pixels, dest, outWidth, outHeight, x0, y0, x1, mid),
+                        new TileTask(pixels, dest, outWidth, outHeight, x0, mid, x1, y1));
+            }
+        }
+
+        private void averageTile() {
+            int sw = pixels.width;
+            int sh = pixels.height;
+            for (int dy = y0; dy < y1; dy++) {
+                int sy0 = (int) ((long) dy * sh / outHeight);
+                int sy1 = Math.max(sy0 + 1, (int) ((long) (dy + 1) * sh / outHeight));
+                for (int dx = x0; dx < x1; dx++) {
+                    int sx0 = (int) ((long) dx * sw / outWidth);
+                    int sx1 = Math.max(sx0 + 1, (int) ((long) (dx + 1) * sw / outWidth));
+                    dest[dy * outWidth + dx] = pixels.average(sx0, sy0, sx1, sy1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Direct view over the raster data of a frame, limited to the cropped source region.
+     * Coordinates passed in are relative to that region.
+     */
+    private static final class SourcePixels {
+        private final int width;
+        private final int height;
+
+        //set for packed int layouts
+        private final int[] ints;
+        private final boolean bgr;
+
+        //set for interleaved byte layouts
+        private final byte[] bytes;
+        private final int pixelStride;
+        private final int redOffset;
+        private final int greenOffset;
+        private final int blueOffset;
+
+        private final int base;
+        private final int scanlineStride;
+
+        private SourcePixels(int width, int height, int[] ints, boolean bgr, byte[] bytes, int pixelStride,
+                             int redOffset, int greenOffset, int blueOffset, int base, int scanlineStride) {
+            this.width = width;
+            this.height = height;
+            this.ints = ints;
+            this.bgr = bgr;
+            this.bytes = bytes;
+            this.pixelStride = pixelStride;
+            this.redOffset = redOffset;
+            this.greenOffset = greenOffset;
+            this.blueOffset = blueOffset;
+            this.base = base;
+            this.scanlineStride = scanlineStride;
+        }
+
+        static SourcePixels of(BufferedImage frame, Rectangle source) {
+            WritableRaster raster = frame.getRaster();
+            ColorModel cm = frame.getColorModel();
+            SampleModel sm = raster.getSampleModel();
+            DataBuffer db = raster.getDataBuffer();
+            int originX = source.x - raster.getSampleModelTranslateX();
+            int originY = source.y - raster.getSampleModelTranslateY();
+            boolean sRGB = cm.getColorSpace().isCS_sRGB();
+
+            if (db instanceof DataBufferInt && sm instanceof SinglePixelPackedSampleModel && sRGB
+                    && !cm.isAlphaPremultiplied() && db.getNumBanks() == 1) {
+                int type = frame.getType();
+                if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB
+                        || type == BufferedImage.TYPE_INT_BGR) {
+                    int stride = ((SinglePixelPackedSampleModel) sm).getScanlineStride();
+                    return new SourcePixels(source.width, source.height, ((DataBufferInt) db).getData(),
+                            type == BufferedImage.TYPE_INT_BGR, null, 0, 0, 0, 0,
+                            db.getOffset() + originY * stride + originX, stride);
+                }
+            }
+
+            if (db instanceof DataBufferByte && sm instanceof PixelInterleavedSampleModel
+                    && cm instanceof ComponentColorModel && !cm.isAlphaPremultiplied() && db.getNumBanks() == 1) {
+                PixelInterleavedSampleModel csm = (PixelInterleavedSampleModel) sm;
+                int[] offsets = csm.getBandOffsets();
+                int stride = csm.getScanlineStride();
+                int pixelStride = csm.getPixelStride();
+                int base = db.getOffset() + originY * stride + originX * pixelStride;
+                byte[] data = ((DataBufferByte) db).getData();
+                if (sRGB && offsets.length >= 3) {
+                    return new SourcePixels(source.width, source.height, null, false, data, pixelStride,
+                            offsets[0], offsets[1], offsets[2], base, stride);
+                }
+                if (cm.getColorSpace().getType() == ColorSpace.TYPE_GRAY && offsets.length == 1) {
+                    return new SourcePixels(source.width, source.height, null, false, data, pixelStride,
+                            offsets[0], offsets[0], offsets[0], base, stride);
+                }
+            }
+
+            //anything else (indexed, 16 bit, premultiplied, non-sRGB) gets converted once
+            BufferedImage converted = new BufferedImage(source.width, source.height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = converted.createGraphics();
+            try {
+                g.drawImage(frame, -source.x, -source.y, null);
+            } finally {
+                g.dispose();
+            }
+            return of(converted, new Rectangle(0, 0, source.width, source.height));
+        }
+
+        /**
+         * Returns the mean colour of the given box as packed RGB.
+         */
+        int average(int sx0, int sy0, int sx1, int sy1) {
+            long r = 0, g = 0, b = 0;
+            if (ints != null) {
+                for (int y = sy0; y < sy1; y++) {
+                    int row = base + y * scanlineStride;
+                    for (int x = sx0; x < sx1; x++) {
+                        int p = ints[row + x];
+                        r += (p >> 16) & 0xff;
+                        g += (p >> 8) & 0xff;
+                        b += p & 0xff;
+                    }
+                }
+                if (bgr) {
+                    long t = r;
+                    r = b;
+                    b = t;
+                }
+            } else {
+                for (int y = sy0; y < sy1; y++) {
+                    int i = base + y * scanlineStride + sx0 * pixelStride;
+                    for (int x = sx0; x < sx1; x++, i += pixelStride) {
+                        r += bytes[i + redOffset] & 0xff;
+                        g += bytes[i + greenOffset] & 0xff;
+                        b += bytes[i + blueOffset] & 0xff;
+                    }
+                }
+            }
+            int n = (sx1 - sx0) * (sy1 - sy0);
+            return (int) (r / n) << 16 | (int) (g / n) << 8 | (int) (b / n);
+        }
+    }
+}
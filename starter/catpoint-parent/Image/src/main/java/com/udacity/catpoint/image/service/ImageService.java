@@ -1,7 +1,28 @@
 package com.udacity.catpoint.image.service;
 
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 public interface ImageService {
     boolean imageContainsCat(BufferedImage image, float confidenceThreshold);
+
+    /**
+     * Analyses the frame and returns everything found in it. Services that only know whether
+     * there is a cat report a single "Cat" label; services with a real detector override this
+     * and answer {@link #imageContainsCat} from the result.
+     */
+    default DetectionResult detect(BufferedImage image, float confidenceThreshold) {
+        return imageContainsCat(image, confidenceThreshold)
+                ? new DetectionResult(List.of(new DetectionResult.Label("Cat", 100.0f)))
+                : DetectionResult.EMPTY;
+    }
+
+    /**
+     * Whether frames leave the machine. Remote services are slower and can fail, so callers that
+     * pick services at run time wrap them with {@link ResilientImageService} and
+     * {@link PreprocessingImageService}.
+     */
+    default boolean isRemote() {
+        return false;
+    }
 }
@@ -0,0 +1,37 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Wraps another ImageService so that it only ever sees frames that have already been
+ * shrunk by a {@link FramePreprocessor}.
+ */
+public class PreprocessingImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final FramePreprocessor preprocessor;
+
+    public PreprocessingImageService(ImageService delegate, FramePreprocessor preprocessor) {
+        this.delegate = delegate;
+        this.preprocessor = preprocessor;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        if (image == null) {
+            return delegate.imageContainsCat(null, confidenceThreshold);
+        }
+        return delegate.imageContainsCat(preprocessor.process(image), confidenceThreshold);
+    }
+
+    /**
+     * Bounding boxes are fractions of the frame, so they apply to the original frame unchanged.
+     */
+    @Override
+    public DetectionResult detect(BufferedImage image, float confidenceThreshold) {
+        if (image == null) {
+            return delegate.detect(null, confidenceThreshold);
+        }
+        return delegate.detect(preprocessor.process(image), confidenceThreshold);
+    }
+}
@@ -0,0 +1,261 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps cat detection latency bounded when a remote ImageService degrades.
+ *
+ * Every remote call gets a deadline. Once enough calls have completed, a second (hedged) request
+ * is sent if the first one has not answered within the observed p95 latency, and whichever answers
+ * first wins. Calls that fail or miss their deadline are answered by a local fallback service and
+ * counted by a circuit breaker. After enough consecutive failures the breaker opens and all frames
+ * go straight to the fallback until a single probe request succeeds again.
+ */
+public class ResilientImageService implements ImageService {
+
+    private static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(2);
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+    //hedging only starts once we have seen this many successful calls
+    private static final int MIN_SAMPLES_FOR_HEDGING = 20;
+    private static final int LATENCY_WINDOW = 256;
+    private static final double HEDGE_PERCENTILE = 0.95;
+    //never hedge sooner than this, otherwise thread hand-off noise alone triggers duplicate requests
+    private static final long MIN_HEDGE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * States of the circuit breaker guarding the remote service.
+     */
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Logger log = LoggerFactory.getLogger(ResilientImageService.class);
+
+    private final ImageService remote;
+    private final ImageService fallback;
+    private final long deadlineNanos;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ExecutorService executor;
+
+    private final LatencyWindow latencies = new LatencyWindow();
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    private final AtomicLong remoteCalls = new AtomicLong();
+    private final AtomicLong hedgedCalls = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong fallbackCalls = new AtomicLong();
+
+    public ResilientImageService(ImageService remote, ImageService fallback) {
+        this(remote, fallback, DEFAULT_DEADLINE, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION,
+                Executors.newCachedThreadPool(r -> {
+                    Thread t = new Thread(r, "resilient-image-service");
+                    t.setDaemon(true);
+                    return t;
+                }));
+    }
+
+    /**
+     * @param remote Service that may be slow or unavailable, for example {@link AwsImageService}
+     * @param fallback Local service used whenever the remote one can't answer in time
+     * @param deadline Maximum time to wait for the remote service per frame
+     * @param failureThreshold Consecutive failures or timeouts that open the circuit
+     * @param openDuration How long the circuit stays open before a probe request is allowed
+     * @param executor Runs the remote calls. Needs enough threads for calls that are abandoned after their deadline
+     */
+    public ResilientImageService(ImageService remote, ImageService fallback, Duration deadline, int failureThreshold,
+                                 Duration openDuration, ExecutorService executor) {
+        this.remote = remote;
+        this.fallback = fallback;
+        this.deadlineNanos = deadline.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return detect(image, confidenceThreshold).containsCat(confidenceThreshold);
+    }
+
+    @Override
+    public DetectionResult detect(BufferedImage image, float confidenceThreshold) {
+        CircuitState admitted = admit();
+        if (admitted == CircuitState.OPEN) {
+            return useFallback(image, confidenceThreshold);
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + deadlineNanos;
+        Attempts attempts = new Attempts();
+        attempts.launch(image, confidenceThreshold);
+        try {
+            long hedgeDelay = admitted == CircuitState.CLOSED ? latencies.hedgeDelayNanos() : -1;
+            if (hedgeDelay >= 0 && hedgeDelay < deadlineNanos) {
+                try {
+                    return succeeded(attempts.winner.get(hedgeDelay, TimeUnit.NANOSECONDS), start);
+                } catch (TimeoutException e) {
+                    hedgedCalls.incrementAndGet();
+                    attempts.launch(image, confidenceThreshold);
+                }
+            }
+            return succeeded(attempts.winner.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS), start);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            failed("timed out after " + TimeUnit.NANOSECONDS.toMillis(deadlineNanos) + "ms", null);
+        } catch (ExecutionException e) {
+            failed("failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed("was interrupted", null);
+        }
+        attempts.cancel();
+        return useFallback(image, confidenceThreshold);
+    }
+
+    public CircuitState getCircuitState() {
+        synchronized (this) {
+            return state;
+        }
+    }
+
+    public long getRemoteCalls() {
+        return remoteCalls.get();
+    }
+
+    public long getHedgedCalls() {
+        return hedgedCalls.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getFallbackCalls() {
+        return fallbackCalls.get();
+    }
+
+    /**
+     * Decides whether this call may try the remote service. Returns OPEN if it must use the fallback,
+     * HALF_OPEN if it is the single probe request, and CLOSED otherwise.
+     */
+    private synchronized CircuitState admit() {
+        if (state == CircuitState.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = CircuitState.HALF_OPEN;
+            return CircuitState.HALF_OPEN;
+        }
+        return state == CircuitState.CLOSED ? CircuitState.CLOSED : CircuitState.OPEN;
+    }
+
+    private DetectionResult succeeded(DetectionResult result, long start) {
+        latencies.add(System.nanoTime() - start);
+        synchronized (this) {
+            if (state != CircuitState.CLOSED) {
+                log.info("Remote image service recovered, closing circuit");
+            }
+            state = CircuitState.CLOSED;
+            consecutiveFailures = 0;
+        }
+        return result;
+    }
+
+    private void failed(String reason, Throwable cause) {
+        synchronized (this) {
+            consecutiveFailures++;
+            if (state == CircuitState.HALF_OPEN || (state == CircuitState.CLOSED && consecutiveFailures >= failureThreshold)) {
+                log.warn("Remote image service {}, opening circuit for {}ms", reason, TimeUnit.NANOSECONDS.toMillis(openNanos), cause);
+                state = CircuitState.OPEN;
+                openedAt = System.nanoTime();
+                return;
+            }
+        }
+        log.debug("Remote image service {}", reason, cause);
+    }
+
+    private DetectionResult useFallback(BufferedImage image, float confidenceThreshold) {
+        fallbackCalls.incrementAndGet();
+        return fallback.detect(image, confidenceThreshold);
+    }
+
+    /**
+     * The remote requests issued for one frame. The winner completes with the first successful
+     * answer, or with the last failure once every launched request has failed.
+     */
+    private class Attempts {
+        private final CompletableFuture<DetectionResult> winner = new CompletableFuture<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final CompletableFuture<?>[] launched = new CompletableFuture<?>[2];
+        private int count;
+
+        void launch(BufferedImage image, float confidenceThreshold) {
+            pending.incrementAndGet();
+            remoteCalls.incrementAndGet();
+            launched[count++] = CompletableFuture
+                    .supplyAsync(() -> remote.detect(image, confidenceThreshold), executor)
+                    .whenComplete((result, error) -> {
+                        if (error == null) {
+                            winner.complete(result);
+                        } else if (pending.decrementAndGet() == 0) {
+                            winner.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                        }
+                    });
+        }
+
+        void cancel() {
+            for (int i = 0; i < count; i++) {
+                launched[i].cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Ring buffer of recent successful latencies used to pick the hedge delay. The percentile is
+     * recomputed every few samples instead of on every frame.
+     */
+    private static class LatencyWindow {
+        private static final int RECOMPUTE_EVERY = 16;
+
+        private final long[] samples = new long[LATENCY_WINDOW];
+        private int size;
+        private int next;
+        private int sinceRecompute;
+        private long hedgeDelay = -1;
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+            if (size >= MIN_SAMPLES_FOR_HEDGING && (hedgeDelay < 0 || ++sinceRecompute >= RECOMPUTE_EVERY)) {
+                sinceRecompute = 0;
+                long[] sorted = Arrays.copyOf(samples, size);
+                Arrays.sort(sorted);
+                hedgeDelay = Math.max(MIN_HEDGE_DELAY_NANOS, sorted[Math.min(size - 1, (int) (size * HEDGE_PERCENTILE))]);
+            }
+        }
+
+        /**
+         * Returns how long to wait before hedging, or -1 while there isn't enough data yet.
+         */
+        synchronized long hedgeDelayNanos() {
+            return hedgeDelay;
+        }
+    }
+}
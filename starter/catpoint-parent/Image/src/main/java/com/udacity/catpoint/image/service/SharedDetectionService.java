@@ -0,0 +1,106 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Wraps another ImageService so each frame is analysed once, however many consumers ask about
+ * it. The full result of every analysed frame goes to the registered {@link DetectionListener}s,
+ * and asking again about the most recent frame, through either the boolean or the rich API, is
+ * answered from that result. Callers asking about the same frame at the same time share one
+ * request.
+ *
+ * Frames are matched by identity, so a caller that reuses one image for successive frames must
+ * not go through this service.
+ */
+public class SharedDetectionService implements ImageService {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedDetectionService.class);
+
+    private final ImageService delegate;
+    private final List<DetectionListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Analysis> latest = new AtomicReference<>();
+    private final AtomicLong analysedFrames = new AtomicLong();
+
+    public SharedDetectionService(ImageService delegate) {
+        this.delegate = delegate;
+    }
+
+    public void addDetectionListener(DetectionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeDetectionListener(DetectionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Number of frames actually sent to the wrapped service.
+     */
+    public long getAnalysedFrames() {
+        return analysedFrames.get();
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return detect(image, confidenceThreshold).containsCat(confidenceThreshold);
+    }
+
+    /**
+     * A result computed with a lower threshold is reused by filtering it; asking for a lower
+     * threshold than the last analysis used means analysing the frame again.
+     */
+    @Override
+    public DetectionResult detect(BufferedImage image, float confidenceThreshold) {
+        while (true) {
+            Analysis current = latest.get();
+            if (current != null && current.image == image && current.confidenceThreshold <= confidenceThreshold) {
+                return current.result.join().withMinConfidence(confidenceThreshold);
+            }
+            Analysis analysis = new Analysis(image, confidenceThreshold);
+            if (latest.compareAndSet(current, analysis)) {
+                return analyse(analysis);
+            }
+        }
+    }
+
+    private DetectionResult analyse(Analysis analysis) {
+        DetectionResult result;
+        try {
+            result = delegate.detect(analysis.image, analysis.confidenceThreshold);
+        } catch (RuntimeException e) {
+            //don't leave a failed frame behind for the next caller to pick up
+            latest.compareAndSet(analysis, null);
+            analysis.result.completeExceptionally(e);
+            throw e;
+        }
+        analysedFrames.incrementAndGet();
+        analysis.result.complete(result);
+        for (DetectionListener listener : listeners) {
+            try {
+                listener.detected(analysis.image, result);
+            } catch (RuntimeException e) {
+                log.warn("Detection listener {} failed", listener, e);
+            }
+        }
+        return result;
+    }
+
+    private static final class Analysis {
+        private final BufferedImage image;
+        private final float confidenceThreshold;
+        private final CompletableFuture<DetectionResult> result = new CompletableFuture<>();
+
+        Analysis(BufferedImage image, float confidenceThreshold) {
+            this.image = image;
+            this.confidenceThreshold = confidenceThreshold;
+        }
+    }
+}
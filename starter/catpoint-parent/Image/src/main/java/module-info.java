@@ -6,4 +6,6 @@ module com.udacity.catpoint.image {
     requires software.amazon.awssdk.services.rekognition;
     requires java.desktop;
     exports com.udacity.catpoint.image.service;
+    provides com.udacity.catpoint.image.service.ImageService
+            with com.udacity.catpoint.image.service.FakeImageService, com.udacity.catpoint.image.service.AwsImageService;
 }
\ No newline at end of file
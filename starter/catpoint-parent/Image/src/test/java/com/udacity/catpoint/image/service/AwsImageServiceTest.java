@@ -0,0 +1,100 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs AwsImageService against a local fake Rekognition endpoint, alone and behind ResilientImageService.
+ */
+public class AwsImageServiceTest {
+
+    private FakeRekognitionEndpoint endpoint;
+    private RekognitionClient client;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_3BYTE_BGR);
+
+    @BeforeEach
+    public void startEndpoint() throws IOException {
+        endpoint = new FakeRekognitionEndpoint();
+        client = RekognitionClient.builder()
+                .endpointOverride(endpoint.uri())
+                .region(Region.US_EAST_2)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .build();
+    }
+
+    @AfterEach
+    public void stopEndpoint() throws IOException {
+        client.close();
+        endpoint.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void catLabelDetected() {
+        endpoint.respondWithLabel("Cat", 97.5f);
+        assertTrue(new AwsImageService(client).imageContainsCat(image, 50.0f));
+        assertEquals(1, endpoint.getRequestCount());
+    }
+
+    @Test
+    public void otherLabelsAreNotCats() {
+        endpoint.respondWithLabel("Dog", 97.5f);
+        assertFalse(new AwsImageService(client).imageContainsCat(image, 50.0f));
+    }
+
+    @Test
+    public void detectKeepsConfidenceAndBoxes() {
+        endpoint.respondWithInstance("Cat", 91.0f, 0.25f, 0.5f, 0.5f, 0.25f);
+        DetectionResult result = new AwsImageService(client).detect(image, 50.0f);
+        DetectionResult.Label cat = result.getLabel("cat");
+        assertEquals(91.0f, cat.getConfidence(), 0.01f);
+        assertEquals(1, cat.getInstances().size());
+        assertEquals(0.25f, cat.getInstances().get(0).getLeft(), 0.01f);
+        assertEquals(0.25f, cat.getInstances().get(0).getHeight(), 0.01f);
+    }
+
+    @Test
+    public void uninitializedClientFailsClearly() {
+        assertThrows(IllegalStateException.class, () -> new AwsImageService((RekognitionClient) null).imageContainsCat(image, 50.0f));
+    }
+
+    @Test
+    public void slowEndpointFallsBackWithinDeadline() {
+        endpoint.respondWithLabel("Cat", 97.5f);
+        endpoint.delay(3000);
+        ResilientImageService service = new ResilientImageService(new AwsImageService(client), (i, t) -> false,
+                Duration.ofMillis(200), 2, Duration.ofSeconds(10), executor);
+        long start = System.nanoTime();
+        assertFalse(service.imageContainsCat(image, 50.0f));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000);
+    }
+
+    @Test
+    public void failingEndpointOpensCircuit() {
+        endpoint.failing(true);
+        ResilientImageService service = new ResilientImageService(new AwsImageService(client), (i, t) -> false,
+                Duration.ofSeconds(5), 2, Duration.ofSeconds(10), executor);
+        service.imageContainsCat(image, 50.0f);
+        service.imageContainsCat(image, 50.0f);
+        assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+
+        int requests = endpoint.getRequestCount();
+        endpoint.failing(false);
+        service.imageContainsCat(image, 50.0f);
+        assertEquals(requests, endpoint.getRequestCount());
+    }
+}
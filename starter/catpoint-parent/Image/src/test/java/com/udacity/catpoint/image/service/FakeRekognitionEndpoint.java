@@ -0,0 +1,158 @@
+package com.udacity.catpoint.image.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal HTTP/1.1 server on the loopback interface that answers Rekognition DetectLabels calls
+ * with a canned JSON body. Latency and failures can be injected so tests can exercise the
+ * deadline, hedging and circuit breaker logic against the real AWS client.
+ */
+class FakeRekognitionEndpoint implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "fake-rekognition");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile String labelsJson = "[]";
+    private volatile long delayMillis;
+    private volatile int statusCode = 200;
+
+    FakeRekognitionEndpoint() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        connections.execute(this::acceptLoop);
+    }
+
+    URI uri() {
+        return URI.create("http://localhost:" + serverSocket.getLocalPort());
+    }
+
+    /**
+     * Makes every following response report a single label with the given confidence.
+     */
+    void respondWithLabel(String name, float confidence) {
+        labelsJson = String.format(Locale.ROOT, "[{\"Name\":\"%s\",\"Confidence\":%.1f,\"Instances\":[],\"Parents\":[]}]",
+                name, confidence);
+    }
+
+    /**
+     * Responds with a label that has one located instance.
+     */
+    void respondWithInstance(String name, float confidence, float left, float top, float width, float height) {
+        labelsJson = String.format(Locale.ROOT, "[{\"Name\":\"%s\",\"Confidence\":%.1f,\"Instances\":[{\"BoundingBox\":"
+                        + "{\"Left\":%.2f,\"Top\":%.2f,\"Width\":%.2f,\"Height\":%.2f},\"Confidence\":%.1f}],\"Parents\":[]}]",
+                name, confidence, left, top, width, height, confidence);
+    }
+
+    void delay(long millis) {
+        delayMillis = millis;
+    }
+
+    /**
+     * Makes every following response fail with an internal server error, or succeed again when false.
+     */
+    void failing(boolean failing) {
+        statusCode = failing ? 500 : 200;
+    }
+
+    int getRequestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket; InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = socket.getOutputStream()) {
+            while (true) {
+                int contentLength = -1;
+                boolean expectContinue = false;
+                String line = readLine(in);
+                if (line == null || line.isEmpty()) {
+                    return;
+                }
+                while (!(line = readLine(in)).isEmpty()) {
+                    String lower = line.toLowerCase(Locale.ROOT);
+                    if (lower.startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    } else if (lower.startsWith("expect:") && lower.contains("100-continue")) {
+                        expectContinue = true;
+                    }
+                }
+                if (expectContinue) {
+                    out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                }
+                in.readNBytes(Math.max(0, contentLength));
+                requests.incrementAndGet();
+
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+                String body = statusCode == 200
+                        ? "{\"Labels\":" + labelsJson + ",\"LabelModelVersion\":\"2.0\"}"
+                        : "{\"__type\":\"InternalServerError\",\"message\":\"injected failure\"}";
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                String headers = "HTTP/1.1 " + statusCode + (statusCode == 200 ? " OK" : " Internal Server Error") + "\r\n"
+                        + "Content-Type: application/x-amz-json-1.1\r\n"
+                        + "x-amzn-RequestId: fake-" + requests.get() + "\r\n"
+                        + "Content-Length: " + bytes.length + "\r\n\r\n";
+                out.write(headers.getBytes(StandardCharsets.US_ASCII));
+                out.write(bytes);
+                out.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            //client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,182 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FramePreprocessorTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    public void cleanUp() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void eachOutputPixelIsTheMeanOfItsSourceBox() {
+        BufferedImage frame = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        frame.setRGB(0, 0, rgb(0, 10, 255));
+        frame.setRGB(1, 0, rgb(100, 20, 255));
+        frame.setRGB(0, 1, rgb(200, 30, 0));
+        frame.setRGB(1, 1, rgb(100, 41, 0));
+        frame.setRGB(2, 0, rgb(255, 255, 255));
+        frame.setRGB(3, 0, rgb(255, 255, 255));
+        frame.setRGB(2, 1, rgb(0, 0, 0));
+        frame.setRGB(3, 1, rgb(1, 2, 3));
+
+        BufferedImage out = new FramePreprocessor(2, 2, null, pool).process(frame);
+
+        assertEquals(2, out.getWidth());
+        assertEquals(1, out.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, out.getType());
+        //channel sums are divided and truncated: (10+20+30+41)/4 = 25, (255+255+0+1)/4 = 127
+        assertEquals(rgb(100, 25, 127), out.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(rgb(127, 128, 128), out.getRGB(1, 0) & 0xFFFFFF);
+    }
+
+    @Test
+    public void aspectRatioIsKeptAndFramesAreNeverScaledUp() {
+        FramePreprocessor preprocessor = new FramePreprocessor(200, 200, null, pool);
+        BufferedImage wide = preprocessor.process(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB));
+        assertEquals(200, wide.getWidth());
+        assertEquals(100, wide.getHeight());
+        BufferedImage small = preprocessor.process(new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB));
+        assertEquals(100, small.getWidth());
+        assertEquals(50, small.getHeight());
+        assertThrows(IllegalArgumentException.class, () -> new FramePreprocessor(0, 10));
+    }
+
+    @Test
+    public void largeFramesSplitIntoTilesMatchTheReference() {
+        BufferedImage frame = noise(1000, 800, BufferedImage.TYPE_INT_RGB, 1);
+        //250x200 output is far more than one tile, so the work is split across the pool
+        BufferedImage out = new FramePreprocessor(250, 250, null, pool).process(frame);
+        assertEquals(250, out.getWidth());
+        assertEquals(200, out.getHeight());
+        assertMatchesReference(frame, new Rectangle(0, 0, 1000, 800), out);
+    }
+
+    @Test
+    public void regionOfInterestIsCroppedBeforeScaling() {
+        BufferedImage frame = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        g.setColor(Color.BLUE);
+        g.fillRect(0, 0, 10, 10);
+        g.setColor(Color.RED);
+        g.fillRect(2, 3, 4, 4);
+        g.dispose();
+
+        BufferedImage out = new FramePreprocessor(100, 100, new Rectangle(2, 3, 4, 4), pool).process(frame);
+        assertEquals(4, out.getWidth());
+        assertEquals(4, out.getHeight());
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                assertEquals(Color.RED.getRGB(), out.getRGB(x, y));
+            }
+        }
+
+        //a region reaching past the frame is clipped to it
+        BufferedImage clipped = new FramePreprocessor(100, 100, new Rectangle(8, 8, 10, 10), pool).process(frame);
+        assertEquals(2, clipped.getWidth());
+        assertEquals(2, clipped.getHeight());
+        assertThrows(IllegalArgumentException.class,
+                () -> new FramePreprocessor(100, 100, new Rectangle(20, 20, 5, 5), pool).process(frame));
+    }
+
+    @Test
+    public void packedIntAndInterleavedByteLayoutsAreReadDirectly() {
+        int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR,
+                BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR};
+        Rectangle region = new Rectangle(5, 7, 60, 40);
+        for (int type : types) {
+            BufferedImage frame = noise(80, 60, type, type);
+            BufferedImage out = new FramePreprocessor(20, 20, region, pool).process(frame);
+            assertEquals(20, out.getWidth(), "type " + type);
+            assertEquals(13, out.getHeight(), "type " + type);
+            assertMatchesReference(frame, region, out);
+        }
+    }
+
+    @Test
+    public void grayFramesUseTheRawSampleForEveryChannel() {
+        BufferedImage frame = new BufferedImage(4, 4, BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster raster = frame.getRaster();
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                raster.setSample(x, y, 0, x < 2 ? 10 : 201);
+            }
+        }
+        BufferedImage out = new FramePreprocessor(2, 2, null, pool).process(frame);
+        assertEquals(rgb(10, 10, 10), out.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(rgb(201, 201, 201), out.getRGB(1, 1) & 0xFFFFFF);
+    }
+
+    @Test
+    public void otherLayoutsAreConvertedFirst() {
+        BufferedImage indexed = new BufferedImage(8, 8, BufferedImage.TYPE_BYTE_INDEXED);
+        Graphics2D g = indexed.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 8, 8);
+        g.setColor(Color.GREEN);
+        g.fillRect(4, 0, 4, 8);
+        g.dispose();
+
+        BufferedImage out = new FramePreprocessor(2, 2, null, pool).process(indexed);
+        assertEquals(indexed.getRGB(0, 0), out.getRGB(0, 0));
+        assertEquals(indexed.getRGB(7, 7), out.getRGB(1, 1));
+
+        BufferedImage premultiplied = noise(16, 16, BufferedImage.TYPE_INT_ARGB_PRE, 3);
+        BufferedImage converted = new FramePreprocessor(16, 16, null, pool).process(premultiplied);
+        assertEquals(16, converted.getWidth());
+        assertEquals(BufferedImage.TYPE_INT_RGB, converted.getType());
+    }
+
+    //averages the same source boxes the preprocessor uses, through getRGB
+    private static void assertMatchesReference(BufferedImage frame, Rectangle region, BufferedImage out) {
+        int outWidth = out.getWidth();
+        int outHeight = out.getHeight();
+        for (int dy = 0; dy < outHeight; dy++) {
+            int sy0 = dy * region.height / outHeight;
+            int sy1 = Math.max(sy0 + 1, (dy + 1) * region.height / outHeight);
+            for (int dx = 0; dx < outWidth; dx++) {
+                int sx0 = dx * region.width / outWidth;
+                int sx1 = Math.max(sx0 + 1, (dx + 1) * region.width / outWidth);
+                long r = 0, g = 0, b = 0;
+                for (int y = sy0; y < sy1; y++) {
+                    for (int x = sx0; x < sx1; x++) {
+                        int p = frame.getRGB(region.x + x, region.y + y);
+                        r += (p >> 16) & 0xff;
+                        g += (p >> 8) & 0xff;
+                        b += p & 0xff;
+                    }
+                }
+                int n = (sx1 - sx0) * (sy1 - sy0);
+                assertEquals(rgb((int) (r / n), (int) (g / n), (int) (b / n)), out.getRGB(dx, dy) & 0xFFFFFF,
+                        "pixel " + dx + "," + dy + " of type " + frame.getType());
+            }
+        }
+    }
+
+    private static BufferedImage noise(int width, int height, int type, long seed) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, 0xFF000000 | random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static int rgb(int r, int g, int b) {
+        return r << 16 | g << 8 | b;
+    }
+}
@@ -0,0 +1,50 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreprocessingImageServiceTest {
+
+    private final List<BufferedImage> seen = new ArrayList<>();
+    private final DetectionResult cat = new DetectionResult(List.of(new DetectionResult.Label("Cat", 90f)));
+    private final ImageService delegate = new ImageService() {
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            return detect(image, confidenceThreshold).containsCat(confidenceThreshold);
+        }
+
+        @Override
+        public DetectionResult detect(BufferedImage image, float confidenceThreshold) {
+            seen.add(image);
+            return cat;
+        }
+    };
+    private final PreprocessingImageService service = new PreprocessingImageService(delegate, new FramePreprocessor(160, 120));
+
+    @Test
+    public void delegateOnlySeesShrunkFrames() {
+        assertSame(cat, service.detect(new BufferedImage(1280, 960, BufferedImage.TYPE_3BYTE_BGR), 50f));
+        assertTrue(service.imageContainsCat(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), 50f));
+
+        assertEquals(2, seen.size());
+        for (BufferedImage image : seen) {
+            assertEquals(160, image.getWidth());
+            assertEquals(120, image.getHeight());
+            assertEquals(BufferedImage.TYPE_INT_RGB, image.getType());
+        }
+    }
+
+    @Test
+    public void missingFramesArePassedThrough() {
+        service.detect(null, 50f);
+        service.imageContainsCat(null, 50f);
+        assertEquals(2, seen.size());
+        assertNull(seen.get(0));
+        assertNull(seen.get(1));
+    }
+}
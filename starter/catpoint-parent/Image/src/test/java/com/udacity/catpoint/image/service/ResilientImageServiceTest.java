@@ -0,0 +1,110 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResilientImageServiceTest {
+
+    private static final ImageService ALWAYS_CAT = (image, threshold) -> true;
+    private static final ImageService NEVER_CAT = (image, threshold) -> false;
+
+    private final BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private ResilientImageService resilient(ImageService remote, Duration deadline, int failureThreshold, Duration openDuration) {
+        return new ResilientImageService(remote, NEVER_CAT, deadline, failureThreshold, openDuration, executor);
+    }
+
+    private static ImageService sleeping(long millis, boolean result) {
+        return (image, threshold) -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        };
+    }
+
+    @Test
+    public void remoteAnswerUsedWhenHealthy() {
+        ResilientImageService service = resilient(ALWAYS_CAT, Duration.ofSeconds(1), 3, Duration.ofSeconds(10));
+        assertTrue(service.imageContainsCat(image, 50.0f));
+        assertEquals(0, service.getFallbackCalls());
+    }
+
+    @Test
+    public void fallbackUsedWhenRemoteMissesDeadline() {
+        ResilientImageService service = resilient(sleeping(2000, true), Duration.ofMillis(50), 3, Duration.ofSeconds(10));
+        long start = System.nanoTime();
+        assertFalse(service.imageContainsCat(image, 50.0f));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000);
+        assertEquals(1, service.getTimeouts());
+        assertEquals(1, service.getFallbackCalls());
+    }
+
+    @Test
+    public void fallbackUsedWhenRemoteThrows() {
+        ImageService broken = (image, threshold) -> {
+            throw new IllegalStateException("AWS Rekognition client is not initialized");
+        };
+        ResilientImageService service = resilient(broken, Duration.ofSeconds(1), 3, Duration.ofSeconds(10));
+        assertFalse(service.imageContainsCat(image, 50.0f));
+        assertEquals(1, service.getFallbackCalls());
+    }
+
+    @Test
+    public void circuitOpensAfterConsecutiveFailuresAndProbesAfterOpenDuration() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        ImageService broken = (image, threshold) -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("down");
+        };
+        ResilientImageService service = resilient(broken, Duration.ofSeconds(1), 3, Duration.ofMillis(200));
+        for (int i = 0; i < 3; i++) {
+            service.imageContainsCat(image, 50.0f);
+        }
+        assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+
+        service.imageContainsCat(image, 50.0f);
+        assertEquals(3, calls.get(), "open circuit must not call the remote service");
+
+        Thread.sleep(250);
+        service.imageContainsCat(image, 50.0f);
+        assertEquals(4, calls.get(), "a single probe is allowed once the open duration has passed");
+        assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+    }
+
+    @Test
+    public void slowRequestIsHedgedOnceLatencyIsKnown() {
+        AtomicInteger calls = new AtomicInteger();
+        //every 25th call stalls, everything else answers right away
+        ImageService occasionallySlow = (image, threshold) -> {
+            if (calls.incrementAndGet() % 25 == 0) {
+                return sleeping(5000, true).imageContainsCat(image, threshold);
+            }
+            return true;
+        };
+        ResilientImageService service = resilient(occasionallySlow, Duration.ofSeconds(3), 3, Duration.ofSeconds(10));
+        long start = System.nanoTime();
+        for (int i = 0; i < 60; i++) {
+            assertTrue(service.imageContainsCat(image, 50.0f));
+        }
+        assertTrue(service.getHedgedCalls() >= 1);
+        assertEquals(0, service.getFallbackCalls());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 3000, "hedged requests should beat the stalled ones");
+    }
+}
@@ -0,0 +1,114 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SharedDetectionServiceTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final BufferedImage frame = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+    private SharedDetectionService service;
+
+    @BeforeEach
+    public void initialize() {
+        service = new SharedDetectionService(detector(new CountDownLatch(0)));
+    }
+
+    private ImageService detector(CountDownLatch release) {
+        return new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+                return detect(image, confidenceThreshold).containsCat(confidenceThreshold);
+            }
+
+            @Override
+            public DetectionResult detect(BufferedImage image, float confidenceThreshold) {
+                calls.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                List<DetectionResult.Label> labels = new ArrayList<>();
+                labels.add(new DetectionResult.Label("Cat", 80.0f, List.of(new DetectionResult.BoundingBox(0.1f, 0.2f, 0.3f, 0.4f, 80.0f))));
+                labels.add(new DetectionResult.Label("Person", 95.0f));
+                return new DetectionResult(labels).withMinConfidence(confidenceThreshold);
+            }
+        };
+    }
+
+    @Test
+    public void everyConsumerSharesOneAnalysis() {
+        List<DetectionResult> received = new ArrayList<>();
+        service.addDetectionListener((image, result) -> received.add(result));
+
+        assertTrue(service.imageContainsCat(frame, 50.0f));
+        assertTrue(service.detect(frame, 50.0f).containsLabel("person", 90.0f));
+        assertEquals(0.3f, service.detect(frame, 60.0f).getLabel("Cat").getInstances().get(0).getWidth());
+
+        assertEquals(1, calls.get());
+        assertEquals(1, received.size());
+        assertEquals(2, received.get(0).getLabels().size());
+    }
+
+    @Test
+    public void higherThresholdFiltersTheSharedResult() {
+        assertTrue(service.imageContainsCat(frame, 50.0f));
+        assertFalse(service.imageContainsCat(frame, 90.0f));
+        assertNull(service.detect(frame, 90.0f).getLabel("Cat"));
+        assertEquals(1, calls.get());
+
+        //a lower threshold than the frame was analysed with could reveal more labels
+        service.detect(frame, 30.0f);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void newFrameIsAnalysedAgain() {
+        service.imageContainsCat(frame, 50.0f);
+        service.imageContainsCat(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), 50.0f);
+        assertEquals(2, calls.get());
+        assertEquals(2, service.getAnalysedFrames());
+    }
+
+    @Test
+    public void concurrentCallersWaitForTheSameRequest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        service = new SharedDetectionService(detector(release));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> answers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                answers.add(executor.submit(() -> service.imageContainsCat(frame, 50.0f)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<Boolean> answer : answers) {
+                assertTrue(answer.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void booleanServicesReportACatLabel() {
+        ImageService legacy = (image, threshold) -> true;
+        DetectionResult result = legacy.detect(frame, 50.0f);
+        assertTrue(result.containsCat(50.0f));
+        assertEquals("Cat", result.getLabels().get(0).getName());
+    }
+}
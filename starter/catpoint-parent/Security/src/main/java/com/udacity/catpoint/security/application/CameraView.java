@@ -0,0 +1,142 @@
+package com.udacity.catpoint.security.application;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Displays camera frames at video rates. Frames are scaled on a shared background pool into one
+ * of two reusable buffers; once a frame is ready the buffers are swapped and the component
+ * repainted, so the event dispatch thread only ever copies a finished image to the screen. If
+ * frames arrive faster than they can be scaled, only the newest is rendered and the rest are
+ * counted as dropped.
+ *
+ * The buffers are images compatible with the screen, which Java2D keeps cached in video memory
+ * and draws with hardware acceleration where available.
+ */
+public class CameraView extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ExecutorService SCALERS = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), r -> {
+                Thread t = new Thread(r, "camera-scaler");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private final AtomicReference<BufferedImage> pending = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong renderedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final Object bufferLock = new Object();
+    private BufferedImage front;
+    private BufferedImage back;
+
+    public CameraView(int width, int height) {
+        setPreferredSize(new Dimension(width, height));
+        setOpaque(true);
+    }
+
+    /**
+     * Queues a frame for display and returns immediately. Safe to call from any thread.
+     */
+    public void setFrame(BufferedImage frame) {
+        if (pending.getAndSet(Objects.requireNonNull(frame)) != null) {
+            droppedFrames.incrementAndGet();
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            SCALERS.execute(this::render);
+        }
+    }
+
+    public long getRenderedFrames() {
+        return renderedFrames.get();
+    }
+
+    /**
+     * Frames replaced by a newer one before they were rendered.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        synchronized (bufferLock) {
+            if (front != null) {
+                g.drawImage(front, 0, 0, null);
+            }
+        }
+    }
+
+    /**
+     * Most recently rendered buffer, for tests.
+     */
+    BufferedImage getDisplayedImage() {
+        synchronized (bufferLock) {
+            return front;
+        }
+    }
+
+    private void render() {
+        while (true) {
+            BufferedImage frame = pending.getAndSet(null);
+            if (frame == null) {
+                scheduled.set(false);
+                //a frame may have arrived after the check above but before the flag was cleared
+                if (pending.get() == null || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            int width = getWidth() > 0 ? getWidth() : getPreferredSize().width;
+            int height = getHeight() > 0 ? getHeight() : getPreferredSize().height;
+            BufferedImage target = back;
+            if (target == null || target.getWidth() != width || target.getHeight() != height) {
+                target = createBuffer(width, height);
+            }
+            scaleInto(frame, target);
+            synchronized (bufferLock) {
+                back = front;
+                front = target;
+            }
+            renderedFrames.incrementAndGet();
+            repaint();
+        }
+    }
+
+    //fits the frame inside the buffer keeping its aspect ratio, letterboxed with the background color
+    private void scaleInto(BufferedImage frame, BufferedImage target) {
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setColor(getBackground() != null ? getBackground() : Color.BLACK);
+            g.fillRect(0, 0, target.getWidth(), target.getHeight());
+            double scale = Math.min((double) target.getWidth() / frame.getWidth(), (double) target.getHeight() / frame.getHeight());
+            int w = Math.max(1, (int) Math.round(frame.getWidth() * scale));
+            int h = Math.max(1, (int) Math.round(frame.getHeight() * scale));
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(frame, (target.getWidth() - w) / 2, (target.getHeight() - h) / 2, w, h, null);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private BufferedImage createBuffer(int width, int height) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null && !GraphicsEnvironment.isHeadless()) {
+            configuration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        return configuration != null
+                ? configuration.createCompatibleImage(width, height)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+}
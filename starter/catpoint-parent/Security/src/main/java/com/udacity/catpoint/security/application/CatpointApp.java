@@ -1,11 +1,17 @@
 package com.udacity.catpoint.security.application;
 
+import javax.swing.*;
+
 /**
  * This is the main class that launches the application.
  */
 public class CatpointApp {
     public static void main(String[] args) {
-        CatpointGui gui = new CatpointGui();
-        gui.setVisible(true);
+        //start loading services right away, the window is built on the EDT in the meantime
+        CatpointServices services = CatpointServices.start();
+        SwingUtilities.invokeLater(() -> {
+            CatpointGui gui = new CatpointGui(services);
+            gui.setVisible(true);
+        });
     }
 }
@@ -1,44 +1,90 @@
 package com.udacity.catpoint.security.application;
 
-import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
-import com.udacity.catpoint.security.data.SecurityRepository;
-import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.service.EventScheduler;
 import com.udacity.catpoint.security.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This is the primary JFrame for the application that contains all the top-level JPanels.
  *
  * We're not using any dependency injection framework, so this class also handles constructing
- * all our dependencies and providing them to other classes as necessary.
+ * all our dependencies and providing them to other classes as necessary. The services themselves
+ * are built in the background by {@link CatpointServices}; the window is laid out and shown right
+ * away, and the panels are added on the EDT once the services they need are ready.
  */
 public class CatpointGui extends JFrame {
-    private SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-    private FakeImageService imageService = new FakeImageService();
-    private SecurityService securityService = new SecurityService(securityRepository, imageService);
-    private DisplayPanel displayPanel = new DisplayPanel(securityService);
-
-    private SensorPanel sensorPanel = new SensorPanel(securityService);
-
-    private ControlPanel controlPanel = new ControlPanel(securityService, sensorPanel);
-    private ImagePanel imagePanel = new ImagePanel(securityService);
+    private final JPanel mainPanel;
+    private final JLabel statusLabel = new JLabel("Loading...");
+    private SecurityService securityService;
+    private DisplayPanel displayPanel;
+    private SensorPanel sensorPanel;
+    private ControlPanel controlPanel;
+    private ImagePanel imagePanel;
+    //only touched on the EDT
+    private boolean attached;
 
     public CatpointGui() {
+        this(CatpointServices.start());
+    }
+
+    public CatpointGui(CatpointServices services) {
         setLocation(100, 100);
         setSize(600, 850);
         setTitle("Very Secure App");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        JPanel mainPanel = new JPanel();
+        mainPanel = new JPanel();
         mainPanel.setLayout(new MigLayout());
+        mainPanel.add(statusLabel);
+        getContentPane().add(mainPanel);
+
+        //never wait for the services on the EDT, the window has to stay responsive while they load
+        CompletableFuture.allOf(services.securityServiceReady(), services.eventSchedulerReady(), services.frameArchiveReady(),
+                        services.detectorsReady())
+                .whenCompleteAsync((ready, failure) -> {
+                    if (failure == null) {
+                        attach(services);
+                    } else {
+                        statusLabel.setText("Unable to start: " + failure.getMessage());
+                        StartupTimer.startupFailed(failure);
+                    }
+                }, SwingUtilities::invokeLater);
+    }
+
+    //the futures have all completed by now, so join() returns straight away
+    private void attach(CatpointServices services) {
+        securityService = services.securityServiceReady().join();
+        EventScheduler scheduler = services.eventSchedulerReady().join();
+        displayPanel = new DisplayPanel(securityService);
+        sensorPanel = new SensorPanel(securityService, scheduler);
+        controlPanel = new ControlPanel(securityService, scheduler, sensorPanel);
+        imagePanel = new ImagePanel(securityService, scheduler, services.frameArchiveReady().join(),
+                services.detectorsReady().join());
+
+        mainPanel.removeAll();
         mainPanel.add(displayPanel, "wrap");
         mainPanel.add(imagePanel, "wrap");
         mainPanel.add(controlPanel, "wrap");
         mainPanel.add(sensorPanel);
+        mainPanel.revalidate();
+        mainPanel.repaint();
+        attached = true;
+        //repaint() has already queued painting the panels, so this runs once they are on screen
+        if (isShowing()) {
+            SwingUtilities.invokeLater(StartupTimer::firstFramePainted);
+        }
+    }
 
-        getContentPane().add(mainPanel);
-
+    //the loading placeholder doesn't count as the first frame; covers a window shown after attach()
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (attached) {
+            StartupTimer.firstFramePainted();
+        }
     }
 }
@@ -0,0 +1,156 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.image.service.SharedDetectionService;
+import com.udacity.catpoint.security.archive.FrameArchive;
+import com.udacity.catpoint.security.audit.AuditLog;
+import com.udacity.catpoint.security.data.JdbcSecurityRepository;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.service.DetectionPolicy;
+import com.udacity.catpoint.security.service.EventScheduler;
+import com.udacity.catpoint.security.service.PluggableImageService;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds the application's services on background threads. Loading the stored repository state
+ * and constructing the image service can then overlap with Swing building the window. Each
+ * service is exposed as a future that completes once it is ready.
+ */
+public class CatpointServices {
+
+    /**
+     * JDBC URL of a database to store state in, for example jdbc:h2:~/catpoint. Without it,
+     * state is kept in user preferences.
+     */
+    public static final String JDBC_URL_PROPERTY = "catpoint.jdbc.url";
+    /**
+     * Directory to archive camera frames in, so the frames around an alarm are kept for review.
+     */
+    public static final String ARCHIVE_DIR_PROPERTY = "catpoint.archive.dir";
+    /**
+     * Directory to write the audit log of every state change and detection result in.
+     */
+    public static final String AUDIT_DIR_PROPERTY = "catpoint.audit.dir";
+    private static final Duration ARCHIVE_WINDOW = Duration.ofSeconds(30);
+
+    private final CompletableFuture<SecurityRepository> securityRepository;
+    private final CompletableFuture<PluggableImageService> detectors;
+    private final CompletableFuture<SharedDetectionService> imageService;
+    private final CompletableFuture<SecurityService> securityService;
+    private final CompletableFuture<EventScheduler> eventScheduler;
+    private final CompletableFuture<FrameArchive> frameArchive;
+    private final CompletableFuture<AuditLog> auditLog;
+
+    private CatpointServices(ExecutorService executor) {
+        securityRepository = CompletableFuture.supplyAsync(CatpointServices::createRepository, executor);
+        detectors = CompletableFuture.supplyAsync(PluggableImageService::fromSystemProperties, executor);
+        imageService = detectors.thenApply(SharedDetectionService::new);
+        securityService = securityRepository.thenCombine(imageService,
+                (repository, images) -> new SecurityService(repository, images, DetectionPolicy.armingAware()));
+        eventScheduler = securityService.thenApply(EventScheduler::new);
+        frameArchive = securityService.thenApplyAsync(CatpointServices::createFrameArchive, executor);
+        auditLog = securityService.thenCombineAsync(imageService, CatpointServices::createAuditLog, executor);
+    }
+
+    /**
+     * Starts building every service in the background and returns immediately.
+     */
+    public static CatpointServices start() {
+        ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "catpoint-startup");
+            t.setDaemon(true);
+            return t;
+        });
+        CatpointServices services = new CatpointServices(executor);
+        CompletableFuture.allOf(services.frameArchive, services.auditLog).whenComplete((s, e) -> executor.shutdown());
+        return services;
+    }
+
+    private static SecurityRepository createRepository() {
+        String url = System.getProperty(JDBC_URL_PROPERTY);
+        return url == null ? new PretendDatabaseSecurityRepositoryImpl() : new JdbcSecurityRepository(url);
+    }
+
+    private static FrameArchive createFrameArchive(SecurityService securityService) {
+        String directory = System.getProperty(ARCHIVE_DIR_PROPERTY);
+        if (directory == null) {
+            return null;
+        }
+        try {
+            FrameArchive archive = new FrameArchive(Paths.get(directory), ARCHIVE_WINDOW);
+            archive.subscribeTo(securityService.getEventPublisher());
+            return archive;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static AuditLog createAuditLog(SecurityService securityService, SharedDetectionService imageService) {
+        String directory = System.getProperty(AUDIT_DIR_PROPERTY);
+        if (directory == null) {
+            return null;
+        }
+        try {
+            AuditLog audit = new AuditLog(Paths.get(directory));
+            securityService.setAuditLog(audit);
+            imageService.addDetectionListener(audit);
+            return audit;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public CompletableFuture<SecurityRepository> securityRepositoryReady() {
+        return securityRepository;
+    }
+
+    /**
+     * The image service the security service uses. Register a listener on it to receive the full
+     * result of every analysed frame without analysing it again.
+     */
+    public CompletableFuture<SharedDetectionService> imageServiceReady() {
+        return imageService;
+    }
+
+    /**
+     * The detector behind the image service, chosen with {@value PluggableImageService#PROVIDER_PROPERTY}.
+     * It can be switched or shadowed while the application runs.
+     */
+    public CompletableFuture<PluggableImageService> detectorsReady() {
+        return detectors;
+    }
+
+    public CompletableFuture<SecurityService> securityServiceReady() {
+        return securityService;
+    }
+
+    /**
+     * Runs sensor, arming and image work off the caller's thread, so the user interface never
+     * waits for a slow classification and sensor events never queue behind one.
+     */
+    public CompletableFuture<EventScheduler> eventSchedulerReady() {
+        return eventScheduler;
+    }
+
+    /**
+     * Completes with null when frame archiving isn't configured.
+     */
+    public CompletableFuture<FrameArchive> frameArchiveReady() {
+        return frameArchive;
+    }
+
+    /**
+     * Completes with null when the audit log isn't configured.
+     */
+    public CompletableFuture<AuditLog> auditLogReady() {
+        return auditLog;
+    }
+}
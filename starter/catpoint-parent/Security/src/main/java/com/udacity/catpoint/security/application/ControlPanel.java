@@ -1,6 +1,7 @@
 package com.udacity.catpoint.security.application;
 
 import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.service.EventScheduler;
 import com.udacity.catpoint.security.service.SecurityService;
 import com.udacity.catpoint.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
@@ -21,7 +22,10 @@ public class ControlPanel extends JPanel {
     private SensorPanel sPanel;
 
 
-    public ControlPanel(SecurityService securityService, SensorPanel sPanel) {
+    /**
+     * @param scheduler Applies arming changes on its alarm lane, off the event dispatch thread
+     */
+    public ControlPanel(SecurityService securityService, EventScheduler scheduler, SensorPanel sPanel) {
         super();
         setLayout(new MigLayout());
 
@@ -40,9 +44,9 @@ public class ControlPanel extends JPanel {
         //add an action listener to each button that applies its arming status and recolors all the buttons
         buttonMap.forEach((k, v) -> {
             v.addActionListener(e -> {
-                securityService.setArmingStatus(k);
                 buttonMap.forEach((status, button) -> button.setBackground(status == k ? status.getColor() : null));
-                sPanel.sensorStatusChanged();
+                //arming resets the sensors, so redraw them once it has been applied
+                scheduler.setArmingStatus(k).thenRunAsync(sPanel::sensorStatusChanged, SwingUtilities::invokeLater);
             });
         });
 
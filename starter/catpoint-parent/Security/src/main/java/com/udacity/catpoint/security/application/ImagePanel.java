@@ -1,6 +1,10 @@
 package com.udacity.catpoint.security.application;
 
+import com.udacity.catpoint.security.archive.FrameArchive;
 import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.service.DetectionPolicy;
+import com.udacity.catpoint.security.service.EventScheduler;
+import com.udacity.catpoint.security.service.PluggableImageService;
 import com.udacity.catpoint.security.service.SecurityService;
 import com.udacity.catpoint.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
@@ -9,35 +13,61 @@ import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 
 /** Panel containing the 'camera' output. Allows users to 'refresh' the camera
  * by uploading their own picture, and 'scan' the picture, sending it for image analysis
  */
 public class ImagePanel extends JPanel implements StatusListener {
     private SecurityService securityService;
+    private EventScheduler scheduler;
+    private FrameArchive frameArchive;
 
     private JLabel cameraHeader;
-    private JLabel cameraLabel;
+    private CameraView cameraView;
     private BufferedImage currentCameraImage;
+    private ByteBuffer currentCameraFrame; //encoded bytes of currentCameraImage, for the archive
 
     private int IMAGE_WIDTH = 300;
     private int IMAGE_HEIGHT = 225;
 
-    public ImagePanel(SecurityService securityService) {
+    /**
+     * @param scheduler Classifies scanned pictures on its image lane, off the event dispatch thread
+     */
+    public ImagePanel(SecurityService securityService, EventScheduler scheduler) {
+        this(securityService, scheduler, null);
+    }
+
+    /**
+     * @param frameArchive Receives every scanned picture, or null to not archive
+     */
+    public ImagePanel(SecurityService securityService, EventScheduler scheduler, FrameArchive frameArchive) {
+        this(securityService, scheduler, frameArchive, null);
+    }
+
+    /**
+     * @param frameArchive Receives every scanned picture, or null to not archive
+     * @param detectors Offers a choice of detector when given, or null to not offer one
+     */
+    public ImagePanel(SecurityService securityService, EventScheduler scheduler, FrameArchive frameArchive,
+                      PluggableImageService detectors) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
+        this.scheduler = scheduler;
+        this.frameArchive = frameArchive;
         securityService.addStatusListener(this);
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
 
-        cameraLabel = new JLabel();
-        cameraLabel.setBackground(Color.WHITE);
-        cameraLabel.setPreferredSize(new Dimension(IMAGE_WIDTH, IMAGE_HEIGHT));
-        cameraLabel.setBorder(BorderFactory.createLineBorder(Color.DARK_GRAY));
+        cameraView = new CameraView(IMAGE_WIDTH, IMAGE_HEIGHT);
+        cameraView.setBackground(Color.WHITE);
+        cameraView.setBorder(BorderFactory.createLineBorder(Color.DARK_GRAY));
 
         //button allowing users to select a file to be the current camera image
         JButton addPictureButton = new JButton("Refresh Camera");
@@ -50,25 +80,43 @@ public class ImagePanel extends JPanel implements StatusListener {
                 return;
             }
             try {
-                currentCameraImage = ImageIO.read(chooser.getSelectedFile());
-                Image tmp = new ImageIcon(currentCameraImage).getImage();
-                cameraLabel.setIcon(new ImageIcon(tmp.getScaledInstance(IMAGE_WIDTH, IMAGE_HEIGHT, Image.SCALE_SMOOTH)));
+                byte[] encoded = Files.readAllBytes(chooser.getSelectedFile().toPath());
+                currentCameraImage = ImageIO.read(new ByteArrayInputStream(encoded));
+                currentCameraFrame = ByteBuffer.wrap(encoded);
+                cameraView.setFrame(currentCameraImage);
             } catch (IOException |NullPointerException ioe) {
                 JOptionPane.showMessageDialog(null, "Invalid image selected.");
             }
-            repaint();
         });
 
         //button that sends the image to the image service
         JButton scanPictureButton = new JButton("Scan Picture");
         scanPictureButton.addActionListener(e -> {
-            securityService.processImage(currentCameraImage);
+            if (frameArchive != null && currentCameraFrame != null) {
+                frameArchive.archive(DetectionPolicy.DEFAULT_CAMERA, currentCameraFrame, System.currentTimeMillis());
+            }
+            //a frame shed while the image lane is full needs no handling, the next scan replaces it
+            scheduler.processImage(currentCameraImage);
         });
 
         add(cameraHeader, "span 3, wrap");
-        add(cameraLabel, "span 3, wrap");
+        add(cameraView, "span 3, wrap");
         add(addPictureButton);
         add(scanPictureButton);
+
+        if (detectors != null) {
+            JComboBox<String> detectorDropdown = new JComboBox<>(PluggableImageService.availableProviders().toArray(new String[0]));
+            detectorDropdown.setSelectedItem(detectors.getActiveName());
+            detectorDropdown.addActionListener(e -> {
+                try {
+                    detectors.use((String) detectorDropdown.getSelectedItem());
+                } catch (RuntimeException re) {
+                    JOptionPane.showMessageDialog(null, "Unable to switch detector: " + re.getMessage());
+                    detectorDropdown.setSelectedItem(detectors.getActiveName());
+                }
+            });
+            add(detectorDropdown);
+        }
     }
 
     @Override
@@ -78,6 +126,11 @@ public class ImagePanel extends JPanel implements StatusListener {
 
     @Override
     public void catDetected(boolean catDetected) {
+        //verdicts arrive on the scheduler's image lane
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> catDetected(catDetected));
+            return;
+        }
         if(catDetected) {
             cameraHeader.setText("DANGER - CAT DETECTED");
         } else {
@@ -3,6 +3,7 @@ package com.udacity.catpoint.security.application;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.Sensor;
 import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.EventScheduler;
 import com.udacity.catpoint.security.service.SecurityService;
 import com.udacity.catpoint.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
@@ -16,6 +17,7 @@ import javax.swing.*;
 public class SensorPanel extends JPanel implements StatusListener {
 
     private SecurityService securityService;
+    private EventScheduler scheduler;
 
     private JLabel panelLabel = new JLabel("Sensor Management");
     private JLabel newSensorName = new JLabel("Name:");
@@ -27,10 +29,14 @@ public class SensorPanel extends JPanel implements StatusListener {
     private JPanel sensorListPanel;
     private JPanel newSensorPanel;
 
-    public SensorPanel(SecurityService securityService) {
+    /**
+     * @param scheduler Applies activation changes on its alarm lane, off the event dispatch thread
+     */
+    public SensorPanel(SecurityService securityService, EventScheduler scheduler) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
+        this.scheduler = scheduler;
 
         panelLabel.setFont(StyleService.HEADING_FONT);
         addNewSensorButton.addActionListener(e ->
@@ -88,13 +94,13 @@ public class SensorPanel extends JPanel implements StatusListener {
     }
 
     /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
+     * Asks the scheduler to change a sensor activation status and rebuilds the current sensor list once it has
      * @param sensor The sensor to update
      * @param isActive The sensor's activation status
      */
     private void setSensorActivity(Sensor sensor, Boolean isActive) {
-        securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+        scheduler.changeSensorActivationStatus(sensor, isActive)
+                .thenRunAsync(() -> updateSensorList(sensorListPanel), SwingUtilities::invokeLater);
     }
 
     /**
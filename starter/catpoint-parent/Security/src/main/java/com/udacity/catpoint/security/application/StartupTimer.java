@@ -0,0 +1,51 @@
+package com.udacity.catpoint.security.application;
+
+import javax.swing.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures time-to-first-frame: the time from JVM start until the main window is first painted
+ * with its real panels, after the services behind them have loaded. The "Loading..." placeholder
+ * shown before that doesn't count. The result is printed when either system property below is set.
+ */
+public final class StartupTimer {
+
+    /**
+     * Print time-to-first-frame to standard out.
+     */
+    public static final String REPORT_PROPERTY = "catpoint.startup.report";
+    /**
+     * Print time-to-first-frame and exit. Used by the startup benchmark and for AppCDS training runs.
+     */
+    public static final String EXIT_PROPERTY = "catpoint.startup.exitAfterFirstFrame";
+    public static final String REPORT_PREFIX = "time-to-first-frame=";
+
+    private static final AtomicBoolean firstFrameSeen = new AtomicBoolean();
+
+    private StartupTimer() {
+    }
+
+    static void firstFramePainted() {
+        if (!firstFrameSeen.compareAndSet(false, true)) {
+            return;
+        }
+        boolean exit = Boolean.getBoolean(EXIT_PROPERTY);
+        if (!exit && !Boolean.getBoolean(REPORT_PROPERTY)) {
+            return;
+        }
+        long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println(REPORT_PREFIX + millis + "ms");
+        if (exit) {
+            SwingUtilities.invokeLater(() -> System.exit(0));
+        }
+    }
+
+    //without this a training run whose services fail to load would wait for a frame forever
+    static void startupFailed(Throwable failure) {
+        if (Boolean.getBoolean(EXIT_PROPERTY)) {
+            failure.printStackTrace();
+            SwingUtilities.invokeLater(() -> System.exit(1));
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.udacity.catpoint.security.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * One camera's frames. Distinct frame contents ("blobs") are appended to a memory-mapped file
+ * that wraps around when full, overwriting the oldest blobs. A separate ring of frame records
+ * points at the blobs, so a camera that keeps sending the same picture only stores it once.
+ * Blobs are identified by their SHA-256 hash and found through an open-addressing table keyed by
+ * it. All bookkeeping uses preallocated arrays, so appending a frame doesn't allocate.
+ *
+ * Frames that belong to an incident are copied out under the lock and written to disk by the
+ * archive's writer thread, so cameras never wait for the incident files.
+ */
+class CameraRing {
+
+    private static final Logger log = LoggerFactory.getLogger(CameraRing.class);
+    private static final int HASH_LONGS = 4;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String cameraId;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final long windowMillis;
+    private final Executor writer;
+    private final MessageDigest digest;
+    private final byte[] hashBytes = new byte[HASH_LONGS * Long.BYTES];
+    private final long[] hash = new long[HASH_LONGS];
+
+    //blob ring, indexed by sequence % capacity
+    private final int[] blobOffset;
+    private final int[] blobLength;
+    private final long[] blobHash;
+    //incident each blob was last copied to, so an incident gets every blob once
+    private final int[] blobIncident;
+    private long blobHead;
+    private long blobTail;
+    private int writePosition;
+
+    //blob sequence numbers by hash, -1 when empty; holds exactly the blobs still in the ring
+    private final long[] index;
+    private final int indexMask;
+
+    //frame ring, indexed the same way
+    private final long[] frameTime;
+    private final long[] frameBlob;
+    private long frameHead;
+    private long frameTail;
+
+    //incident still collecting post-alarm frames
+    private Path incident;
+    private long persistUntilMillis;
+    private int incidentNumber;
+
+    /**
+     * @param writer Runs the incident writes; must run them in order
+     */
+    CameraRing(String cameraId, Path file, int capacityBytes, int maxFrames, long windowMillis, Executor writer)
+            throws IOException {
+        this.cameraId = cameraId;
+        this.windowMillis = windowMillis;
+        this.writer = writer;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        blobOffset = new int[maxFrames];
+        blobLength = new int[maxFrames];
+        blobHash = new long[maxFrames * HASH_LONGS];
+        blobIncident = new int[maxFrames];
+        //at most half full, so probe runs stay short
+        index = new long[Integer.highestOneBit(Math.max(1, maxFrames * 2 - 1)) << 1];
+        Arrays.fill(index, -1);
+        indexMask = index.length - 1;
+        frameTime = new long[maxFrames];
+        frameBlob = new long[maxFrames];
+    }
+
+    synchronized void append(ByteBuffer frame, long timestampMillis) throws IOException {
+        int length = frame.remaining();
+        if (length > mapped.capacity()) {
+            throw new IOException("Frame of " + length + " bytes does not fit the " + mapped.capacity() + " byte ring");
+        }
+        int start = frame.position();
+        digest.update(frame);
+        frame.position(start);
+        try {
+            digest.digest(hashBytes, 0, hashBytes.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+        for (int i = 0; i < HASH_LONGS; i++) {
+            long value = 0;
+            for (int b = 0; b < Long.BYTES; b++) {
+                value = (value << 8) | (hashBytes[i * Long.BYTES + b] & 0xFF);
+            }
+            hash[i] = value;
+        }
+
+        long blob = findBlob(length);
+        if (blob < 0) {
+            blob = storeBlob(frame, length);
+        }
+
+        expireFrames(timestampMillis);
+        if (frameTail - frameHead == frameTime.length) {
+            frameHead++;
+        }
+        int slot = (int) (frameTail % frameTime.length);
+        frameTime[slot] = timestampMillis;
+        frameBlob[slot] = blob;
+        frameTail++;
+
+        if (incident != null) {
+            if (timestampMillis <= persistUntilMillis) {
+                persist(incident, timestampMillis, blob);
+            } else {
+                incident = null;
+            }
+        }
+    }
+
+    /**
+     * Writes the frames taken since {@code fromMillis} to the incident directory and keeps
+     * writing new frames up to {@code untilMillis}.
+     */
+    synchronized void freeze(Path incidentDirectory, long fromMillis, long untilMillis) {
+        incidentNumber++;
+        for (long frame = frameHead; frame < frameTail; frame++) {
+            int slot = (int) (frame % frameTime.length);
+            if (frameTime[slot] >= fromMillis && frameTime[slot] <= untilMillis && frameBlob[slot] >= blobHead) {
+                persist(incidentDirectory, frameTime[slot], frameBlob[slot]);
+            }
+        }
+        incident = incidentDirectory;
+        persistUntilMillis = untilMillis;
+    }
+
+    synchronized int getFrameCount() {
+        int count = 0;
+        for (long frame = frameHead; frame < frameTail; frame++) {
+            if (frameBlob[(int) (frame % frameTime.length)] >= blobHead) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    synchronized int getBlobCount() {
+        return (int) (blobTail - blobHead);
+    }
+
+    synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private long findBlob(int length) {
+        for (int i = home(hash[0]); ; i = (i + 1) & indexMask) {
+            long blob = index[i];
+            if (blob < 0) {
+                return -1;
+            }
+            int slot = (int) (blob % blobOffset.length);
+            if (blobLength[slot] == length && blobHash[slot * HASH_LONGS] == hash[0]
+                    && blobHash[slot * HASH_LONGS + 1] == hash[1] && blobHash[slot * HASH_LONGS + 2] == hash[2]
+                    && blobHash[slot * HASH_LONGS + 3] == hash[3]) {
+                return blob;
+            }
+        }
+    }
+
+    //the hash is already uniformly distributed, its low bits make a fine table position
+    private int home(long hash) {
+        return (int) hash & indexMask;
+    }
+
+    private void indexBlob(long blob) {
+        int i = home(blobHash[(int) (blob % blobOffset.length) * HASH_LONGS]);
+        while (index[i] >= 0) {
+            i = (i + 1) & indexMask;
+        }
+        index[i] = blob;
+    }
+
+    //drops the oldest blob; must run before its slot is reused, since the table is keyed by the slot's hash
+    private void evictBlob() {
+        long blob = blobHead++;
+        int hole = home(blobHash[(int) (blob % blobOffset.length) * HASH_LONGS]);
+        while (index[hole] != blob) {
+            hole = (hole + 1) & indexMask;
+        }
+        //pull later entries of the probe run back into the hole, so lookups never stop short of them
+        for (int i = (hole + 1) & indexMask; index[i] >= 0; i = (i + 1) & indexMask) {
+            int entryHome = home(blobHash[(int) (index[i] % blobOffset.length) * HASH_LONGS]);
+            if (((i - entryHome) & indexMask) >= ((i - hole) & indexMask)) {
+                index[hole] = index[i];
+                hole = i;
+            }
+        }
+        index[hole] = -1;
+    }
+
+    private long storeBlob(ByteBuffer frame, int length) {
+        if (writePosition + length > mapped.capacity()) {
+            //blobs never straddle the end; everything left past the write position is from the previous lap
+            while (blobHead < blobTail && blobOffset[(int) (blobHead % blobOffset.length)] >= writePosition) {
+                evictBlob();
+            }
+            writePosition = 0;
+        }
+        //blobs from the previous lap start at the write position, drop the ones we are about to overwrite
+        while (blobHead < blobTail) {
+            int offset = blobOffset[(int) (blobHead % blobOffset.length)];
+            if (offset < writePosition || offset >= writePosition + length) {
+                break;
+            }
+            evictBlob();
+        }
+        if (blobTail - blobHead == blobOffset.length) {
+            evictBlob();
+        }
+
+        int start = frame.position();
+        mapped.position(writePosition);
+        mapped.put(frame);
+        frame.position(start);
+
+        int slot = (int) (blobTail % blobOffset.length);
+        blobOffset[slot] = writePosition;
+        blobLength[slot] = length;
+        System.arraycopy(hash, 0, blobHash, slot * HASH_LONGS, HASH_LONGS);
+        blobIncident[slot] = 0;
+        writePosition += length;
+        indexBlob(blobTail);
+        return blobTail++;
+    }
+
+    private void expireFrames(long nowMillis) {
+        while (frameHead < frameTail) {
+            int slot = (int) (frameHead % frameTime.length);
+            if (frameTime[slot] >= nowMillis - windowMillis && frameBlob[slot] >= blobHead) {
+                return;
+            }
+            frameHead++;
+        }
+    }
+
+    //copies what the writer needs while the blob is still in the ring; the mapped file may be overwritten later
+    private void persist(Path incidentDirectory, long timestampMillis, long blob) {
+        int slot = (int) (blob % blobOffset.length);
+        byte[] contents = null;
+        if (blobIncident[slot] != incidentNumber) {
+            blobIncident[slot] = incidentNumber;
+            contents = new byte[blobLength[slot]];
+            mapped.get(blobOffset[slot], contents);
+        }
+        long[] blobName = Arrays.copyOfRange(blobHash, slot * HASH_LONGS, (slot + 1) * HASH_LONGS);
+        byte[] blobContents = contents;
+        writer.execute(() -> write(incidentDirectory, timestampMillis, blobName, blobContents));
+    }
+
+    /**
+     * Runs on the writer thread.
+     * @param contents Blob bytes, or null if an earlier write for this incident already has them
+     */
+    private void write(Path incidentDirectory, long timestampMillis, long[] blobName, byte[] contents) {
+        String name = hashName(blobName);
+        try {
+            Path blobFile = incidentDirectory.resolve(name + ".bin");
+            if (contents != null && !Files.exists(blobFile)) {
+                Files.write(blobFile, contents, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            String manifest = cameraId.replaceAll("[^A-Za-z0-9_-]", "_") + ".frames";
+            Files.write(incidentDirectory.resolve(manifest), (timestampMillis + " " + name + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Could not persist frame from camera {} to {}", cameraId, incidentDirectory, e);
+        }
+    }
+
+    private static String hashName(long[] hash) {
+        char[] name = new char[HASH_LONGS * 16];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = HEX[(int) (hash[i / 16] >>> (60 - (i % 16) * 4)) & 0xF];
+        }
+        return new String(name);
+    }
+}
@@ -0,0 +1,214 @@
+package com.udacity.catpoint.security.archive;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.service.SecurityEvent;
+import com.udacity.catpoint.security.service.SecurityEventPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the most recent encoded frames of every camera so the frames around an alarm can be
+ * reviewed afterwards. Each camera gets a {@link CameraRing}: a memory-mapped file that frames
+ * are appended to, with identical frames stored only once. Attach the archive to
+ * {@link com.udacity.catpoint.security.service.SecurityService#getEventPublisher()} with
+ * {@link #subscribeTo(SecurityEventPublisher)} and every transition to {@link AlarmStatus#ALARM} freezes the window before the alarm into
+ * {@code incidents/<alarm time>/} under the archive directory. Frames archived during the
+ * post-alarm window are added to the same incident. Incident files are written by a single
+ * background thread, so neither cameras nor the event feed wait for the disk. If the archive
+ * falls out of the feed's replay buffer, for example while arming resets a large number of
+ * sensors, it resubscribes and replays whatever is still buffered.
+ */
+public class FrameArchive implements Flow.Subscriber<SecurityEvent>, AutoCloseable {
+
+    public static final int DEFAULT_BYTES_PER_CAMERA = 64 * 1024 * 1024;
+    public static final int DEFAULT_FRAMES_PER_CAMERA = 4096;
+
+    private static final Logger log = LoggerFactory.getLogger(FrameArchive.class);
+
+    private final Path directory;
+    private final long windowMillis;
+    private final long postAlarmMillis;
+    private final int bytesPerCamera;
+    private final int framesPerCamera;
+    private final Map<String, CameraRing> rings = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "frame-archive-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile AlarmStatus lastAlarmStatus;
+    private volatile SecurityEventPublisher publisher;
+    //last event handled, so events replayed after resubscribing aren't handled twice
+    private volatile long lastSequence;
+    private volatile long resubscribes;
+
+    /**
+     * Keeps {@code window} worth of frames per camera and persists the same amount after an alarm.
+     */
+    public FrameArchive(Path directory, Duration window) throws IOException {
+        this(directory, window, window, DEFAULT_BYTES_PER_CAMERA, DEFAULT_FRAMES_PER_CAMERA);
+    }
+
+    /**
+     * @param directory Holds the ring files and persisted incidents
+     * @param window How far back frames are kept
+     * @param postAlarm How long after an alarm new frames are still added to the incident
+     * @param bytesPerCamera Size of each camera's ring file. Older frames are dropped early if it fills up
+     * @param framesPerCamera Maximum number of frames kept per camera
+     */
+    public FrameArchive(Path directory, Duration window, Duration postAlarm, int bytesPerCamera, int framesPerCamera)
+            throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.windowMillis = window.toMillis();
+        this.postAlarmMillis = postAlarm.toMillis();
+        this.bytesPerCamera = bytesPerCamera;
+        this.framesPerCamera = framesPerCamera;
+    }
+
+    /**
+     * Appends an encoded frame, for example the bytes of a JPEG. The bytes are copied straight
+     * from the buffer into the mapped file, and the buffer's position is left unchanged.
+     * Failures are logged rather than thrown so archiving never interrupts detection.
+     */
+    public void archive(String cameraId, ByteBuffer encodedFrame, long timestampMillis) {
+        try {
+            ring(cameraId).append(encodedFrame, timestampMillis);
+        } catch (IOException e) {
+            log.warn("Could not archive frame from camera {}", cameraId, e);
+        }
+    }
+
+    /**
+     * Persists every camera's frames from the last window before the given time, and keeps
+     * adding new frames until the post-alarm window has passed. The files are written in the
+     * background; {@link #close()} waits for them.
+     * @return the incident directory
+     */
+    public Path freeze(long alarmMillis) throws IOException {
+        Path incident = Files.createDirectories(directory.resolve("incidents").resolve(Long.toString(alarmMillis)));
+        for (CameraRing ring : rings.values()) {
+            ring.freeze(incident, alarmMillis - windowMillis, alarmMillis + postAlarmMillis);
+        }
+        log.info("Archived frames around alarm to {}", incident);
+        return incident;
+    }
+
+    /**
+     * Number of frames currently held for the camera.
+     */
+    public int getFrameCount(String cameraId) {
+        CameraRing ring = rings.get(cameraId);
+        return ring == null ? 0 : ring.getFrameCount();
+    }
+
+    /**
+     * Number of distinct frame contents currently held for the camera.
+     */
+    public int getStoredFrameCount(String cameraId) {
+        CameraRing ring = rings.get(cameraId);
+        return ring == null ? 0 : ring.getBlobCount();
+    }
+
+    /**
+     * Subscribes to the feed starting with the next event, and resubscribes whenever it overruns.
+     */
+    public void subscribeTo(SecurityEventPublisher publisher) {
+        this.publisher = publisher;
+        publisher.subscribe(this);
+    }
+
+    /**
+     * Number of times the archive fell out of the event feed's replay buffer and resubscribed.
+     */
+    public long getResubscribeCount() {
+        return resubscribes;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(SecurityEvent event) {
+        if (event.getSequence() <= lastSequence) {
+            return;
+        }
+        lastSequence = event.getSequence();
+        if (event.getType() != SecurityEvent.Type.ALARM_STATUS) {
+            return;
+        }
+        AlarmStatus previous = lastAlarmStatus;
+        lastAlarmStatus = event.getAlarmStatus();
+        if (event.getAlarmStatus() == AlarmStatus.ALARM && previous != AlarmStatus.ALARM) {
+            try {
+                freeze(event.getTimestampMillis());
+            } catch (IOException e) {
+                log.error("Could not persist frames for alarm at {}", event.getTimestampMillis(), e);
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        SecurityEventPublisher current = publisher;
+        if (current == null) {
+            log.warn("Security event feed failed, alarms will no longer freeze frames", throwable);
+            return;
+        }
+        //an alarm among the events that were overwritten is lost, anything still buffered is replayed
+        long from = Math.max(lastSequence + 1, current.getOldestSequence());
+        log.warn("Fell behind the security event feed, resubscribing from event {}", from, throwable);
+        resubscribes++;
+        current.subscribe(this, from);
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Gave up waiting for incident files to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (CameraRing ring : rings.values()) {
+            ring.close();
+        }
+        rings.clear();
+    }
+
+    private CameraRing ring(String cameraId) throws IOException {
+        CameraRing ring = rings.get(cameraId);
+        if (ring != null) {
+            return ring;
+        }
+        synchronized (rings) {
+            ring = rings.get(cameraId);
+            if (ring == null) {
+                String fileName = "ring-" + cameraId.replaceAll("[^A-Za-z0-9_-]", "_") + ".dat";
+                ring = new CameraRing(cameraId, directory.resolve(fileName), bytesPerCamera, framesPerCamera, windowMillis,
+                        writer);
+                rings.put(cameraId, ring);
+            }
+            return ring;
+        }
+    }
+}
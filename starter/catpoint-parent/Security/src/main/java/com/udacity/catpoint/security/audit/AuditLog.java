@@ -0,0 +1,458 @@
+package com.udacity.catpoint.security.audit;
+
+import com.udacity.catpoint.image.service.DetectionListener;
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.service.SecurityEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured audit trail of everything the security system did, written as one compact JSON
+ * object per line to a rolling set of files.
+ *
+ * Recording an entry copies a few fields into a preallocated slot of a ring buffer and returns:
+ * no formatting, no allocation and no I/O happen on the caller's thread. A background thread
+ * encodes whole batches and appends them to {@code audit.log}, which is rolled over to
+ * {@code audit.1.log}, {@code audit.2.log} and so on when it gets too big. If the writer falls
+ * so far behind that the ring is full, new entries are dropped and counted rather than making
+ * callers wait.
+ */
+public class AuditLog implements DetectionListener, AutoCloseable {
+
+    public static final String FILE_NAME = "audit.log";
+    public static final int DEFAULT_CAPACITY = 16384;
+    public static final long DEFAULT_MAX_FILE_BYTES = 16L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+    private static final long FLUSH_POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    //empty polls the writer spins through before it parks until the next entry is recorded
+    private static final int IDLE_SPINS = 100;
+    //entries encoded per write, about 100KB
+    private static final int MAX_BATCH = 1024;
+    private static final int MAX_LABELS = 5;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Entry[] ring;
+    private final int mask;
+    //next sequence to claim, the first slot the writer hasn't copied out yet, and the first
+    //entry not yet on disk
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+    //set while the writer is parked with nothing to do, so recording threads know to wake it
+    private volatile boolean parked;
+
+    //only touched by the writer thread
+    private ByteBuffer out = ByteBuffer.allocate(128 * 1024);
+    private FileChannel channel;
+    private long fileBytes;
+
+    public AuditLog(Path directory) throws IOException {
+        this(directory, DEFAULT_CAPACITY, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+    }
+
+    /**
+     * @param capacity Entries that can wait for the writer, rounded up to a power of two
+     * @param maxFileBytes Size at which the current file is rolled over
+     * @param maxFiles Rolled-over files to keep besides the current one
+     */
+    public AuditLog(Path directory, int capacity, long maxFileBytes, int maxFiles) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        ring = new Entry[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Entry();
+        }
+        mask = size - 1;
+        openFile();
+        writer = new Thread(this::writeLoop, "audit-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records a security state change. Only the fields relevant to the type are written.
+     */
+    public void record(SecurityEvent.Type type, AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected,
+                       UUID sensorId, boolean sensorActive) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        Entry entry = ring[(int) sequence & mask];
+        entry.timestampMillis = System.currentTimeMillis();
+        entry.type = type;
+        entry.alarmStatus = alarmStatus;
+        entry.armingStatus = armingStatus;
+        entry.flag = type == SecurityEvent.Type.CAT_DETECTED ? catDetected : sensorActive;
+        entry.hasSensor = sensorId != null;
+        if (sensorId != null) {
+            entry.sensorMost = sensorId.getMostSignificantBits();
+            entry.sensorLeast = sensorId.getLeastSignificantBits();
+        }
+        entry.detection = null;
+        publish(entry, sequence);
+    }
+
+    /**
+     * Records a bulk add of sensors by count.
+     */
+    public void recordSensorsAdded(int count) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        Entry entry = ring[(int) sequence & mask];
+        entry.timestampMillis = System.currentTimeMillis();
+        entry.type = SecurityEvent.Type.SENSORS_ADDED;
+        entry.count = count;
+        entry.detection = null;
+        publish(entry, sequence);
+    }
+
+    /**
+     * Records a detector's result for a frame. The result is immutable, so it is kept as is and
+     * only encoded by the writer.
+     */
+    @Override
+    public void detected(BufferedImage image, DetectionResult result) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        Entry entry = ring[(int) sequence & mask];
+        entry.timestampMillis = System.currentTimeMillis();
+        entry.type = null;
+        entry.detection = result;
+        publish(entry, sequence);
+    }
+
+    /**
+     * Entries written to disk so far.
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * Entries lost because the ring was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Waits until everything recorded before this call is on disk, or the timeout passes.
+     * @return true if everything was written in time
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (written.get() < target) {
+            if (System.nanoTime() > deadline || !writer.isAlive()) {
+                return false;
+            }
+            LockSupport.parkNanos(FLUSH_POLL_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Writes out everything recorded so far and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    //returns the claimed sequence, or -1 if the ring is full
+    private long claim() {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed.get() >= ring.length) {
+                dropped.incrementAndGet();
+                return -1;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    //the writer sets parked before checking for work and this reads it after publishing, so
+    //either the writer sees the entry or this sees the writer parked and wakes it
+    private void publish(Entry entry, long sequence) {
+        entry.published = sequence;
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLoop() {
+        int idle = 0;
+        while (true) {
+            int count;
+            try {
+                count = writeBatch();
+            } catch (IOException e) {
+                log.error("Unable to write audit log, stopping", e);
+                running = false;
+                return;
+            }
+            if (count > 0) {
+                idle = 0;
+                continue;
+            }
+            if (!running && consumed.get() == claimed.get()) {
+                return;
+            }
+            //spin briefly so a steady stream never waits for a park to end, then sleep until woken
+            idle++;
+            if (idle <= IDLE_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                parked = true;
+                if (running && !hasPublished()) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+    }
+
+    private boolean hasPublished() {
+        long next = consumed.get();
+        return ring[(int) next & mask].published == next;
+    }
+
+    private int writeBatch() throws IOException {
+        long next = consumed.get();
+        int count = 0;
+        out.clear();
+        while (count < MAX_BATCH) {
+            Entry entry = ring[(int) (next + count) & mask];
+            if (entry.published != next + count) {
+                break;
+            }
+            encode(next + count, entry);
+            entry.detection = null;
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        //the entries are copied into the buffer, so recording threads can reuse their slots during the write
+        consumed.set(next + count);
+        out.flip();
+        fileBytes += out.remaining();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        if (fileBytes >= maxFileBytes) {
+            rollOver();
+        }
+        written.set(next + count);
+        return count;
+    }
+
+    //writes straight into the byte buffer, everything but label names and confidences is ASCII
+    private void encode(long sequence, Entry entry) {
+        ensureSpace(256);
+        ascii("{\"seq\":");
+        number(sequence + 1);
+        ascii(",\"ts\":");
+        number(entry.timestampMillis);
+        if (entry.type == null) {
+            ascii(",\"event\":\"DETECTION\",\"labels\":[");
+            List<DetectionResult.Label> labels = entry.detection.getLabels();
+            for (int i = 0; i < Math.min(MAX_LABELS, labels.size()); i++) {
+                DetectionResult.Label label = labels.get(i);
+                ascii(i == 0 ? "{\"name\":" : ",{\"name\":");
+                string(label.getName());
+                ascii(",\"confidence\":");
+                ascii(Float.toString(label.getConfidence()));
+                ascii(",\"instances\":");
+                number(label.getInstances().size());
+                out.put((byte) '}');
+            }
+            ascii("]}\n");
+            return;
+        }
+        ascii(",\"event\":\"");
+        ascii(entry.type.name());
+        out.put((byte) '"');
+        switch (entry.type) {
+            case ALARM_STATUS:
+                ascii(",\"alarm\":\"");
+                ascii(entry.alarmStatus.name());
+                out.put((byte) '"');
+                break;
+            case ARMING_STATUS:
+                ascii(",\"arming\":\"");
+                ascii(entry.armingStatus.name());
+                out.put((byte) '"');
+                break;
+            case CAT_DETECTED:
+                ascii(",\"cat\":");
+                ascii(entry.flag ? "true" : "false");
+                break;
+            case SENSORS_ADDED:
+                ascii(",\"count\":");
+                number(entry.count);
+                break;
+            default:
+                if (entry.hasSensor) {
+                    ascii(",\"sensor\":\"");
+                    uuid(entry.sensorMost, entry.sensorLeast);
+                    out.put((byte) '"');
+                }
+                ascii(",\"active\":");
+                ascii(entry.flag ? "true" : "false");
+        }
+        ascii("}\n");
+    }
+
+    private void ensureSpace(int bytes) {
+        if (out.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+            out.flip();
+            out = larger.put(out);
+        }
+    }
+
+    private void ascii(String value) {
+        ensureSpace(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            out.put((byte) value.charAt(i));
+        }
+    }
+
+    //sequences, timestamps and counts are never negative
+    private void number(long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureSpace(digits);
+        int end = out.position() + digits;
+        for (int i = end - 1; i >= out.position(); i--) {
+            out.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        out.position(end);
+    }
+
+    //same layout as UUID.toString, without building the string
+    private void uuid(long most, long least) {
+        ensureSpace(36);
+        hex(most >>> 32, 8);
+        out.put((byte) '-');
+        hex(most >>> 16, 4);
+        out.put((byte) '-');
+        hex(most, 4);
+        out.put((byte) '-');
+        hex(least >>> 48, 4);
+        out.put((byte) '-');
+        hex(least, 12);
+    }
+
+    private void hex(long value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            out.put(HEX[(int) (value >>> shift) & 0xf]);
+        }
+    }
+
+    private void string(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append("\\u00").append((char) HEX[c >> 4]).append((char) HEX[c & 0xf]);
+            } else {
+                escaped.append(c);
+            }
+        }
+        byte[] bytes = escaped.append('"').toString().getBytes(StandardCharsets.UTF_8);
+        ensureSpace(bytes.length);
+        out.put(bytes);
+    }
+
+    private void openFile() throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+    }
+
+    private void rollOver() throws IOException {
+        channel.close();
+        Files.deleteIfExists(rolledFile(maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            if (Files.exists(rolledFile(i))) {
+                Files.move(rolledFile(i), rolledFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(directory.resolve(FILE_NAME), rolledFile(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(directory.resolve(FILE_NAME));
+        }
+        openFile();
+    }
+
+    private Path rolledFile(int index) {
+        return directory.resolve("audit." + index + ".log");
+    }
+
+    /**
+     * One preallocated ring slot. The writer may read the plain fields once it sees the slot's
+     * sequence in {@code published}, which the recording thread writes last.
+     */
+    private static final class Entry {
+        private volatile long published = -1;
+        private long timestampMillis;
+        private SecurityEvent.Type type;
+        private AlarmStatus alarmStatus;
+        private ArmingStatus armingStatus;
+        private boolean flag;
+        private boolean hasSensor;
+        private long sensorMost;
+        private long sensorLeast;
+        private int count;
+        private DetectionResult detection;
+    }
+}
@@ -0,0 +1,211 @@
+package com.udacity.catpoint.security.dashboard;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SensorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Follows a {@link DashboardServer}: reads the snapshot and applies every delta to a local copy of
+ * the state. Also serves as the reference decoder for the protocol.
+ */
+public class DashboardClient implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardClient.class);
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private final Socket socket;
+    private final Thread reader;
+    private final Map<Integer, SensorState> sensors = new HashMap<>();
+    private final Map<UUID, SensorState> sensorsByUuid = new HashMap<>();
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+    private boolean catDetected;
+    private long tick = -1;
+    private long bytesReceived;
+    private volatile boolean connected = true;
+
+    public DashboardClient(String host, int port) throws IOException {
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port));
+        reader = new Thread(this::follow, "dashboard-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Number of the last applied delta, or -1 before the snapshot arrives.
+     */
+    public synchronized long getTick() {
+        return tick;
+    }
+
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public synchronized boolean isCatDetected() {
+        return catDetected;
+    }
+
+    public synchronized int getSensorCount() {
+        return sensors.size();
+    }
+
+    public synchronized int getActiveSensorCount() {
+        int count = 0;
+        for (SensorState sensor : sensors.values()) {
+            if (sensor.active) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the sensor's state, or null if the server doesn't know it
+     */
+    public synchronized Boolean isSensorActive(UUID sensorId) {
+        SensorState sensor = sensorsByUuid.get(sensorId);
+        return sensor == null ? null : sensor.active;
+    }
+
+    public synchronized String getSensorName(UUID sensorId) {
+        SensorState sensor = sensorsByUuid.get(sensorId);
+        return sensor == null ? null : sensor.name;
+    }
+
+    public synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void close() throws IOException {
+        connected = false;
+        socket.close();
+    }
+
+    private void follow() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (connected) {
+                int length = (int) DashboardCodec.readVarint(in);
+                byte type = in.readByte();
+                synchronized (this) {
+                    bytesReceived += length + varintSize(length);
+                    if (type == DashboardCodec.SNAPSHOT) {
+                        applySnapshot(in);
+                    } else if (type == DashboardCodec.DELTA) {
+                        applyDelta(in);
+                    } else {
+                        throw new IOException("Unknown dashboard frame type " + type);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (connected) {
+                log.warn("Lost connection to dashboard server", e);
+            }
+        } finally {
+            connected = false;
+        }
+    }
+
+    private void applySnapshot(DataInputStream in) throws IOException {
+        tick = DashboardCodec.readVarint(in);
+        alarmStatus = DashboardCodec.readOrdinal(in, ALARM_STATUSES);
+        armingStatus = DashboardCodec.readOrdinal(in, ARMING_STATUSES);
+        catDetected = in.readBoolean();
+        sensors.clear();
+        sensorsByUuid.clear();
+        long count = DashboardCodec.readVarint(in);
+        for (long i = 0; i < count; i++) {
+            readSensor(in);
+        }
+    }
+
+    private void applyDelta(DataInputStream in) throws IOException {
+        long deltaTick = DashboardCodec.readVarint(in);
+        if (deltaTick != tick + 1) {
+            throw new IOException("Expected delta " + (tick + 1) + " but got " + deltaTick);
+        }
+        tick = deltaTick;
+        int changes = in.readUnsignedByte();
+        if ((changes & DashboardCodec.ALARM_CHANGED) != 0) {
+            alarmStatus = DashboardCodec.readOrdinal(in, ALARM_STATUSES);
+        }
+        if ((changes & DashboardCodec.ARMING_CHANGED) != 0) {
+            armingStatus = DashboardCodec.readOrdinal(in, ARMING_STATUSES);
+        }
+        if ((changes & DashboardCodec.CAT_CHANGED) != 0) {
+            catDetected = in.readBoolean();
+        }
+        long added = DashboardCodec.readVarint(in);
+        for (long i = 0; i < added; i++) {
+            readSensor(in);
+        }
+        for (int id : DashboardCodec.readIds(in)) {
+            SensorState removed = sensors.remove(id);
+            if (removed != null) {
+                sensorsByUuid.remove(removed.sensorId);
+            }
+        }
+        for (int id : DashboardCodec.readIds(in)) {
+            sensors.get(id).active = true;
+        }
+        for (int id : DashboardCodec.readIds(in)) {
+            sensors.get(id).active = false;
+        }
+    }
+
+    private void readSensor(DataInputStream in) throws IOException {
+        int id = (int) DashboardCodec.readVarint(in);
+        SensorState sensor = new SensorState(new UUID(in.readLong(), in.readLong()));
+        sensor.type = DashboardCodec.readOrdinal(in, SENSOR_TYPES);
+        sensor.active = in.readBoolean();
+        sensor.name = DashboardCodec.readString(in);
+        sensor.zone = DashboardCodec.readString(in);
+        sensors.put(id, sensor);
+        sensorsByUuid.put(sensor.sensorId, sensor);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static final class SensorState {
+        private final UUID sensorId;
+        private SensorType type;
+        private String name;
+        private String zone;
+        private boolean active;
+
+        SensorState(UUID sensorId) {
+            this.sensorId = sensorId;
+        }
+    }
+}
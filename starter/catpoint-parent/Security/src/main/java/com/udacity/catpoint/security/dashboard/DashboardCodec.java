@@ -0,0 +1,117 @@
+package com.udacity.catpoint.security.dashboard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Wire format of the dashboard protocol. Every frame is {@code [varint length][byte type][payload]}.
+ * Integers are unsigned LEB128 varints, so the small sensor ids the server hands out take one or
+ * two bytes. Lists of ids are sorted and sent as gaps from the previous id, which keeps them small
+ * as well.
+ *
+ * <pre>
+ * SNAPSHOT: varint tick, byte alarm, byte arming, byte cat, varint count, count x sensor
+ * DELTA:    varint tick, byte changes, [byte alarm], [byte arming], [byte cat],
+ *           varint added, added x sensor, then removed, activated and deactivated as id lists
+ * sensor:   varint id, long uuid msb, long uuid lsb, byte type, byte active, string name, string zone
+ * id list:  varint count, count x varint gap
+ * string:   varint byte length, UTF-8 bytes
+ * </pre>
+ */
+final class DashboardCodec {
+
+    static final byte SNAPSHOT = 1;
+    static final byte DELTA = 2;
+
+    static final int ALARM_CHANGED = 1;
+    static final int ARMING_CHANGED = 2;
+    static final int CAT_CHANGED = 4;
+
+    private DashboardCodec() {
+    }
+
+    static byte[] frame(byte type, ByteArrayOutputStream payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.size() + 6);
+        writeVarint(out, payload.size() + 1);
+        out.write(type);
+        out.writeBytes(payload.toByteArray());
+        return out.toByteArray();
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static void writeIds(ByteArrayOutputStream out, int[] sortedIds, int count) {
+        writeVarint(out, count);
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarint(out, sortedIds[i] - previous);
+            previous = sortedIds[i];
+        }
+    }
+
+    static int[] readIds(DataInputStream in) throws IOException {
+        int[] ids = new int[(int) readVarint(in)];
+        int previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            previous += (int) readVarint(in);
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeUuid(ByteArrayOutputStream out, UUID id) {
+        writeLong(out, id.getMostSignificantBits());
+        writeLong(out, id.getLeastSignificantBits());
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    /**
+     * Enum ordinals are sent as a byte, with 0xFF for null.
+     */
+    static void writeOrdinal(ByteArrayOutputStream out, Enum<?> value) {
+        out.write(value == null ? 0xFF : value.ordinal());
+    }
+
+    static <E extends Enum<E>> E readOrdinal(DataInputStream in, E[] values) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        return ordinal == 0xFF ? null : values[ordinal];
+    }
+}
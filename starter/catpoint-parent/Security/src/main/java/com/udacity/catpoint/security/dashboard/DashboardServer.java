@@ -0,0 +1,563 @@
+package com.udacity.catpoint.security.dashboard;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityEvent;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the system state to remote dashboards over TCP using the compact binary format in
+ * {@link DashboardCodec}. A dashboard that connects gets one snapshot, then one delta frame per
+ * tick in which anything changed, carrying only the alarm and arming transitions and the sensors
+ * that were added, removed or switched. Each delta is encoded once and the same bytes are sent to
+ * every client, and sensors are referred to by small ids instead of UUIDs.
+ *
+ * Everything runs on one selector thread. A client that stops reading is disconnected once it
+ * has {@link #MAX_PENDING_BYTES} queued, and can reconnect for a fresh snapshot. If the server
+ * itself falls out of the event feed's replay buffer, it resubscribes and diffs against a
+ * snapshot of the service, so clients just see one larger delta.
+ */
+public class DashboardServer implements AutoCloseable {
+
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(50);
+    public static final int MAX_PENDING_BYTES = 1024 * 1024;
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardServer.class);
+
+    private final SecurityService securityService;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final long tickNanos;
+    private final Thread thread;
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final List<Client> clients = new ArrayList<>();
+    private volatile boolean closed;
+    private volatile Flow.Subscription subscription;
+
+    //events received since the last tick, and the list the last tick drained, swapped under pendingLock
+    private final Object pendingLock = new Object();
+    private List<SecurityEvent> pending = new ArrayList<>();
+    private List<SecurityEvent> draining = new ArrayList<>();
+    private volatile boolean resync;
+
+    //state as of the last tick, only touched by the selector thread
+    private final Map<UUID, Integer> ids = new HashMap<>();
+    private final TreeMap<Integer, SensorEntry> sensors = new TreeMap<>();
+    private int nextId = 1;
+    private long tick;
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+    private boolean catDetected;
+
+    //scratch space reused by every tick
+    private final Map<Integer, Boolean> activeBefore = new HashMap<>();
+    private final TreeMap<Integer, SensorEntry> added = new TreeMap<>();
+    private final ByteArrayOutputStream deltaOut = new ByteArrayOutputStream(64);
+    private int[] removed = new int[16];
+    private int[] activated = new int[16];
+    private int[] deactivated = new int[16];
+    private long resyncs;
+
+    /**
+     * Listens on the loopback interface.
+     * @param port Port to listen on, or 0 to pick a free one
+     */
+    public DashboardServer(SecurityService securityService, int port) throws IOException {
+        this(securityService, new InetSocketAddress(InetAddress.getLoopbackAddress(), port), DEFAULT_TICK);
+    }
+
+    /**
+     * @param tick How often accumulated changes are sent out as one delta
+     */
+    public DashboardServer(SecurityService securityService, InetSocketAddress address, Duration tick) throws IOException {
+        this.securityService = securityService;
+        this.tickNanos = tick.toNanos();
+        //subscribe before reading the initial state; replaying an event that's already included is harmless
+        securityService.getEventPublisher().subscribe(new EventSubscriber());
+        alarmStatus = securityService.getAlarmStatus();
+        armingStatus = securityService.getArmingStatus();
+        catDetected = securityService.isCatDetected();
+        for (Sensor sensor : securityService.getSensorSnapshot()) {
+            add(sensor.getSensorId(), sensor);
+        }
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::run, "dashboard-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public synchronized int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Total bytes written to all clients so far.
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.close();
+        selector.close();
+    }
+
+    private void run() {
+        long nextTick = System.nanoTime() + tickNanos;
+        try {
+            while (!closed) {
+                long wait = Math.max(1, (nextTick - System.nanoTime()) / 1_000_000);
+                selector.select(wait);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Client client = (Client) key.attachment();
+                        if (key.isReadable()) {
+                            client.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            client.flush();
+                        }
+                    }
+                }
+                if (System.nanoTime() - nextTick >= 0) {
+                    nextTick += tickNanos;
+                    byte[] delta;
+                    try {
+                        delta = tick();
+                    } catch (RuntimeException e) {
+                        //the state may be half applied, rebuild it from the service on the next tick
+                        log.error("Dashboard tick failed, resynchronizing", e);
+                        resync = true;
+                        continue;
+                    }
+                    if (delta != null) {
+                        for (Client client : snapshotClients()) {
+                            client.send(delta);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Dashboard server stopped", e);
+        } finally {
+            for (Client client : snapshotClients()) {
+                client.disconnect();
+            }
+        }
+    }
+
+    private synchronized List<Client> snapshotClients() {
+        return new ArrayList<>(clients);
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Client client = new Client(channel);
+        client.key = channel.register(selector, SelectionKey.OP_READ, client);
+        synchronized (this) {
+            clients.add(client);
+        }
+        client.send(snapshot());
+    }
+
+    private byte[] snapshot() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + sensors.size() * 32);
+        DashboardCodec.writeVarint(out, tick);
+        DashboardCodec.writeOrdinal(out, alarmStatus);
+        DashboardCodec.writeOrdinal(out, armingStatus);
+        out.write(catDetected ? 1 : 0);
+        DashboardCodec.writeVarint(out, sensors.size());
+        for (SensorEntry sensor : sensors.values()) {
+            sensor.write(out);
+        }
+        return DashboardCodec.frame(DashboardCodec.SNAPSHOT, out);
+    }
+
+    /**
+     * Applies the events received since the last tick and encodes the difference.
+     * @return the delta frame, or null if nothing visible changed
+     */
+    private byte[] tick() {
+        AlarmStatus alarmBefore = alarmStatus;
+        ArmingStatus armingBefore = armingStatus;
+        boolean catBefore = catDetected;
+        activeBefore.clear();
+        added.clear();
+        int removedCount = 0;
+
+        if (resync) {
+            removedCount = resync();
+        } else {
+            List<SecurityEvent> events;
+            synchronized (pendingLock) {
+                if (pending.isEmpty()) {
+                    return null;
+                }
+                events = pending;
+                pending = draining;
+                draining = events;
+            }
+            boolean bulkAdded = false;
+            for (SecurityEvent event : events) {
+                switch (event.getType()) {
+                    case ALARM_STATUS:
+                        alarmStatus = event.getAlarmStatus();
+                        break;
+                    case ARMING_STATUS:
+                        armingStatus = event.getArmingStatus();
+                        break;
+                    case CAT_DETECTED:
+                        catDetected = event.getCatDetected();
+                        break;
+                    case SENSOR_ADDED:
+                        if (!ids.containsKey(event.getSensorId())) {
+                            SensorEntry entry = add(event.getSensorId(), null);
+                            entry.active = event.getSensorActive();
+                            added.put(entry.id, entry);
+                        }
+                        break;
+                    case SENSORS_ADDED:
+                        bulkAdded = true;
+                        break;
+                    case SENSOR_REMOVED:
+                        Integer removedId = ids.remove(event.getSensorId());
+                        if (removedId != null) {
+                            sensors.remove(removedId);
+                            activeBefore.remove(removedId);
+                            if (added.remove(removedId) == null) {
+                                removed = append(removed, removedCount++, removedId);
+                            }
+                        }
+                        break;
+                    case SENSOR_UPDATED:
+                        Integer id = ids.get(event.getSensorId());
+                        if (id != null) {
+                            SensorEntry entry = sensors.get(id);
+                            if (!added.containsKey(id)) {
+                                activeBefore.putIfAbsent(id, entry.active);
+                            }
+                            entry.active = event.getSensorActive();
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            events.clear();
+            if (!added.isEmpty() || bulkAdded) {
+                describe(bulkAdded);
+            }
+        }
+
+        int activatedCount = 0;
+        int deactivatedCount = 0;
+        for (Map.Entry<Integer, Boolean> before : activeBefore.entrySet()) {
+            boolean now = sensors.get(before.getKey()).active;
+            if (now && !before.getValue()) {
+                activated = append(activated, activatedCount++, before.getKey());
+            } else if (!now && before.getValue()) {
+                deactivated = append(deactivated, deactivatedCount++, before.getKey());
+            }
+        }
+        int changes = (alarmStatus != alarmBefore ? DashboardCodec.ALARM_CHANGED : 0)
+                | (armingStatus != armingBefore ? DashboardCodec.ARMING_CHANGED : 0)
+                | (catDetected != catBefore ? DashboardCodec.CAT_CHANGED : 0);
+        if (changes == 0 && added.isEmpty() && removedCount == 0 && activatedCount == 0 && deactivatedCount == 0) {
+            return null;
+        }
+
+        tick++;
+        ByteArrayOutputStream out = deltaOut;
+        out.reset();
+        DashboardCodec.writeVarint(out, tick);
+        out.write(changes);
+        if ((changes & DashboardCodec.ALARM_CHANGED) != 0) {
+            DashboardCodec.writeOrdinal(out, alarmStatus);
+        }
+        if ((changes & DashboardCodec.ARMING_CHANGED) != 0) {
+            DashboardCodec.writeOrdinal(out, armingStatus);
+        }
+        if ((changes & DashboardCodec.CAT_CHANGED) != 0) {
+            out.write(catDetected ? 1 : 0);
+        }
+        DashboardCodec.writeVarint(out, added.size());
+        for (SensorEntry entry : added.values()) {
+            entry.write(out);
+        }
+        Arrays.sort(removed, 0, removedCount);
+        DashboardCodec.writeIds(out, removed, removedCount);
+        Arrays.sort(activated, 0, activatedCount);
+        DashboardCodec.writeIds(out, activated, activatedCount);
+        Arrays.sort(deactivated, 0, deactivatedCount);
+        DashboardCodec.writeIds(out, deactivated, deactivatedCount);
+        return DashboardCodec.frame(DashboardCodec.DELTA, out);
+    }
+
+    /**
+     * The event feed overran, so resubscribe and diff the last tick's state against the service.
+     * Subscribing before reading means nothing is missed; events that replay what the snapshot
+     * already shows are harmless.
+     * @return how many ids were written to {@link #removed}
+     */
+    private int resync() {
+        resync = false;
+        synchronized (pendingLock) {
+            pending.clear();
+        }
+        securityService.getEventPublisher().subscribe(new EventSubscriber());
+        alarmStatus = securityService.getAlarmStatus();
+        armingStatus = securityService.getArmingStatus();
+        catDetected = securityService.isCatDetected();
+        long mark = ++resyncs;
+        for (Sensor sensor : securityService.getSensorSnapshot()) {
+            Integer id = ids.get(sensor.getSensorId());
+            if (id == null) {
+                SensorEntry entry = add(sensor.getSensorId(), sensor);
+                entry.seen = mark;
+                added.put(entry.id, entry);
+            } else {
+                SensorEntry entry = sensors.get(id);
+                entry.seen = mark;
+                activeBefore.put(id, entry.active);
+                entry.describe(sensor);
+            }
+        }
+        int removedCount = 0;
+        for (Iterator<SensorEntry> it = sensors.values().iterator(); it.hasNext(); ) {
+            SensorEntry entry = it.next();
+            if (entry.seen != mark) {
+                it.remove();
+                ids.remove(entry.sensorId);
+                activeBefore.remove(entry.id);
+                removed = append(removed, removedCount++, entry.id);
+            }
+        }
+        log.info("Dashboard resynchronized with {} sensors", sensors.size());
+        return removedCount;
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    private SensorEntry add(UUID sensorId, Sensor sensor) {
+        SensorEntry entry = new SensorEntry(nextId++, sensorId);
+        if (sensor != null) {
+            entry.describe(sensor);
+        }
+        ids.put(sensorId, entry.id);
+        sensors.put(entry.id, entry);
+        return entry;
+    }
+
+    /**
+     * Sensor events only carry the id and bulk adds only a count, so once per tick that adds
+     * sensors, fill in the added ones and pick up any new ones from a snapshot of the service.
+     */
+    private void describe(boolean bulkAdded) {
+        for (Sensor sensor : securityService.getSensorSnapshot()) {
+            Integer id = ids.get(sensor.getSensorId());
+            if (id == null) {
+                if (bulkAdded) {
+                    SensorEntry entry = add(sensor.getSensorId(), sensor);
+                    added.put(entry.id, entry);
+                }
+            } else {
+                SensorEntry entry = added.get(id);
+                if (entry != null && entry.type == null) {
+                    entry.describe(sensor);
+                }
+            }
+        }
+    }
+
+    private static final class SensorEntry {
+        private final int id;
+        private final UUID sensorId;
+        private String name;
+        private SensorType type;
+        private String zone;
+        private boolean active;
+        //resync that last found this sensor in the service
+        private long seen;
+
+        SensorEntry(int id, UUID sensorId) {
+            this.id = id;
+            this.sensorId = sensorId;
+        }
+
+        void describe(Sensor sensor) {
+            name = sensor.getName();
+            type = sensor.getSensorType();
+            zone = sensor.getZone();
+            active = sensor.getActive();
+        }
+
+        void write(ByteArrayOutputStream out) {
+            DashboardCodec.writeVarint(out, id);
+            DashboardCodec.writeUuid(out, sensorId);
+            DashboardCodec.writeOrdinal(out, type);
+            out.write(active ? 1 : 0);
+            DashboardCodec.writeString(out, name);
+            DashboardCodec.writeString(out, zone);
+        }
+    }
+
+    private final class Client {
+        private final SocketChannel channel;
+        private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(256);
+        private SelectionKey key;
+        private int pendingBytes;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void send(byte[] frame) {
+            if (pendingBytes + frame.length > MAX_PENDING_BYTES) {
+                log.warn("Dashboard client {} is too slow, disconnecting", channel.socket().getRemoteSocketAddress());
+                disconnect();
+                return;
+            }
+            queue.add(ByteBuffer.wrap(frame));
+            pendingBytes += frame.length;
+            flush();
+        }
+
+        void flush() {
+            try {
+                while (!queue.isEmpty()) {
+                    ByteBuffer head = queue.peek();
+                    int written = channel.write(head);
+                    pendingBytes -= written;
+                    bytesSent.addAndGet(written);
+                    if (head.hasRemaining()) {
+                        break;
+                    }
+                    queue.poll();
+                }
+                if (key.isValid()) {
+                    key.interestOps(queue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+
+        //clients don't send anything, reading only notices when they go away
+        void read() {
+            try {
+                readBuffer.clear();
+                if (channel.read(readBuffer) < 0) {
+                    disconnect();
+                }
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+
+        void disconnect() {
+            synchronized (DashboardServer.this) {
+                clients.remove(this);
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                //already closed
+            }
+        }
+    }
+
+    private final class EventSubscriber implements Flow.Subscriber<SecurityEvent> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            DashboardServer.this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(SecurityEvent event) {
+            synchronized (pendingLock) {
+                pending.add(event);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.warn("Fell behind the security event feed, resynchronizing", throwable);
+            resync = true;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Repository that only keeps state in local memory. Nothing survives a restart, which makes it
+ * handy for tools and tests that shouldn't touch the user's stored preferences.
+ */
+public class InMemorySecurityRepository implements SecurityRepository {
+
+    private final NavigableSet<Sensor> sensors = new TreeSet<>();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+    }
+
+    @Override
+    public void addSensors(Collection<Sensor> sensors) {
+        this.sensors.addAll(sensors);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        sensors.remove(sensor);
+    }
+
+    /**
+     * Activation isn't part of the sort order, so when the stored sensor is this very instance it
+     * has already been updated in place. A different instance with the same key replaces it.
+     */
+    @Override
+    public void updateSensor(Sensor sensor) {
+        if (sensors.ceiling(sensor) != sensor) {
+            sensors.remove(sensor);
+            sensors.add(sensor);
+        }
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors;
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
@@ -0,0 +1,132 @@
+package com.udacity.catpoint.security.data;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small fixed-size JDBC connection pool. Connections are opened on demand up to the pool size,
+ * and each one keeps its prepared statements so every SQL string is only prepared once per
+ * connection. A connection that failed is discarded, and a new one is opened in its place the
+ * next time one is needed.
+ */
+class JdbcConnectionPool implements AutoCloseable {
+
+    private static final long BORROW_TIMEOUT_SECONDS = 10;
+    //how often a waiting borrower checks whether a discarded connection has freed up room
+    private static final long BORROW_POLL_MILLIS = 50;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int size;
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> all = new ArrayList<>();
+    private boolean closed;
+
+    JdbcConnectionPool(String url, String user, String password, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.size = size;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    PooledConnection borrow() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(BORROW_TIMEOUT_SECONDS);
+        PooledConnection connection = idle.poll();
+        while (connection == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                if (all.size() < size) {
+                    connection = new PooledConnection(DriverManager.getConnection(url, user, password));
+                    all.add(connection);
+                    return connection;
+                }
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new SQLException("No connection available after " + BORROW_TIMEOUT_SECONDS + "s");
+            }
+            try {
+                connection = idle.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(BORROW_POLL_MILLIS)), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+        }
+        return connection;
+    }
+
+    void release(PooledConnection connection) {
+        idle.offer(connection);
+    }
+
+    /**
+     * Closes a connection that failed instead of returning it, which frees its slot for a new one.
+     */
+    void discard(PooledConnection connection) {
+        synchronized (this) {
+            all.remove(connection);
+        }
+        try {
+            connection.connection.close();
+        } catch (SQLException e) {
+            //already broken, nothing more to release
+        }
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        closed = true;
+        SQLException failure = null;
+        for (PooledConnection connection : all) {
+            try {
+                connection.connection.close();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        all.clear();
+        idle.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    static final class PooledConnection {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        Connection connection() {
+            return connection;
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+}
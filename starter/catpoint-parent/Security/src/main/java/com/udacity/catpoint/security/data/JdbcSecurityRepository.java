@@ -0,0 +1,294 @@
+package com.udacity.catpoint.security.data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Repository backed by a JDBC database, intended for an embedded in-process database such as H2:
+ * {@code new JdbcSecurityRepository("jdbc:h2:~/catpoint")}. Sensors live in their own table and
+ * every change touches only the affected rows. Alarm and arming status are kept in a one-row
+ * table. Both the status and the sensors are cached in memory, since they are read far more often
+ * than they change; this assumes no other process writes to the same tables while it is open.
+ */
+public class JdbcSecurityRepository implements SecurityRepository, AutoCloseable {
+
+    private static final int DEFAULT_POOL_SIZE = 4;
+    //rows sent to the database per round trip when adding many sensors
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private static final String CREATE_SENSOR_TABLE = "CREATE TABLE IF NOT EXISTS catpoint_sensor ("
+            + "sensor_id CHAR(36) PRIMARY KEY, name VARCHAR(255) NOT NULL, sensor_type VARCHAR(16) NOT NULL, "
+            + "active BOOLEAN NOT NULL, zone VARCHAR(64) NOT NULL)";
+    private static final String CREATE_STATUS_TABLE = "CREATE TABLE IF NOT EXISTS catpoint_status ("
+            + "id INT PRIMARY KEY, alarm_status VARCHAR(16) NOT NULL, arming_status VARCHAR(16) NOT NULL)";
+    private static final String INSERT_SENSOR =
+            "INSERT INTO catpoint_sensor (name, sensor_type, active, zone, sensor_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String MERGE_SENSOR =
+            "MERGE INTO catpoint_sensor (name, sensor_type, active, zone, sensor_id) KEY(sensor_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_SENSOR = "DELETE FROM catpoint_sensor WHERE sensor_id = ?";
+    private static final String SELECT_SENSORS = "SELECT sensor_id, name, sensor_type, active, zone FROM catpoint_sensor";
+    private static final String COUNT_ACTIVE_SENSORS = "SELECT COUNT(*) FROM catpoint_sensor WHERE active = TRUE";
+    private static final String SELECT_STATUS = "SELECT alarm_status, arming_status FROM catpoint_status WHERE id = 1";
+    private static final String INSERT_STATUS =
+            "INSERT INTO catpoint_status (id, alarm_status, arming_status) VALUES (1, ?, ?)";
+    private static final String UPDATE_ALARM_STATUS = "UPDATE catpoint_status SET alarm_status = ? WHERE id = 1";
+    private static final String UPDATE_ARMING_STATUS = "UPDATE catpoint_status SET arming_status = ? WHERE id = 1";
+
+    private final JdbcConnectionPool pool;
+    private final Set<Sensor> sensors = new ConcurrentSkipListSet<>();
+    private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    public JdbcSecurityRepository(String url) {
+        this(url, null, null, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Creates the tables if they don't exist yet and loads the stored status.
+     * @param url JDBC URL. The driver has to be on the class path
+     * @param poolSize Maximum number of open connections
+     */
+    public JdbcSecurityRepository(String url, String user, String password, int poolSize) {
+        pool = new JdbcConnectionPool(url, user, password, poolSize);
+        execute(connection -> {
+            try (Statement statement = connection.connection().createStatement()) {
+                statement.execute(CREATE_SENSOR_TABLE);
+                statement.execute(CREATE_STATUS_TABLE);
+            }
+            try (ResultSet rs = connection.prepare(SELECT_SENSORS).executeQuery()) {
+                while (rs.next()) {
+                    Sensor sensor = new Sensor(rs.getString(2), SensorType.valueOf(rs.getString(3)), rs.getString(5));
+                    sensor.setSensorId(UUID.fromString(rs.getString(1)));
+                    sensor.setActive(rs.getBoolean(4));
+                    sensors.add(sensor);
+                }
+            }
+            try (ResultSet rs = connection.prepare(SELECT_STATUS).executeQuery()) {
+                if (rs.next()) {
+                    alarmStatus = AlarmStatus.valueOf(rs.getString(1));
+                    armingStatus = ArmingStatus.valueOf(rs.getString(2));
+                    return null;
+                }
+            }
+            PreparedStatement insert = connection.prepare(INSERT_STATUS);
+            insert.setString(1, alarmStatus.name());
+            insert.setString(2, armingStatus.name());
+            insert.executeUpdate();
+            return null;
+        });
+    }
+
+    /**
+     * Stores the sensor, replacing the stored row if it was added before.
+     */
+    @Override
+    public void addSensor(Sensor sensor) {
+        updateSensor(sensor);
+    }
+
+    /**
+     * Inserts the sensors in batches of {@value #INSERT_BATCH_SIZE} rows, all in one transaction.
+     * Unlike {@link #addSensor(Sensor)}, a sensor that is already stored fails the whole call.
+     */
+    @Override
+    public void addSensors(Collection<Sensor> sensors) {
+        if (sensors.isEmpty()) {
+            return;
+        }
+        execute(connection -> {
+            Connection jdbc = connection.connection();
+            jdbc.setAutoCommit(false);
+            try {
+                PreparedStatement insert = connection.prepare(INSERT_SENSOR);
+                int batched = 0;
+                for (Sensor sensor : sensors) {
+                    bind(insert, sensor);
+                    insert.addBatch();
+                    if (++batched == INSERT_BATCH_SIZE) {
+                        insert.executeBatch();
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    insert.executeBatch();
+                }
+                jdbc.commit();
+            } catch (SQLException | RuntimeException e) {
+                rollback(jdbc, e);
+                throw e;
+            } finally {
+                jdbc.setAutoCommit(true);
+            }
+            return null;
+        });
+        this.sensors.addAll(sensors);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        execute(connection -> {
+            PreparedStatement delete = connection.prepare(DELETE_SENSOR);
+            delete.setString(1, sensor.getSensorId().toString());
+            return delete.executeUpdate();
+        });
+        sensors.remove(sensor);
+    }
+
+    /**
+     * Updates the sensor's row, or inserts it if it isn't stored yet.
+     */
+    @Override
+    public void updateSensor(Sensor sensor) {
+        execute(connection -> {
+            PreparedStatement merge = connection.prepare(MERGE_SENSOR);
+            bind(merge, sensor);
+            return merge.executeUpdate();
+        });
+        cache(sensor);
+    }
+
+    /**
+     * Updates several sensors as one JDBC batch in a single transaction. Sensors that aren't
+     * stored yet are inserted.
+     */
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        if (sensors.isEmpty()) {
+            return;
+        }
+        execute(connection -> {
+            Connection jdbc = connection.connection();
+            jdbc.setAutoCommit(false);
+            try {
+                PreparedStatement merge = connection.prepare(MERGE_SENSOR);
+                for (Sensor sensor : sensors) {
+                    bind(merge, sensor);
+                    merge.addBatch();
+                }
+                merge.executeBatch();
+                jdbc.commit();
+            } catch (SQLException | RuntimeException e) {
+                rollback(jdbc, e);
+                throw e;
+            } finally {
+                jdbc.setAutoCommit(true);
+            }
+            return null;
+        });
+        sensors.forEach(this::cache);
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        updateStatus(UPDATE_ALARM_STATUS, alarmStatus.name());
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        updateStatus(UPDATE_ARMING_STATUS, armingStatus.name());
+        this.armingStatus = armingStatus;
+    }
+
+    /**
+     * Returns a read-only view of the cached sensors, without touching the database. Changes made to
+     * a sensor are only stored once it is passed back through {@link #updateSensor(Sensor)}.
+     */
+    @Override
+    public Set<Sensor> getSensors() {
+        return Collections.unmodifiableSet(sensors);
+    }
+
+    /**
+     * Counts active sensors in the database without loading them.
+     */
+    public int getActiveSensorCount() {
+        return execute(connection -> {
+            try (ResultSet rs = connection.prepare(COUNT_ACTIVE_SENSORS).executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        });
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        pool.close();
+    }
+
+    private void updateStatus(String sql, String value) {
+        execute(connection -> {
+            PreparedStatement update = connection.prepare(sql);
+            update.setString(1, value);
+            return update.executeUpdate();
+        });
+    }
+
+    //a different instance with the same sort key replaces the cached one, so the cache holds the latest state
+    private void cache(Sensor sensor) {
+        sensors.remove(sensor);
+        sensors.add(sensor);
+    }
+
+    //keeps the original failure as the one callers see
+    private static void rollback(Connection jdbc, Exception failure) {
+        try {
+            jdbc.rollback();
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    //parameter order matches INSERT_SENSOR and MERGE_SENSOR
+    private static void bind(PreparedStatement statement, Sensor sensor) throws SQLException {
+        statement.setString(1, sensor.getName());
+        statement.setString(2, sensor.getSensorType().name());
+        statement.setBoolean(3, sensor.getActive());
+        statement.setString(4, sensor.getZone());
+        statement.setString(5, sensor.getSensorId().toString());
+    }
+
+    //a connection that failed may be broken or left mid-transaction, so it is closed rather than reused
+    private <T> T execute(SqlWork<T> work) {
+        JdbcConnectionPool.PooledConnection connection = null;
+        boolean failed = true;
+        try {
+            connection = pool.borrow();
+            T result = work.run(connection);
+            failed = false;
+            return result;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Database access failed", e);
+        } finally {
+            if (connection != null) {
+                if (failed) {
+                    pool.discard(connection);
+                } else {
+                    pool.release(connection);
+                }
+            }
+        }
+    }
+
+    private interface SqlWork<T> {
+        T run(JdbcConnectionPool.PooledConnection connection) throws SQLException;
+    }
+}
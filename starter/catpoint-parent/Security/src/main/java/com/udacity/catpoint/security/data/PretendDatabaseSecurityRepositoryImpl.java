@@ -4,6 +4,7 @@ import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 
 import java.lang.reflect.Type;
+import java.util.Collection;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.prefs.Preferences;
@@ -50,6 +51,15 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
         prefs.put(SENSORS, gson.toJson(sensors));
     }
 
+    /**
+     * Writes the preferences once for the whole batch.
+     */
+    @Override
+    public void addSensors(Collection<Sensor> sensors) {
+        this.sensors.addAll(sensors);
+        prefs.put(SENSORS, gson.toJson(this.sensors));
+    }
+
     @Override
     public void removeSensor(Sensor sensor) {
         sensors.remove(sensor);
@@ -63,6 +73,26 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
         prefs.put(SENSORS, gson.toJson(sensors));
     }
 
+    /**
+     * Writes the preferences once for the whole batch.
+     */
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        for (Sensor sensor : sensors) {
+            this.sensors.remove(sensor);
+            this.sensors.add(sensor);
+        }
+        prefs.put(SENSORS, gson.toJson(this.sensors));
+    }
+
+    /**
+     * Every write serializes all stored sensors into one preference.
+     */
+    @Override
+    public boolean storesSensorsIncrementally() {
+        return false;
+    }
+
     @Override
     public void setAlarmStatus(AlarmStatus alarmStatus) {
         this.alarmStatus = alarmStatus;
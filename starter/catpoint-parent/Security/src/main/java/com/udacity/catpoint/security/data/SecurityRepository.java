@@ -1,5 +1,6 @@
 package com.udacity.catpoint.security.data;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -9,6 +10,31 @@ public interface SecurityRepository {
     void addSensor(Sensor sensor);
     void removeSensor(Sensor sensor);
     void updateSensor(Sensor sensor);
+
+    /**
+     * Adds several sensors at once. Implementations that persist state should override this to
+     * store them in a single write instead of one per sensor.
+     */
+    default void addSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::addSensor);
+    }
+
+    /**
+     * Stores changes to several sensors at once. Implementations that can batch writes should override this.
+     */
+    default void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
+    /**
+     * Whether a write costs in proportion to the sensors written rather than to every sensor
+     * stored. Repositories that rewrite all of their sensors on each write return false, so bulk
+     * imports add everything in one write instead of in chunks.
+     */
+    default boolean storesSensorsIncrementally() {
+        return true;
+    }
+
     void setAlarmStatus(AlarmStatus alarmStatus);
     void setArmingStatus(ArmingStatus armingStatus);
     Set<Sensor> getSensors();
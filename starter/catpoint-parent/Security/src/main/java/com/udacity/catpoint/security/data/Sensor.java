@@ -1,8 +1,6 @@
 package com.udacity.catpoint.security.data;
 
 
-import com.google.common.collect.ComparisonChain;
-
 import java.util.Objects;
 import java.util.UUID;
 
@@ -10,16 +8,28 @@ import java.util.UUID;
  * Sensor POJO. Needs to know how to sort itself for display purposes.
  */
 public class Sensor implements Comparable<Sensor> {
+    /**
+     * Zone of sensors that haven't been assigned one.
+     */
+    public static final String DEFAULT_ZONE = "default";
+
     private UUID sensorId;
     private String name;
-    private Boolean active;
+    private boolean active;
     private SensorType sensorType;
+    private String zone;
 
     public Sensor(String name, SensorType sensorType) {
         this.name = name;
         this.sensorType = sensorType;
         this.sensorId = UUID.randomUUID();
-        this.active = Boolean.FALSE;
+        this.active = false;
+        this.zone = DEFAULT_ZONE;
+    }
+
+    public Sensor(String name, SensorType sensorType, String zone) {
+        this(name, sensorType);
+        this.zone = zone;
     }
 
     @Override
@@ -43,11 +53,11 @@ public class Sensor implements Comparable<Sensor> {
         this.name = name;
     }
 
-    public Boolean getActive() {
+    public boolean getActive() {
         return active;
     }
 
-    public void setActive(Boolean active) {
+    public void setActive(boolean active) {
         this.active = active;
     }
 
@@ -59,6 +69,17 @@ public class Sensor implements Comparable<Sensor> {
         this.sensorType = sensorType;
     }
 
+    /**
+     * Zone the sensor belongs to. Sensors stored before zones existed report the default zone.
+     */
+    public String getZone() {
+        return zone == null ? DEFAULT_ZONE : zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
     public UUID getSensorId() {
         return sensorId;
     }
@@ -69,10 +90,13 @@ public class Sensor implements Comparable<Sensor> {
 
     @Override
     public int compareTo(Sensor o) {
-        return ComparisonChain.start()
-                .compare(this.name, o.name)
-                .compare(this.sensorType.toString(), o.sensorType.toString())
-                .compare(this.sensorId, o.sensorId)
-                .result();
+        int result = this.name.compareTo(o.name);
+        if (result == 0) {
+            result = this.sensorType.name().compareTo(o.sensorType.name());
+        }
+        if (result == 0) {
+            result = this.sensorId.compareTo(o.sensorId);
+        }
+        return result;
     }
 }
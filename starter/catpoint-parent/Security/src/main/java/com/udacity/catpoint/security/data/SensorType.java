@@ -1,7 +1,7 @@
 package com.udacity.catpoint.security.data;
 
 /**
- * List of available sensor types. Not currently used by system, other than for display.
+ * List of available sensor types. Alarm rules can treat each type differently, see AlarmRules.
  */
 public enum SensorType {
     DOOR, WINDOW, MOTION
@@ -0,0 +1,69 @@
+package com.udacity.catpoint.security.fleet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The small part of RFC 4180 the sensor files need: fields separated by commas, optionally
+ * quoted, with doubled quotes inside quoted fields. Fields can't span lines.
+ */
+final class CsvLines {
+
+    private CsvLines() {
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    throw new IllegalArgumentException("unexpected character after quoted field");
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                end = end < 0 ? line.length() : end;
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString().strip());
+            if (i >= line.length()) {
+                return fields;
+            }
+            i++; //skip the comma
+        }
+    }
+
+    static void appendField(StringBuilder out, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
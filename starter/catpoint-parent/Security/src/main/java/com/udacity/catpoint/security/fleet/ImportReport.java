@@ -0,0 +1,78 @@
+package com.udacity.catpoint.security.fleet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a {@link SensorImporter} run. Only the first few errors are kept, so a file full of
+ * bad records can't exhaust memory; the rejected count covers all of them.
+ */
+public class ImportReport {
+
+    static final int MAX_ERRORS = 100;
+
+    private final List<String> errors = new ArrayList<>();
+    private long records;
+    private long imported;
+    private long rejected;
+    private boolean committed;
+    private long elapsedNanos;
+
+    void recordRead() {
+        records++;
+    }
+
+    void reject(long record, String reason) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("record " + record + ": " + reason);
+        }
+    }
+
+    void committed(long imported, long elapsedNanos) {
+        this.imported = imported;
+        this.committed = true;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    void abandoned(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Records read, valid or not. Blank lines and the CSV header don't count.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * False if nothing was stored because the import was all-or-nothing and some records were invalid.
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d records, %d imported, %d rejected%s in %.1fs", records, imported, rejected,
+                committed ? "" : " (nothing stored)", elapsedNanos / 1e9);
+    }
+}
@@ -0,0 +1,66 @@
+package com.udacity.catpoint.security.fleet;
+
+import com.google.gson.stream.JsonWriter;
+import com.udacity.catpoint.security.data.Sensor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes sensor definitions and their current state in a format {@link SensorImporter} reads
+ * back, one sensor per line, without building the whole file in memory.
+ */
+public class SensorExporter {
+
+    private SensorExporter() {
+    }
+
+    /**
+     * @return the number of sensors written
+     */
+    public static long exportTo(Path file, Iterable<Sensor> sensors) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return exportTo(writer, SensorFormat.of(file), sensors);
+        }
+    }
+
+    /**
+     * Writes the sensors without closing the writer.
+     * @return the number of sensors written
+     */
+    public static long exportTo(Writer writer, SensorFormat format, Iterable<Sensor> sensors) throws IOException {
+        long count = 0;
+        StringBuilder line = new StringBuilder(128);
+        if (format == SensorFormat.CSV) {
+            writer.write("id,name,type,zone,active\n");
+        }
+        for (Sensor sensor : sensors) {
+            if (format == SensorFormat.CSV) {
+                line.setLength(0);
+                line.append(sensor.getSensorId()).append(',');
+                CsvLines.appendField(line, sensor.getName());
+                line.append(',').append(sensor.getSensorType().name()).append(',');
+                CsvLines.appendField(line, sensor.getZone());
+                line.append(',').append(sensor.getActive()).append('\n');
+                writer.append(line);
+            } else {
+                //writes straight through to the writer; closing or flushing it would close or flush the writer too
+                JsonWriter json = new JsonWriter(writer);
+                json.beginObject()
+                        .name("id").value(sensor.getSensorId().toString())
+                        .name("name").value(sensor.getName())
+                        .name("type").value(sensor.getSensorType().name())
+                        .name("zone").value(sensor.getZone())
+                        .name("active").value(sensor.getActive())
+                        .endObject();
+                writer.write('\n');
+            }
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+}
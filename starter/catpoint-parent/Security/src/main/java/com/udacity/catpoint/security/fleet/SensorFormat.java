@@ -0,0 +1,27 @@
+package com.udacity.catpoint.security.fleet;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * File formats for importing and exporting sensors. Both hold one sensor per line with the
+ * fields id, name, type, zone and active.
+ */
+public enum SensorFormat {
+    /**
+     * One JSON object per line: {"id":"...","name":"Front door","type":"DOOR","zone":"hall","active":false}
+     */
+    NDJSON,
+    /**
+     * Comma separated values with a header row naming the columns, in any order. Only name and
+     * type are required.
+     */
+    CSV;
+
+    /**
+     * Picks the format from the file extension: .csv for CSV, anything else is NDJSON.
+     */
+    public static SensorFormat of(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : NDJSON;
+    }
+}
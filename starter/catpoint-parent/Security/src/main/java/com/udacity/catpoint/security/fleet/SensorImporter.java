@@ -0,0 +1,262 @@
+package com.udacity.catpoint.security.fleet;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Streams sensor definitions from NDJSON or CSV into a {@link SecurityService}. Input is read a
+ * line at a time, every record is validated, and valid sensors are added in chunks of
+ * {@link #DEFAULT_CHUNK_SIZE}, one repository write per chunk. Memory use is bounded by the chunk
+ * size apart from the set of ids seen so far, which is needed to reject duplicates and costs
+ * roughly 100 bytes per sensor.
+ *
+ * An all-or-nothing import can't store anything before the whole input has been validated, so it
+ * holds every sensor in memory until the end and writes them at once. So does an import into a
+ * repository that rewrites every stored sensor on each write, such as the preferences-backed one,
+ * where chunking would make the import quadratic. Large fleets belong in the JDBC repository.
+ *
+ * Records are rejected if the name is blank or too long, the type or id can't be parsed, the
+ * zone is too long, or the id is already taken by an existing or earlier sensor. Records without
+ * an id get a new one.
+ */
+public class SensorImporter {
+
+    public static final int DEFAULT_PROGRESS_INTERVAL = 100_000;
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    //column sizes of the JDBC repository
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_ZONE_LENGTH = 64;
+    private static final String[] COLUMNS = {"id", "name", "type", "zone", "active"};
+    private static final Map<String, SensorType> SENSOR_TYPES = new HashMap<>();
+
+    static {
+        for (SensorType type : SensorType.values()) {
+            SENSOR_TYPES.put(type.name(), type);
+        }
+    }
+
+    /**
+     * Told how far an import has got, every few records and once reading has finished.
+     */
+    public interface ProgressListener {
+        void progress(long records, long rejected);
+    }
+
+    private final SecurityService securityService;
+    private ProgressListener progressListener = (records, rejected) -> { };
+    private int progressInterval = DEFAULT_PROGRESS_INTERVAL;
+    private boolean allOrNothing;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    public SensorImporter(SecurityService securityService) {
+        this.securityService = securityService;
+    }
+
+    public SensorImporter setProgressListener(ProgressListener progressListener, int everyRecords) {
+        this.progressListener = progressListener;
+        this.progressInterval = everyRecords;
+        return this;
+    }
+
+    /**
+     * When set, a single invalid record means nothing is imported. By default valid records are
+     * imported and invalid ones are reported.
+     */
+    public SensorImporter setAllOrNothing(boolean allOrNothing) {
+        this.allOrNothing = allOrNothing;
+        return this;
+    }
+
+    /**
+     * Sensors added per repository write. Ignored by all-or-nothing imports and by repositories
+     * that don't store sensors incrementally.
+     */
+    public SensorImporter setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Imports the file. Chunks already stored stay stored if reading fails part way, unless the
+     * import is all-or-nothing.
+     */
+    public ImportReport importFrom(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader, SensorFormat.of(file));
+        }
+    }
+
+    public ImportReport importFrom(Reader reader, SensorFormat format) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        Set<UUID> taken = new HashSet<>();
+        for (Sensor sensor : securityService.getSensors()) {
+            taken.add(sensor.getSensorId());
+        }
+        ImportReport report = new ImportReport();
+        List<Sensor> sensors = new ArrayList<>();
+        long imported = 0;
+        boolean chunked = !allOrNothing && securityService.storesSensorsIncrementally();
+        int[] columns = null;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == SensorFormat.CSV && columns == null) {
+                columns = readHeader(line);
+                continue;
+            }
+            report.recordRead();
+            try {
+                Sensor sensor = format == SensorFormat.CSV ? fromCsv(line, columns) : fromJson(line);
+                if (!taken.add(sensor.getSensorId())) {
+                    throw new IllegalArgumentException("duplicate id " + sensor.getSensorId());
+                }
+                sensors.add(sensor);
+                if (chunked && sensors.size() == chunkSize) {
+                    securityService.addSensors(sensors);
+                    imported += sensors.size();
+                    sensors.clear();
+                }
+            } catch (IllegalArgumentException | IOException | IllegalStateException e) {
+                report.reject(report.getRecords(), e.getMessage());
+            }
+            if (report.getRecords() % progressInterval == 0) {
+                progressListener.progress(report.getRecords(), report.getRejected());
+            }
+        }
+        progressListener.progress(report.getRecords(), report.getRejected());
+
+        if (allOrNothing && report.getRejected() > 0) {
+            report.abandoned(System.nanoTime() - start);
+            return report;
+        }
+        if (!sensors.isEmpty()) {
+            securityService.addSensors(sensors);
+            imported += sensors.size();
+        }
+        report.committed(imported, System.nanoTime() - start);
+        return report;
+    }
+
+    private static int[] readHeader(String line) {
+        List<String> names = CsvLines.split(line);
+        int[] columns = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            columns[i] = names.indexOf(COLUMNS[i]);
+        }
+        if (columns[1] < 0 || columns[2] < 0) {
+            throw new IllegalArgumentException("CSV header must name the name and type columns: " + line);
+        }
+        return columns;
+    }
+
+    private static Sensor fromCsv(String line, int[] columns) {
+        List<String> fields = CsvLines.split(line);
+        String[] values = new String[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (columns[i] >= 0 && columns[i] < fields.size() && !fields.get(columns[i]).isEmpty()) {
+                values[i] = fields.get(columns[i]);
+            }
+        }
+        Boolean active = null;
+        if (values[4] != null) {
+            if (!values[4].equalsIgnoreCase("true") && !values[4].equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException("active must be true or false, not " + values[4]);
+            }
+            active = Boolean.parseBoolean(values[4]);
+        }
+        return toSensor(values[0], values[1], values[2], values[3], active);
+    }
+
+    private static Sensor fromJson(String line) throws IOException {
+        String id = null;
+        String name = null;
+        String type = null;
+        String zone = null;
+        Boolean active = null;
+        JsonReader json = new JsonReader(new StringReader(line));
+        json.beginObject();
+        while (json.hasNext()) {
+            String field = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = json.nextString();
+                    break;
+                case "name":
+                    name = json.nextString();
+                    break;
+                case "type":
+                    type = json.nextString();
+                    break;
+                case "zone":
+                    zone = json.nextString();
+                    break;
+                case "active":
+                    active = json.nextBoolean();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        if (json.peek() != JsonToken.END_DOCUMENT) {
+            throw new IllegalArgumentException("more than one value on the line");
+        }
+        return toSensor(id, name, type, zone, active);
+    }
+
+    private static Sensor toSensor(String id, String name, String type, String zone, Boolean active) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name is missing");
+        }
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("name is longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("type is missing");
+        }
+        SensorType sensorType = SENSOR_TYPES.get(type);
+        if (sensorType == null) {
+            throw new IllegalArgumentException("unknown type " + type);
+        }
+        if (zone != null && zone.length() > MAX_ZONE_LENGTH) {
+            throw new IllegalArgumentException("zone is longer than " + MAX_ZONE_LENGTH + " characters");
+        }
+        Sensor sensor = new Sensor(name, sensorType, zone == null ? Sensor.DEFAULT_ZONE : zone);
+        if (id != null) {
+            sensor.setSensorId(UUID.fromString(id));
+        }
+        if (active != null) {
+            sensor.setActive(active);
+        }
+        return sensor;
+    }
+}
@@ -0,0 +1,16 @@
+package com.udacity.catpoint.security.replication;
+
+/**
+ * How long a repository mutation on the primary waits for the standby.
+ */
+public enum AckMode {
+    /**
+     * Return as soon as the change is queued for the standby. Fastest, but the most recent
+     * changes can be lost if the primary dies.
+     */
+    ASYNC,
+    /**
+     * Wait until the standby has applied the change (or the sync timeout passes).
+     */
+    SYNC
+}
@@ -0,0 +1,144 @@
+package com.udacity.catpoint.security.replication;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Binary format of the replication stream. Every frame is
+ *   [int length][byte type][long sequence][long primary time in millis][payload]
+ * where length counts everything after the length field itself. Sensors are written as
+ *   [long id msb][long id lsb][utf name][byte sensor type][boolean active][utf zone]
+ */
+final class ChangeLogCodec {
+
+    static final byte SNAPSHOT = 1;
+    static final byte SENSOR_UPSERT = 2;
+    static final byte SENSOR_REMOVE = 3;
+    static final byte ALARM_STATUS = 4;
+    static final byte ARMING_STATUS = 5;
+    static final byte HEARTBEAT = 6;
+    static final byte ACK = 7;
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private ChangeLogCodec() {
+    }
+
+    static byte[] snapshot(long sequence, AlarmStatus alarmStatus, ArmingStatus armingStatus, Collection<Sensor> sensors) {
+        return frame(SNAPSHOT, sequence, out -> {
+            out.writeByte(ordinal(alarmStatus));
+            out.writeByte(ordinal(armingStatus));
+            out.writeInt(sensors.size());
+            for (Sensor sensor : sensors) {
+                writeSensor(out, sensor);
+            }
+        });
+    }
+
+    static byte[] sensorUpsert(long sequence, Sensor sensor) {
+        return frame(SENSOR_UPSERT, sequence, out -> writeSensor(out, sensor));
+    }
+
+    static byte[] sensorRemove(long sequence, Sensor sensor) {
+        return frame(SENSOR_REMOVE, sequence, out -> {
+            out.writeLong(sensor.getSensorId().getMostSignificantBits());
+            out.writeLong(sensor.getSensorId().getLeastSignificantBits());
+        });
+    }
+
+    static byte[] alarmStatus(long sequence, AlarmStatus alarmStatus) {
+        return frame(ALARM_STATUS, sequence, out -> out.writeByte(ordinal(alarmStatus)));
+    }
+
+    static byte[] armingStatus(long sequence, ArmingStatus armingStatus) {
+        return frame(ARMING_STATUS, sequence, out -> out.writeByte(ordinal(armingStatus)));
+    }
+
+    static byte[] heartbeat(long sequence) {
+        return frame(HEARTBEAT, sequence, out -> { });
+    }
+
+    static byte[] ack(long sequence) {
+        return frame(ACK, sequence, out -> { });
+    }
+
+    static void writeSensor(DataOutputStream out, Sensor sensor) throws IOException {
+        out.writeLong(sensor.getSensorId().getMostSignificantBits());
+        out.writeLong(sensor.getSensorId().getLeastSignificantBits());
+        out.writeUTF(sensor.getName() == null ? "" : sensor.getName());
+        out.writeByte(sensor.getSensorType() == null ? -1 : sensor.getSensorType().ordinal());
+        out.writeBoolean(sensor.getActive());
+        out.writeUTF(sensor.getZone());
+    }
+
+    /**
+     * Reads a sensor into a new object. Callers decide whether it replaces an existing one.
+     */
+    static Sensor readSensor(DataInputStream in) throws IOException {
+        UUID id = new UUID(in.readLong(), in.readLong());
+        String name = in.readUTF();
+        byte type = in.readByte();
+        boolean active = in.readBoolean();
+        String zone = in.readUTF();
+        Sensor sensor = new Sensor(name, type < 0 ? null : SENSOR_TYPES[type], zone);
+        sensor.setSensorId(id);
+        sensor.setActive(active);
+        return sensor;
+    }
+
+    static UUID readSensorId(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    static AlarmStatus readAlarmStatus(DataInputStream in) throws IOException {
+        byte ordinal = in.readByte();
+        return ordinal < 0 ? null : ALARM_STATUSES[ordinal];
+    }
+
+    static ArmingStatus readArmingStatus(DataInputStream in) throws IOException {
+        byte ordinal = in.readByte();
+        return ordinal < 0 ? null : ARMING_STATUSES[ordinal];
+    }
+
+    private static int ordinal(Enum<?> value) {
+        return value == null ? -1 : value.ordinal();
+    }
+
+    private static byte[] frame(byte type, long sequence, PayloadWriter payload) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeByte(type);
+            out.writeLong(sequence);
+            out.writeLong(System.currentTimeMillis());
+            payload.write(out);
+            out.flush();
+            byte[] frame = bytes.toByteArray();
+            int length = frame.length - Integer.BYTES;
+            frame[0] = (byte) (length >>> 24);
+            frame[1] = (byte) (length >>> 16);
+            frame[2] = (byte) (length >>> 8);
+            frame[3] = (byte) length;
+            return frame;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,429 @@
+package com.udacity.catpoint.security.replication;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.service.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Primary side of hot-standby replication. Wraps the repository the primary SecurityService uses
+ * and streams every mutation to connected {@link StandbyReplica}s as a binary change log.
+ *
+ * A standby that connects first receives a snapshot of the full state, followed by every change
+ * made after that snapshot. Idle connections carry heartbeats so the standby can notice a dead
+ * primary quickly. In {@link AckMode#SYNC} each mutation waits until the standbys have applied it.
+ *
+ * Each standby has a bounded queue of changes waiting to be sent. A standby that falls so far
+ * behind that its queue fills up has the backlog discarded and replaced with a fresh snapshot,
+ * which it reconciles against just like on connect. Disconnecting it instead would make it
+ * believe the primary had failed and promote itself.
+ */
+public class ReplicationPrimary implements SecurityRepository, AutoCloseable {
+
+    static final long HEARTBEAT_MILLIS = 100;
+    private static final Duration DEFAULT_SYNC_TIMEOUT = Duration.ofSeconds(1);
+    private static final int MAX_BATCH = 256;
+    private static final int DEFAULT_QUEUE_CAPACITY = 16_384;
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationPrimary.class);
+
+    private final SecurityRepository delegate;
+    private final AckMode ackMode;
+    private final long syncTimeoutNanos;
+    private final int queueCapacity;
+    private final ServerSocket serverSocket;
+    private final CopyOnWriteArrayList<StandbyConnection> standbys = new CopyOnWriteArrayList<>();
+    private final LatencyHistogram ackLatency = new LatencyHistogram();
+
+    //orders mutations against each other and against snapshots taken for new standbys
+    private final Object lock = new Object();
+    private final Object ackMonitor = new Object();
+    private long lastSequence;
+    private long resyncs;
+    private volatile boolean closed;
+
+    public ReplicationPrimary(SecurityRepository delegate, int port, AckMode ackMode) throws IOException {
+        this(delegate, port, ackMode, DEFAULT_SYNC_TIMEOUT);
+    }
+
+    /**
+     * Listens on the loopback interface.
+     * @param delegate Repository holding the primary's state
+     * @param port Port to accept standbys on, 0 picks a free one
+     * @param ackMode Whether mutations wait for the standbys
+     * @param syncTimeout Longest a mutation waits for acknowledgement in SYNC mode
+     */
+    public ReplicationPrimary(SecurityRepository delegate, int port, AckMode ackMode, Duration syncTimeout) throws IOException {
+        this(delegate, new InetSocketAddress(InetAddress.getLoopbackAddress(), port), ackMode, syncTimeout);
+    }
+
+    /**
+     * @param address Address to accept standbys on, for example a wildcard address when standbys run on other hosts
+     */
+    public ReplicationPrimary(SecurityRepository delegate, InetSocketAddress address, AckMode ackMode, Duration syncTimeout) throws IOException {
+        this(delegate, address, ackMode, syncTimeout, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    ReplicationPrimary(SecurityRepository delegate, InetSocketAddress address, AckMode ackMode, Duration syncTimeout,
+                       int queueCapacity) throws IOException {
+        this.delegate = delegate;
+        this.ackMode = ackMode;
+        this.syncTimeoutNanos = syncTimeout.toNanos();
+        this.queueCapacity = queueCapacity;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(address, 50);
+        Thread acceptThread = new Thread(this::acceptLoop, "replication-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getLastSequence() {
+        synchronized (lock) {
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Number of changes the slowest connected standby has not acknowledged yet.
+     */
+    public long getReplicationLag() {
+        long last = getLastSequence();
+        long lag = 0;
+        for (StandbyConnection standby : standbys) {
+            lag = Math.max(lag, last - standby.acknowledged);
+        }
+        return lag;
+    }
+
+    /**
+     * Time between sending a change and the standby acknowledging it.
+     */
+    public LatencyHistogram getAckLatency() {
+        return ackLatency;
+    }
+
+    public int getStandbyCount() {
+        return standbys.size();
+    }
+
+    /**
+     * Number of times a standby fell behind and was sent a fresh snapshot instead of its backlog.
+     */
+    public long getResyncCount() {
+        synchronized (lock) {
+            return resyncs;
+        }
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        long sequence;
+        synchronized (lock) {
+            delegate.addSensor(sensor);
+            sequence = ++lastSequence;
+            broadcast(sequence, ChangeLogCodec.sensorUpsert(sequence, sensor));
+        }
+        awaitAck(sequence);
+    }
+
+    /**
+     * Adds the sensors to the wrapped repository in one call and waits for a single acknowledgement
+     * covering all of them.
+     */
+    @Override
+    public void addSensors(Collection<Sensor> sensors) {
+        long sequence;
+        synchronized (lock) {
+            delegate.addSensors(sensors);
+            sequence = lastSequence;
+            for (Sensor sensor : sensors) {
+                sequence = ++lastSequence;
+                broadcast(sequence, ChangeLogCodec.sensorUpsert(sequence, sensor));
+            }
+        }
+        awaitAck(sequence);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        long sequence;
+        synchronized (lock) {
+            delegate.removeSensor(sensor);
+            sequence = ++lastSequence;
+            broadcast(sequence, ChangeLogCodec.sensorRemove(sequence, sensor));
+        }
+        awaitAck(sequence);
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        long sequence;
+        synchronized (lock) {
+            delegate.updateSensor(sensor);
+            sequence = ++lastSequence;
+            broadcast(sequence, ChangeLogCodec.sensorUpsert(sequence, sensor));
+        }
+        awaitAck(sequence);
+    }
+
+    /**
+     * Updates the sensors in the wrapped repository in one call and waits for a single
+     * acknowledgement covering all of them.
+     */
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        long sequence;
+        synchronized (lock) {
+            delegate.updateSensors(sensors);
+            sequence = lastSequence;
+            for (Sensor sensor : sensors) {
+                sequence = ++lastSequence;
+                broadcast(sequence, ChangeLogCodec.sensorUpsert(sequence, sensor));
+            }
+        }
+        awaitAck(sequence);
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        long sequence;
+        synchronized (lock) {
+            delegate.setAlarmStatus(alarmStatus);
+            sequence = ++lastSequence;
+            broadcast(sequence, ChangeLogCodec.alarmStatus(sequence, alarmStatus));
+        }
+        awaitAck(sequence);
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        long sequence;
+        synchronized (lock) {
+            delegate.setArmingStatus(armingStatus);
+            sequence = ++lastSequence;
+            broadcast(sequence, ChangeLogCodec.armingStatus(sequence, armingStatus));
+        }
+        awaitAck(sequence);
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return delegate.getSensors();
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return delegate.getAlarmStatus();
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return delegate.getArmingStatus();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (StandbyConnection standby : standbys) {
+            standby.close();
+        }
+    }
+
+    //called under lock, so a snapshot taken here includes exactly the changes up to sequence
+    private void broadcast(long sequence, byte[] frame) {
+        Outgoing change = new Outgoing(sequence, frame);
+        for (StandbyConnection standby : standbys) {
+            if (!standby.queue.offer(change)) {
+                log.warn("Standby {} is {} changes behind, sending a fresh snapshot instead",
+                        standby.socket.getRemoteSocketAddress(), sequence - standby.acknowledged);
+                resyncs++;
+                standby.queue.clear();
+                standby.queue.add(snapshot());
+            }
+        }
+    }
+
+    private Outgoing snapshot() {
+        return new Outgoing(lastSequence, ChangeLogCodec.snapshot(lastSequence,
+                delegate.getAlarmStatus(), delegate.getArmingStatus(), delegate.getSensors()));
+    }
+
+    private void awaitAck(long sequence) {
+        if (ackMode != AckMode.SYNC || standbys.isEmpty()) {
+            return;
+        }
+        long deadline = System.nanoTime() + syncTimeoutNanos;
+        synchronized (ackMonitor) {
+            while (!allAcknowledged(sequence)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    log.warn("Standby did not acknowledge change {} in time, continuing without it", sequence);
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(ackMonitor, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean allAcknowledged(long sequence) {
+        for (StandbyConnection standby : standbys) {
+            if (standby.acknowledged < sequence) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                StandbyConnection standby = new StandbyConnection(socket);
+                synchronized (lock) {
+                    standby.queue.add(snapshot());
+                    standbys.add(standby);
+                }
+                standby.start();
+                log.info("Standby connected from {}", socket.getRemoteSocketAddress());
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Failed to accept standby", e);
+                }
+            }
+        }
+    }
+
+    private static class Outgoing {
+        private final long sequence;
+        private final byte[] frame;
+
+        Outgoing(long sequence, byte[] frame) {
+            this.sequence = sequence;
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * One connected standby. A sender thread batches queued frames onto the socket and an ack
+     * reader thread tracks how far the standby has got.
+     */
+    private class StandbyConnection {
+        private final Socket socket;
+        private final BlockingQueue<Outgoing> queue = new LinkedBlockingQueue<>(queueCapacity);
+        private final ArrayDeque<long[]> inFlight = new ArrayDeque<>();
+        private volatile long acknowledged = -1;
+
+        StandbyConnection(Socket socket) {
+            this.socket = socket;
+        }
+
+        void start() {
+            Thread sender = new Thread(this::sendLoop, "replication-sender");
+            sender.setDaemon(true);
+            sender.start();
+            Thread ackReader = new Thread(this::ackLoop, "replication-ack-reader");
+            ackReader.setDaemon(true);
+            ackReader.start();
+        }
+
+        private void sendLoop() {
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                while (!socket.isClosed()) {
+                    Outgoing next = queue.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        out.write(ChangeLogCodec.heartbeat(getLastSequence()));
+                    } else {
+                        int batched = 0;
+                        long now = System.nanoTime();
+                        do {
+                            out.write(next.frame);
+                            synchronized (inFlight) {
+                                inFlight.add(new long[]{next.sequence, now});
+                            }
+                        } while (++batched < MAX_BATCH && (next = queue.poll()) != null);
+                    }
+                    out.flush();
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Lost connection to standby", e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private void ackLoop() {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (true) {
+                    in.readInt();
+                    in.readByte();
+                    long sequence = in.readLong();
+                    in.readLong();
+                    long now = System.nanoTime();
+                    synchronized (inFlight) {
+                        while (!inFlight.isEmpty() && inFlight.peek()[0] <= sequence) {
+                            ackLatency.record(now - inFlight.poll()[1]);
+                        }
+                    }
+                    acknowledged = sequence;
+                    synchronized (ackMonitor) {
+                        ackMonitor.notifyAll();
+                    }
+                }
+            } catch (IOException e) {
+                //standby went away, the sender notices too
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            standbys.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //already closed
+            }
+            synchronized (ackMonitor) {
+                ackMonitor.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.udacity.catpoint.security.replication;
+
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.service.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Standby side of hot-standby replication. Connects to a {@link ReplicationPrimary}, loads its
+ * snapshot into a local repository and then applies every change it streams. Once the primary
+ * stops sending (including heartbeats) for longer than the failure timeout, the standby reports
+ * the primary as lost. Calling {@link #promote()} detaches the repository so a new SecurityService
+ * can take over with the replicated state.
+ */
+public class StandbyReplica implements AutoCloseable {
+
+    private static final Duration DEFAULT_FAILURE_TIMEOUT = Duration.ofMillis(ReplicationPrimary.HEARTBEAT_MILLIS * 3);
+
+    private static final Logger log = LoggerFactory.getLogger(StandbyReplica.class);
+
+    private final SecurityRepository repository;
+    private final Map<UUID, Sensor> sensorsById = new HashMap<>();
+    private final Socket socket;
+    private final Runnable onPrimaryLost;
+    private final Thread reader;
+    private final CountDownLatch caughtUp = new CountDownLatch(1);
+    private final LatencyHistogram applyLag = new LatencyHistogram();
+
+    private volatile long appliedSequence = -1;
+    private volatile boolean primaryAlive = true;
+    private volatile boolean promoted;
+
+    public StandbyReplica(SecurityRepository repository, String host, int port) throws IOException {
+        this(repository, host, port, DEFAULT_FAILURE_TIMEOUT, () -> { });
+    }
+
+    /**
+     * @param repository Local repository that mirrors the primary. Any sensors it already holds are reconciled with the snapshot
+     * @param host Primary host
+     * @param port Primary replication port
+     * @param failureTimeout Silence after which the primary is considered lost
+     * @param onPrimaryLost Called once from the replication thread when the primary is lost, for example to trigger promotion
+     */
+    public StandbyReplica(SecurityRepository repository, String host, int port, Duration failureTimeout,
+                          Runnable onPrimaryLost) throws IOException {
+        this.repository = repository;
+        this.onPrimaryLost = onPrimaryLost;
+        for (Sensor sensor : repository.getSensors()) {
+            sensorsById.put(sensor.getSensorId(), sensor);
+        }
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), (int) failureTimeout.toMillis() * 10);
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout((int) failureTimeout.toMillis());
+        reader = new Thread(this::replicate, "replication-standby");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Waits until the initial snapshot has been applied.
+     * @return false if the snapshot did not arrive in time
+     */
+    public boolean awaitSnapshot(Duration timeout) throws InterruptedException {
+        return caughtUp.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public boolean isPrimaryAlive() {
+        return primaryAlive;
+    }
+
+    /**
+     * Delay between a change being made on the primary and applied here. Both sides use wall
+     * clock time, so this is only meaningful when their clocks agree (for example on one host).
+     */
+    public LatencyHistogram getApplyLag() {
+        return applyLag;
+    }
+
+    /**
+     * Stops replicating and hands over the repository. Everything applied so far stays in it.
+     */
+    public SecurityRepository promote() throws InterruptedException {
+        promoted = true;
+        close();
+        reader.join(TimeUnit.SECONDS.toMillis(1));
+        log.info("Standby promoted at change {}", appliedSequence);
+        return repository;
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //already closed
+        }
+    }
+
+    private void replicate() {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            long acked = -1;
+            while (!promoted) {
+                in.readInt();
+                byte type = in.readByte();
+                long sequence = in.readLong();
+                long sentMillis = in.readLong();
+                if (type != ChangeLogCodec.HEARTBEAT) {
+                    apply(type, in);
+                    appliedSequence = sequence;
+                    applyLag.record(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - sentMillis));
+                    if (type == ChangeLogCodec.SNAPSHOT) {
+                        caughtUp.countDown();
+                    }
+                }
+                //acknowledge once we have drained everything already received, so bursts share one ack
+                if (in.available() == 0 && appliedSequence > acked) {
+                    acked = appliedSequence;
+                    out.write(ChangeLogCodec.ack(acked));
+                    out.flush();
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            log.warn("No data from primary for {}ms, considering it lost", getSoTimeout());
+        } catch (IOException e) {
+            if (!promoted) {
+                log.warn("Replication connection to primary closed", e);
+            }
+        } finally {
+            close();
+            primaryAlive = false;
+            if (!promoted) {
+                onPrimaryLost.run();
+            }
+        }
+    }
+
+    private int getSoTimeout() {
+        try {
+            return socket.getSoTimeout();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void apply(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case ChangeLogCodec.SNAPSHOT:
+                repository.setAlarmStatus(ChangeLogCodec.readAlarmStatus(in));
+                repository.setArmingStatus(ChangeLogCodec.readArmingStatus(in));
+                int count = in.readInt();
+                Set<UUID> present = new HashSet<>();
+                for (int i = 0; i < count; i++) {
+                    Sensor sensor = ChangeLogCodec.readSensor(in);
+                    present.add(sensor.getSensorId());
+                    upsert(sensor);
+                }
+                sensorsById.values().removeIf(sensor -> {
+                    if (present.contains(sensor.getSensorId())) {
+                        return false;
+                    }
+                    repository.removeSensor(sensor);
+                    return true;
+                });
+                break;
+            case ChangeLogCodec.SENSOR_UPSERT:
+                upsert(ChangeLogCodec.readSensor(in));
+                break;
+            case ChangeLogCodec.SENSOR_REMOVE:
+                Sensor removed = sensorsById.remove(ChangeLogCodec.readSensorId(in));
+                if (removed != null) {
+                    repository.removeSensor(removed);
+                }
+                break;
+            case ChangeLogCodec.ALARM_STATUS:
+                repository.setAlarmStatus(ChangeLogCodec.readAlarmStatus(in));
+                break;
+            case ChangeLogCodec.ARMING_STATUS:
+                repository.setArmingStatus(ChangeLogCodec.readArmingStatus(in));
+                break;
+            default:
+                throw new IOException("Unknown replication frame type " + type);
+        }
+    }
+
+    private void upsert(Sensor incoming) {
+        Sensor existing = sensorsById.get(incoming.getSensorId());
+        if (existing == null) {
+            sensorsById.put(incoming.getSensorId(), incoming);
+            repository.addSensor(incoming);
+        } else if (Objects.equals(existing.getName(), incoming.getName())
+                && existing.getSensorType() == incoming.getSensorType()) {
+            existing.setActive(incoming.getActive());
+            existing.setZone(incoming.getZone());
+            repository.updateSensor(existing);
+        } else {
+            //name and type decide sort order, so take the sensor out before changing them
+            repository.removeSensor(existing);
+            existing.setName(incoming.getName());
+            existing.setSensorType(incoming.getSensorType());
+            existing.setActive(incoming.getActive());
+            existing.setZone(incoming.getZone());
+            repository.addSensor(existing);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiled form of {@link AlarmRules}. Every combination of zone, sensor type and arming status
+ * is resolved up front into a flat array, and each policy's effect on each alarm status into a
+ * transition table, so a decision is a couple of array lookups regardless of how many sensors or
+ * rules there are. Zones without rules of their own share the default zone's row. Immutable.
+ */
+public final class AlarmDecisionTable {
+
+    private static final int TYPES = SensorType.values().length + 1;
+    private static final int STATUSES = ArmingStatus.values().length + 1;
+    private static final AlarmStatus[][] ACTIVATION = new AlarmStatus[SensorPolicy.values().length][];
+
+    static {
+        //indexed by the current alarm status; null means no change
+        ACTIVATION[SensorPolicy.IGNORE.ordinal()] = new AlarmStatus[AlarmStatus.values().length];
+        AlarmStatus[] trigger = new AlarmStatus[AlarmStatus.values().length];
+        trigger[AlarmStatus.NO_ALARM.ordinal()] = AlarmStatus.PENDING_ALARM;
+        trigger[AlarmStatus.PENDING_ALARM.ordinal()] = AlarmStatus.ALARM;
+        ACTIVATION[SensorPolicy.TRIGGER.ordinal()] = trigger;
+        AlarmStatus[] immediate = new AlarmStatus[AlarmStatus.values().length];
+        immediate[AlarmStatus.NO_ALARM.ordinal()] = AlarmStatus.ALARM;
+        immediate[AlarmStatus.PENDING_ALARM.ordinal()] = AlarmStatus.ALARM;
+        ACTIVATION[SensorPolicy.IMMEDIATE.ordinal()] = immediate;
+    }
+
+    private final Map<String, Integer> zones;
+    private final SensorPolicy[] policies;
+    private final int[] thresholds;
+    private final boolean[] catAlarm;
+
+    AlarmDecisionTable(Map<String, Integer> zones, SensorPolicy[] policies, int[] thresholds, boolean[] catAlarm) {
+        this.zones = Map.copyOf(zones);
+        this.policies = policies;
+        this.thresholds = thresholds;
+        this.catAlarm = catAlarm;
+    }
+
+    static int rowSize() {
+        return TYPES * STATUSES;
+    }
+
+    static int cell(int zone, int type, int status) {
+        return (zone * TYPES + type) * STATUSES + status;
+    }
+
+    public int getZoneCount() {
+        return thresholds.length;
+    }
+
+    /**
+     * Zones that have rules of their own, plus the default zone.
+     */
+    public Set<String> getZones() {
+        return zones.keySet();
+    }
+
+    /**
+     * Row used for a sensor zone. Unknown zones and null map to the default zone.
+     */
+    public int zoneIndex(String zone) {
+        if (zone == null) {
+            return 0;
+        }
+        Integer index = zones.get(zone);
+        return index == null ? 0 : index;
+    }
+
+    public SensorPolicy getPolicy(int zone, SensorType type, ArmingStatus status) {
+        return policies[cell(zone, type == null ? TYPES - 1 : type.ordinal(), status == null ? STATUSES - 1 : status.ordinal())];
+    }
+
+    /**
+     * Alarm status after a sensor in the zone is activated.
+     * @param activeInZone Active sensors in the zone, including this one
+     * @return the new status, or null if it doesn't change
+     */
+    public AlarmStatus afterActivation(int zone, SensorType type, ArmingStatus status, AlarmStatus current, int activeInZone) {
+        if (current == null || activeInZone < thresholds[zone]) {
+            return null;
+        }
+        return ACTIVATION[getPolicy(zone, type, status).ordinal()][current.ordinal()];
+    }
+
+    /**
+     * Whether deactivating the sensor cancels a pending alarm. Ignored sensors never do.
+     */
+    public boolean deactivationCancelsPending(int zone, SensorType type, ArmingStatus status) {
+        return getPolicy(zone, type, status) != SensorPolicy.IGNORE;
+    }
+
+    public boolean catTriggersAlarm(ArmingStatus status) {
+        return catAlarm[status == null ? STATUSES - 1 : status.ordinal()];
+    }
+
+    /**
+     * Zone index of the sensor, see {@link #zoneIndex(String)}.
+     */
+    public int zoneIndex(Sensor sensor) {
+        return zoneIndex(sensor.getZone());
+    }
+}
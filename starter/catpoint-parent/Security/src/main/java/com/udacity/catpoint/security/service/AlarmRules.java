@@ -0,0 +1,118 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configures how sensors and the camera drive the alarm. Every {@link SensorType} has a
+ * {@link SensorPolicy} per arming status, and a zone can override it for its own sensors, for
+ * example to ignore motion sensors in the living room while armed-home. A zone can also require
+ * several of its sensors to be active before an activation counts. The defaults match the
+ * original behavior: every sensor triggers while armed, nothing happens while disarmed, and a cat
+ * sounds the alarm while armed-home.
+ *
+ * Rules are compiled into an {@link AlarmDecisionTable} before use.
+ */
+public class AlarmRules {
+
+    private final SensorPolicy[][] typePolicies = new SensorPolicy[SensorType.values().length][ArmingStatus.values().length];
+    private final Map<String, SensorPolicy[][]> zonePolicies = new LinkedHashMap<>();
+    private final Map<String, Integer> zoneThresholds = new HashMap<>();
+    private final boolean[] catAlarm = new boolean[ArmingStatus.values().length];
+
+    public AlarmRules() {
+        for (SensorType type : SensorType.values()) {
+            for (ArmingStatus status : ArmingStatus.values()) {
+                typePolicies[type.ordinal()][status.ordinal()] =
+                        status == ArmingStatus.DISARMED ? SensorPolicy.IGNORE : SensorPolicy.TRIGGER;
+            }
+        }
+        catAlarm[ArmingStatus.ARMED_HOME.ordinal()] = true;
+    }
+
+    /**
+     * Sets the policy for a sensor type in every zone that doesn't override it.
+     */
+    public AlarmRules setPolicy(SensorType type, ArmingStatus status, SensorPolicy policy) {
+        typePolicies[type.ordinal()][status.ordinal()] = policy;
+        return this;
+    }
+
+    /**
+     * Overrides the policy for one sensor type in one zone.
+     */
+    public AlarmRules setZonePolicy(String zone, SensorType type, ArmingStatus status, SensorPolicy policy) {
+        zonePolicies.computeIfAbsent(zone, z -> new SensorPolicy[SensorType.values().length][ArmingStatus.values().length])
+                [type.ordinal()][status.ordinal()] = policy;
+        return this;
+    }
+
+    /**
+     * Overrides the policy for every sensor type in one zone.
+     */
+    public AlarmRules setZonePolicy(String zone, ArmingStatus status, SensorPolicy policy) {
+        for (SensorType type : SensorType.values()) {
+            setZonePolicy(zone, type, status, policy);
+        }
+        return this;
+    }
+
+    /**
+     * Activations in the zone only count once at least this many of its sensors are active.
+     */
+    public AlarmRules setZoneActivationThreshold(String zone, int activeSensors) {
+        if (activeSensors < 1) {
+            throw new IllegalArgumentException("Threshold must be at least one sensor");
+        }
+        zonePolicies.computeIfAbsent(zone, z -> new SensorPolicy[SensorType.values().length][ArmingStatus.values().length]);
+        zoneThresholds.put(zone, activeSensors);
+        return this;
+    }
+
+    /**
+     * Sets whether detecting a cat sounds the alarm in the given arming status.
+     */
+    public AlarmRules setCatTriggersAlarm(ArmingStatus status, boolean triggers) {
+        catAlarm[status.ordinal()] = triggers;
+        return this;
+    }
+
+    public AlarmDecisionTable compile() {
+        Map<String, Integer> zones = new HashMap<>();
+        zones.put(Sensor.DEFAULT_ZONE, 0);
+        for (String zone : zonePolicies.keySet()) {
+            zones.putIfAbsent(zone, zones.size());
+        }
+        int types = SensorType.values().length;
+        int statuses = ArmingStatus.values().length;
+        SensorPolicy[] policies = new SensorPolicy[zones.size() * AlarmDecisionTable.rowSize()];
+        int[] thresholds = new int[zones.size()];
+        for (Map.Entry<String, Integer> zone : zones.entrySet()) {
+            int index = zone.getValue();
+            SensorPolicy[][] overrides = zonePolicies.get(zone.getKey());
+            thresholds[index] = zoneThresholds.getOrDefault(zone.getKey(), 1);
+            for (int type = 0; type <= types; type++) {
+                for (int status = 0; status <= statuses; status++) {
+                    SensorPolicy policy;
+                    if (type == types || status == statuses) {
+                        //unknown type or arming status: fail safe and treat the sensor as armed
+                        policy = SensorPolicy.TRIGGER;
+                    } else if (overrides != null && overrides[type][status] != null) {
+                        policy = overrides[type][status];
+                    } else {
+                        policy = typePolicies[type][status];
+                    }
+                    policies[AlarmDecisionTable.cell(index, type, status)] = policy;
+                }
+            }
+        }
+        boolean[] cat = new boolean[statuses + 1];
+        System.arraycopy(catAlarm, 0, cat, 0, statuses);
+        return new AlarmDecisionTable(zones, policies, thresholds, cat);
+    }
+}
@@ -0,0 +1,250 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which camera frames are worth sending to the image service and how confident it needs
+ * to be. Each arming status has its own sampling rate, so a disarmed system can skip classification
+ * entirely while an armed-home system watches closely. After a positive hit a camera is temporarily
+ * sampled at a boosted rate. Confidence thresholds can be set per camera.
+ *
+ * A camera can also be required to reach consensus before its answer counts: verdicts are
+ * collected in rounds of up to n frames, and the camera's answer only changes once k of them
+ * agree on the new answer. A round ends as soon as its outcome can no longer change, and the
+ * frames it would still have taken are skipped. The default of one out of one frame lets every
+ * verdict count on its own. A cat is detected while any camera's answer is cat.
+ */
+public class DetectionPolicy {
+
+    public static final String DEFAULT_CAMERA = "default";
+    private static final float DEFAULT_CONFIDENCE_THRESHOLD = 50.0f;
+
+    private final LongSupplier nanoClock;
+    private final Map<ArmingStatus, Double> framesPerSecond = new EnumMap<>(ArmingStatus.class);
+    private final Map<String, Float> confidenceThresholds = new ConcurrentHashMap<>();
+    private final Map<String, CameraState> cameras = new ConcurrentHashMap<>();
+    //cameras whose consensus answer is currently cat
+    private final AtomicInteger catCameras = new AtomicInteger();
+    private volatile float defaultConfidenceThreshold = DEFAULT_CONFIDENCE_THRESHOLD;
+    private volatile double boostedFramesPerSecond;
+    private volatile long boostNanos;
+    private volatile int consensusVotes = 1;
+    private volatile int consensusFrames = 1;
+
+    public DetectionPolicy() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock Source of monotonic time in nanoseconds, replaceable for tests
+     */
+    public DetectionPolicy(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        for (ArmingStatus status : ArmingStatus.values()) {
+            framesPerSecond.put(status, Double.POSITIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Classifies every frame regardless of arming status, at the default 50% confidence.
+     */
+    public static DetectionPolicy everyFrame() {
+        return new DetectionPolicy();
+    }
+
+    /**
+     * Skips frames while disarmed, samples slowly while armed-away and quickly while armed-home,
+     * and boosts any camera that just saw a cat.
+     */
+    public static DetectionPolicy armingAware() {
+        return new DetectionPolicy()
+                .setFramesPerSecond(ArmingStatus.DISARMED, 0)
+                .setFramesPerSecond(ArmingStatus.ARMED_AWAY, 1)
+                .setFramesPerSecond(ArmingStatus.ARMED_HOME, 5)
+                .setAdaptiveBoost(15, Duration.ofSeconds(30));
+    }
+
+    /**
+     * Sets how many frames per second are classified per camera in the given arming status.
+     * Zero disables classification, positive infinity classifies every frame.
+     */
+    public synchronized DetectionPolicy setFramesPerSecond(ArmingStatus status, double fps) {
+        if (fps < 0) {
+            throw new IllegalArgumentException("Frame rate can't be negative");
+        }
+        framesPerSecond.put(status, fps);
+        return this;
+    }
+
+    /**
+     * After a camera detects a cat, sample it at least this fast for the given duration.
+     * Has no effect in arming states whose rate is zero.
+     */
+    public DetectionPolicy setAdaptiveBoost(double fps, Duration duration) {
+        this.boostedFramesPerSecond = fps;
+        this.boostNanos = duration.toNanos();
+        return this;
+    }
+
+    /**
+     * Requires {@code votes} out of {@code frames} verdicts from a camera to agree before its
+     * answer changes. Rounds already in progress start over.
+     */
+    public DetectionPolicy setConsensus(int votes, int frames) {
+        if (votes < 1 || votes > frames) {
+            throw new IllegalArgumentException("Consensus needs between 1 and " + frames + " votes, not " + votes);
+        }
+        this.consensusVotes = votes;
+        this.consensusFrames = frames;
+        for (CameraState camera : cameras.values()) {
+            synchronized (camera) {
+                camera.startRound(frames);
+                camera.framesToSkip = 0;
+            }
+        }
+        return this;
+    }
+
+    public DetectionPolicy setDefaultConfidenceThreshold(float threshold) {
+        this.defaultConfidenceThreshold = threshold;
+        return this;
+    }
+
+    public DetectionPolicy setConfidenceThreshold(String cameraId, float threshold) {
+        confidenceThresholds.put(cameraId, threshold);
+        return this;
+    }
+
+    public float getConfidenceThreshold(String cameraId) {
+        Float threshold = confidenceThresholds.get(cameraId);
+        return threshold == null ? defaultConfidenceThreshold : threshold;
+    }
+
+    /**
+     * Returns true if the current frame from this camera should be classified. A true result
+     * counts as taking the sample.
+     * @param cameraId Camera that produced the frame
+     * @param armingStatus Current arming status. Unknown (null) status samples every frame
+     */
+    public boolean shouldSample(String cameraId, ArmingStatus armingStatus) {
+        double fps;
+        synchronized (this) {
+            fps = armingStatus == null ? Double.POSITIVE_INFINITY : framesPerSecond.get(armingStatus);
+        }
+        if (fps <= 0) {
+            return false;
+        }
+        CameraState camera = cameras.computeIfAbsent(cameraId, id -> new CameraState());
+        long now = nanoClock.getAsLong();
+        synchronized (camera) {
+            if (camera.boosted && camera.boostedUntil - now > 0) {
+                fps = Math.max(fps, boostedFramesPerSecond);
+            }
+            if (!Double.isInfinite(fps) && camera.sampled
+                    && now - camera.lastSample < (long) (TimeUnit.SECONDS.toNanos(1) / fps)) {
+                return false;
+            }
+            camera.sampled = true;
+            camera.lastSample = now;
+            if (camera.framesToSkip > 0) {
+                camera.framesToSkip--;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Tells the policy what the classifier decided so that positive hits can raise the sampling rate.
+     */
+    public void recordResult(String cameraId, boolean catDetected) {
+        if (!catDetected || boostNanos <= 0) {
+            return;
+        }
+        CameraState camera = cameras.computeIfAbsent(cameraId, id -> new CameraState());
+        synchronized (camera) {
+            camera.boosted = true;
+            camera.boostedUntil = nanoClock.getAsLong() + boostNanos;
+        }
+    }
+
+    /**
+     * Adds a verdict to the camera's current consensus round.
+     * @return true once the round decides the camera's answer, whether or not it changed; false
+     * while the round is still open
+     */
+    public boolean vote(String cameraId, boolean catDetected) {
+        int votes = consensusVotes;
+        int frames = consensusFrames;
+        CameraState camera = cameras.computeIfAbsent(cameraId, id -> new CameraState());
+        synchronized (camera) {
+            if (camera.roundFrames != frames) {
+                camera.startRound(frames);
+            }
+            camera.count++;
+            if (catDetected) {
+                camera.positives++;
+            }
+            //a camera without an answer yet starts from no cat
+            int against = camera.catDetected ? camera.count - camera.positives : camera.positives;
+            if (against >= votes) {
+                camera.catDetected = !camera.catDetected;
+                catCameras.addAndGet(camera.catDetected ? 1 : -1);
+            } else if (against + frames - camera.count >= votes) {
+                return false;
+            }
+            //decided either way, the rest of the round can't change the outcome
+            camera.framesToSkip = frames - camera.count;
+            camera.startRound(frames);
+            return true;
+        }
+    }
+
+    /**
+     * True if any camera's consensus answer is that it sees a cat.
+     */
+    public boolean isCatDetected() {
+        return catCameras.get() > 0;
+    }
+
+    /**
+     * Forgets when each camera was last sampled, so the first frame after arming is classified
+     * right away, and starts new consensus rounds.
+     */
+    public void armingStatusChanged() {
+        for (CameraState camera : cameras.values()) {
+            synchronized (camera) {
+                camera.sampled = false;
+                camera.framesToSkip = 0;
+                camera.startRound(camera.roundFrames);
+            }
+        }
+    }
+
+    private static class CameraState {
+        private boolean sampled;
+        private long lastSample;
+        private boolean boosted;
+        private long boostedUntil;
+        //current consensus round and the answer it would change
+        private int roundFrames = 1;
+        private int count;
+        private int positives;
+        private int framesToSkip;
+        private boolean catDetected;
+
+        void startRound(int frames) {
+            roundFrames = frames;
+            count = 0;
+            positives = 0;
+        }
+    }
+}
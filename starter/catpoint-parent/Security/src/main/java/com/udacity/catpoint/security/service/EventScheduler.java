@@ -0,0 +1,221 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs work for a {@link SecurityService} on two lanes, so a backlog of slow image classification
+ * can never hold up an alarm.
+ *
+ * The alarm lane is a single high-priority thread for sensor and arming events. Nothing is ever
+ * dropped from it. The image lane is a few low-priority threads with a bounded queue: a frame
+ * from a camera that already has a frame waiting replaces it, since only the newest frame
+ * matters, and frames from further cameras are shed once the queue is full. Classification runs
+ * outside the service's lock, so the alarm lane only ever waits for the short state update that
+ * follows it.
+ *
+ * Latency is measured per lane from submission to completion.
+ */
+public class EventScheduler implements AutoCloseable {
+
+    public static final int DEFAULT_IMAGE_THREADS = 2;
+    public static final int DEFAULT_IMAGE_QUEUE_CAPACITY = 8;
+
+    private static final Logger log = LoggerFactory.getLogger(EventScheduler.class);
+
+    private final SecurityService securityService;
+    private final ExecutorService alarmLane;
+    private final Thread[] imageWorkers;
+    private final int imageQueueCapacity;
+    //queued frames in arrival order, and the queued frame of each camera; guarded by itself
+    private final ArrayDeque<ImageTask> imageQueue = new ArrayDeque<>();
+    private final Map<String, ImageTask> queuedByCamera = new HashMap<>();
+    private boolean closed;
+
+    private final LatencyHistogram alarmLatency = new LatencyHistogram();
+    private final LatencyHistogram imageLatency = new LatencyHistogram();
+    private final AtomicLong shedFrames = new AtomicLong();
+    private final AtomicLong supersededFrames = new AtomicLong();
+
+    public EventScheduler(SecurityService securityService) {
+        this(securityService, DEFAULT_IMAGE_THREADS, DEFAULT_IMAGE_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param imageThreads Frames classified at the same time
+     * @param imageQueueCapacity Frames from different cameras that may wait for a thread before new ones are shed
+     */
+    public EventScheduler(SecurityService securityService, int imageThreads, int imageQueueCapacity) {
+        this.securityService = securityService;
+        this.imageQueueCapacity = imageQueueCapacity;
+        alarmLane = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "security-alarm-lane");
+            t.setDaemon(true);
+            t.setPriority(Thread.MAX_PRIORITY);
+            return t;
+        });
+        imageWorkers = new Thread[imageThreads];
+        for (int i = 0; i < imageThreads; i++) {
+            imageWorkers[i] = new Thread(this::classifyFrames, "security-image-lane-" + i);
+            imageWorkers[i].setDaemon(true);
+            imageWorkers[i].setPriority(Thread.MIN_PRIORITY);
+            imageWorkers[i].start();
+        }
+    }
+
+    public CompletableFuture<Void> changeSensorActivationStatus(Sensor sensor, boolean active) {
+        return onAlarmLane(() -> securityService.changeSensorActivationStatus(sensor, active));
+    }
+
+    public CompletableFuture<Void> setArmingStatus(ArmingStatus armingStatus) {
+        return onAlarmLane(() -> securityService.setArmingStatus(armingStatus));
+    }
+
+    public CompletableFuture<Void> processImage(BufferedImage image) {
+        return processImage(DetectionPolicy.DEFAULT_CAMERA, image);
+    }
+
+    /**
+     * Queues a frame for classification. The future is cancelled if a newer frame from the same
+     * camera replaces this one before it starts, and fails with a RejectedExecutionException if
+     * the frame is shed.
+     */
+    public CompletableFuture<Void> processImage(String cameraId, BufferedImage image) {
+        ImageTask task = new ImageTask(cameraId, image);
+        ImageTask replaced;
+        synchronized (imageQueue) {
+            if (closed) {
+                throw new RejectedExecutionException("Scheduler is closed");
+            }
+            replaced = queuedByCamera.get(cameraId);
+            if (replaced != null) {
+                imageQueue.remove(replaced);
+            } else if (imageQueue.size() >= imageQueueCapacity) {
+                shedFrames.incrementAndGet();
+                task.result.completeExceptionally(new RejectedExecutionException("Image lane is full, frame from " + cameraId + " shed"));
+                return task.result;
+            }
+            queuedByCamera.put(cameraId, task);
+            imageQueue.add(task);
+            imageQueue.notify();
+        }
+        if (replaced != null) {
+            supersededFrames.incrementAndGet();
+            replaced.result.cancel(false);
+        }
+        return task.result;
+    }
+
+    public LatencyHistogram getAlarmLaneLatency() {
+        return alarmLatency;
+    }
+
+    public LatencyHistogram getImageLaneLatency() {
+        return imageLatency;
+    }
+
+    /**
+     * Frames turned away because the image lane was full.
+     */
+    public long getShedFrames() {
+        return shedFrames.get();
+    }
+
+    /**
+     * Frames replaced by a newer frame from the same camera before they were classified.
+     */
+    public long getSupersededFrames() {
+        return supersededFrames.get();
+    }
+
+    /**
+     * Per-lane latency and shedding, for logs and console reports.
+     */
+    public String summary() {
+        return String.format("alarm lane %s%nimage lane %s, %d shed, %d superseded",
+                alarmLatency.summary(), imageLatency.summary(), getShedFrames(), getSupersededFrames());
+    }
+
+    /**
+     * Stops both lanes. Queued frames are cancelled; queued alarm events still run.
+     */
+    @Override
+    public void close() {
+        synchronized (imageQueue) {
+            closed = true;
+            for (ImageTask task : imageQueue) {
+                task.result.cancel(false);
+            }
+            imageQueue.clear();
+            queuedByCamera.clear();
+            imageQueue.notifyAll();
+        }
+        alarmLane.shutdown();
+        try {
+            alarmLane.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> onAlarmLane(Runnable event) {
+        long submitted = System.nanoTime();
+        return CompletableFuture.runAsync(() -> {
+            event.run();
+            alarmLatency.record(System.nanoTime() - submitted);
+        }, alarmLane);
+    }
+
+    private void classifyFrames() {
+        while (true) {
+            ImageTask task;
+            synchronized (imageQueue) {
+                while (imageQueue.isEmpty() && !closed) {
+                    try {
+                        imageQueue.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                task = imageQueue.poll();
+                queuedByCamera.remove(task.cameraId, task);
+            }
+            try {
+                securityService.processImage(task.cameraId, task.image);
+                imageLatency.record(System.nanoTime() - task.submitted);
+                task.result.complete(null);
+            } catch (RuntimeException e) {
+                log.warn("Classifying a frame from {} failed", task.cameraId, e);
+                task.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class ImageTask {
+        private final String cameraId;
+        private final BufferedImage image;
+        private final long submitted = System.nanoTime();
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        ImageTask(String cameraId, BufferedImage image) {
+            this.cameraId = cameraId;
+            this.image = image;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.FramePreprocessor;
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.image.service.PreprocessingImageService;
+import com.udacity.catpoint.image.service.ResilientImageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * ImageService that forwards to whichever detector is currently active. Detectors are found with
+ * {@link ServiceLoader} and named by their simple class name, so any jar on the module or class
+ * path that provides an ImageService can be chosen by name, and the choice can change while the
+ * application runs. Remote detectors are loaded behind a {@link ResilientImageService} that falls
+ * back to {@value #DEFAULT_PROVIDER}, and only see frames shrunk by a {@link FramePreprocessor}. A
+ * provider that can't be loaded is skipped instead of hiding all the others.
+ *
+ * A candidate detector can run in shadow mode: a sample of frames is also sent to it on a
+ * background thread, and its latency and answers are compared with the active detector's. The
+ * active detector never waits for the candidate; frames are skipped when the candidate falls
+ * behind.
+ */
+public class PluggableImageService implements ImageService, AutoCloseable {
+
+    /**
+     * Name of the detector to start with.
+     */
+    public static final String PROVIDER_PROPERTY = "catpoint.image.service";
+    /**
+     * Name of a detector to run in shadow mode, if any.
+     */
+    public static final String SHADOW_PROPERTY = "catpoint.image.shadow";
+    public static final String DEFAULT_PROVIDER = "FakeImageService";
+    public static final double DEFAULT_SHADOW_SAMPLE_RATE = 0.1;
+
+    private static final Logger log = LoggerFactory.getLogger(PluggableImageService.class);
+    private static final int SHADOW_QUEUE_CAPACITY = 16;
+    //largest frame sent to a remote detector, in either direction
+    private static final int REMOTE_FRAME_SIZE = 640;
+
+    private volatile ImageService active;
+    private volatile String activeName;
+    private volatile Shadow shadow;
+
+    public PluggableImageService(ImageService initial) {
+        this(initial, initial.getClass().getSimpleName());
+    }
+
+    public PluggableImageService(ImageService initial, String name) {
+        this.active = initial;
+        this.activeName = name;
+    }
+
+    /**
+     * Starts with the detector named by {@value #PROVIDER_PROPERTY}, or {@value #DEFAULT_PROVIDER},
+     * and shadows the one named by {@value #SHADOW_PROPERTY} if set.
+     */
+    public static PluggableImageService fromSystemProperties() {
+        String name = System.getProperty(PROVIDER_PROPERTY, DEFAULT_PROVIDER);
+        PluggableImageService service = new PluggableImageService(loadProvider(name), name);
+        String shadowName = System.getProperty(SHADOW_PROPERTY);
+        if (shadowName != null) {
+            service.startShadow(shadowName, DEFAULT_SHADOW_SAMPLE_RATE);
+        }
+        return service;
+    }
+
+    /**
+     * Names of every detector that can be loaded, without instantiating any of them.
+     */
+    public static List<String> availableProviders() {
+        return providers().stream()
+                .map(provider -> provider.type().getSimpleName())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Instantiates the named detector, wrapped for resilience and smaller frames if it is remote.
+     * @throws IllegalArgumentException if no detector has that name
+     * @throws IllegalStateException if the detector can't be instantiated
+     */
+    public static ImageService loadProvider(String name) {
+        ImageService service = instantiate(name);
+        if (!service.isRemote()) {
+            return service;
+        }
+        ImageService fallback = instantiate(DEFAULT_PROVIDER);
+        return new PreprocessingImageService(new ResilientImageService(service, fallback),
+                new FramePreprocessor(REMOTE_FRAME_SIZE, REMOTE_FRAME_SIZE));
+    }
+
+    private static ImageService instantiate(String name) {
+        ServiceLoader.Provider<ImageService> provider = providers().stream()
+                .filter(p -> p.type().getSimpleName().equals(name) || p.type().getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No image service named " + name + ", available: " + availableProviders()));
+        try {
+            return provider.get();
+        } catch (ServiceConfigurationError e) {
+            throw new IllegalStateException("Unable to create image service " + name, e);
+        }
+    }
+
+    //the loader moves past a provider it can't load, so one broken jar only loses its own detectors
+    private static List<ServiceLoader.Provider<ImageService>> providers() {
+        List<ServiceLoader.Provider<ImageService>> providers = new ArrayList<>();
+        Iterator<ServiceLoader.Provider<ImageService>> iterator = ServiceLoader.load(ImageService.class).stream().iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    return providers;
+                }
+                providers.add(iterator.next());
+            } catch (ServiceConfigurationError e) {
+                log.warn("Skipping image service that can't be loaded", e);
+            }
+        }
+    }
+
+    /**
+     * Switches to the named detector. Frames already being classified finish on the old one.
+     */
+    public void use(String name) {
+        swap(loadProvider(name), name);
+    }
+
+    public void swap(ImageService service, String name) {
+        log.info("Switching image service from {} to {}", activeName, name);
+        active = service;
+        activeName = name;
+    }
+
+    public String getActiveName() {
+        return activeName;
+    }
+
+    public void startShadow(String name, double sampleRate) {
+        startShadow(loadProvider(name), name, sampleRate);
+    }
+
+    /**
+     * Mirrors a sample of frames to the candidate, replacing any candidate already running.
+     * @param sampleRate Share of frames to mirror, between 0 and 1
+     */
+    public void startShadow(ImageService candidate, String name, double sampleRate) {
+        Shadow previous = shadow;
+        shadow = new Shadow(candidate, name, sampleRate);
+        if (previous != null) {
+            previous.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops mirroring frames.
+     * @return the final comparison, or null if no candidate was running
+     */
+    public ShadowReport stopShadow() {
+        Shadow stopped = shadow;
+        shadow = null;
+        if (stopped == null) {
+            return null;
+        }
+        stopped.executor.shutdownNow();
+        return stopped.report;
+    }
+
+    /**
+     * Comparison so far, or null if no candidate is running.
+     */
+    public ShadowReport getShadowReport() {
+        Shadow current = shadow;
+        return current == null ? null : current.report;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return detect(image, confidenceThreshold).containsCat(confidenceThreshold);
+    }
+
+    @Override
+    public DetectionResult detect(BufferedImage image, float confidenceThreshold) {
+        Shadow current = shadow;
+        if (current == null || !current.sample()) {
+            return active.detect(image, confidenceThreshold);
+        }
+        long start = System.nanoTime();
+        DetectionResult result = active.detect(image, confidenceThreshold);
+        current.mirror(image, confidenceThreshold, result.containsCat(confidenceThreshold), System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        stopShadow();
+    }
+
+    private static final class Shadow {
+        private final ImageService candidate;
+        private final double sampleRate;
+        private final ShadowReport report;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong frames = new AtomicLong();
+
+        Shadow(ImageService candidate, String name, double sampleRate) {
+            this.candidate = candidate;
+            this.sampleRate = sampleRate;
+            this.report = new ShadowReport(name);
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(SHADOW_QUEUE_CAPACITY), r -> {
+                Thread t = new Thread(r, "image-service-shadow");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }, (task, pool) -> report.dropped.incrementAndGet());
+        }
+
+        //spreads the sample evenly instead of randomly, so a rate of 0.25 is exactly every fourth frame
+        boolean sample() {
+            long n = frames.incrementAndGet();
+            return (long) (n * sampleRate) != (long) ((n - 1) * sampleRate);
+        }
+
+        void mirror(BufferedImage image, float confidenceThreshold, boolean primaryCat, long primaryNanos) {
+            report.mirrored.incrementAndGet();
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                boolean candidateCat;
+                try {
+                    candidateCat = candidate.detect(image, confidenceThreshold).containsCat(confidenceThreshold);
+                } catch (RuntimeException e) {
+                    log.debug("Shadow image service {} failed", report.candidateName, e);
+                    report.errors.incrementAndGet();
+                    return;
+                }
+                report.candidateLatency.record(System.nanoTime() - start);
+                report.primaryLatency.record(primaryNanos);
+                if (candidateCat == primaryCat) {
+                    report.agreed.incrementAndGet();
+                }
+                report.compared.incrementAndGet();
+            });
+        }
+    }
+
+    /**
+     * How a shadowed candidate compares with the active detector on the same frames.
+     */
+    public static final class ShadowReport {
+        private final String candidateName;
+        private final LatencyHistogram primaryLatency = new LatencyHistogram();
+        private final LatencyHistogram candidateLatency = new LatencyHistogram();
+        private final AtomicLong mirrored = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong compared = new AtomicLong();
+        private final AtomicLong agreed = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        ShadowReport(String candidateName) {
+            this.candidateName = candidateName;
+        }
+
+        public String getCandidateName() {
+            return candidateName;
+        }
+
+        /**
+         * Active detector's latency on the frames the candidate also classified.
+         */
+        public LatencyHistogram getPrimaryLatency() {
+            return primaryLatency;
+        }
+
+        public LatencyHistogram getCandidateLatency() {
+            return candidateLatency;
+        }
+
+        /**
+         * Frames picked for the candidate, including ones later dropped.
+         */
+        public long getMirrored() {
+            return mirrored.get();
+        }
+
+        /**
+         * Frames skipped because the candidate was too far behind.
+         */
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        public long getCompared() {
+            return compared.get();
+        }
+
+        public long getAgreed() {
+            return agreed.get();
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * Share of compared frames on which both detectors gave the same answer.
+         */
+        public double getAgreement() {
+            long total = compared.get();
+            return total == 0 ? 0 : (double) agreed.get() / total;
+        }
+
+        public String summary() {
+            return String.format("%s: %d compared, %.1f%% agreement, %d dropped, %d errors%n  primary   %s%n  candidate %s",
+                    candidateName, getCompared(), getAgreement() * 100, getDropped(), getErrors(),
+                    primaryLatency.summary(), candidateLatency.summary());
+        }
+    }
+}
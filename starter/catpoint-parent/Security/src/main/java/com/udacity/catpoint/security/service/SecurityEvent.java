@@ -0,0 +1,112 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.util.UUID;
+
+/**
+ * A single state change published by {@link SecurityService}. Sequence numbers start at 1 and
+ * increase by one for every event, so a subscriber can tell exactly where it left off.
+ * Only the fields relevant to the event type are set.
+ */
+public final class SecurityEvent {
+
+    public enum Type {
+        ALARM_STATUS,
+        ARMING_STATUS,
+        CAT_DETECTED,
+        SENSOR_ADDED,
+        /**
+         * Many sensors added at once. Only the count is carried; read the sensors from the service.
+         */
+        SENSORS_ADDED,
+        SENSOR_REMOVED,
+        SENSOR_UPDATED
+    }
+
+    private final long sequence;
+    private final long timestampMillis;
+    private final Type type;
+    private final AlarmStatus alarmStatus;
+    private final ArmingStatus armingStatus;
+    private final boolean catDetected;
+    private final UUID sensorId;
+    private final boolean sensorActive;
+    private final int sensorCount;
+
+    SecurityEvent(long sequence, long timestampMillis, Type type, AlarmStatus alarmStatus, ArmingStatus armingStatus,
+                  boolean catDetected, UUID sensorId, boolean sensorActive, int sensorCount) {
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.type = type;
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+        this.catDetected = catDetected;
+        this.sensorId = sensorId;
+        this.sensorActive = sensorActive;
+        this.sensorCount = sensorCount;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * New alarm status, for {@link Type#ALARM_STATUS} events.
+     */
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    /**
+     * New arming status, for {@link Type#ARMING_STATUS} events.
+     */
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    /**
+     * Classification of the latest frame, for {@link Type#CAT_DETECTED} events.
+     */
+    public boolean getCatDetected() {
+        return catDetected;
+    }
+
+    /**
+     * Affected sensor, for the sensor event types.
+     */
+    public UUID getSensorId() {
+        return sensorId;
+    }
+
+    public boolean getSensorActive() {
+        return sensorActive;
+    }
+
+    /**
+     * Number of sensors added, for {@link Type#SENSORS_ADDED} events.
+     */
+    public int getSensorCount() {
+        return sensorCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SecurityEvent{" + sequence + " " + type
+                + (alarmStatus != null ? " " + alarmStatus : "")
+                + (armingStatus != null ? " " + armingStatus : "")
+                + (type == Type.CAT_DETECTED ? " cat=" + catDetected : "")
+                + (sensorId != null ? " sensor=" + sensorId + " active=" + sensorActive : "")
+                + (type == Type.SENSORS_ADDED ? " count=" + sensorCount : "")
+                + "}";
+    }
+}
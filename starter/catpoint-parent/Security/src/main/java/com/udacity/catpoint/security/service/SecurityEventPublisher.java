@@ -0,0 +1,288 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change feed for {@link SecurityService}. Every event gets the next sequence number, starting at 1.
+ *
+ * Replay: the most recent events are kept in a fixed-size ring, so a subscriber can start from any
+ * sequence number still in it, for example to resume after reconnecting. {@link #subscribe(Flow.Subscriber)}
+ * starts with the next event to be published.
+ *
+ * Demand: a subscriber receives nothing until it calls {@link Flow.Subscription#request}, and then
+ * at most as many events as it has requested. Requesting {@link Long#MAX_VALUE} means unbounded.
+ * A request that isn't positive ends the subscription with an {@link IllegalArgumentException}.
+ * Delivery runs on the executor, one signal at a time per subscriber, so a slow subscriber never
+ * holds up the service. A subscriber that throws from a signal is cancelled.
+ *
+ * Overrun: the ring never waits for subscribers. One that falls so far behind that its next event
+ * has been overwritten, whether through slow processing or too little demand, is cancelled and
+ * gets {@link Flow.Subscriber#onError} with an {@link IllegalStateException}. The events it missed
+ * are gone, so it should resubscribe and then reread the current state from the service rather
+ * than trust a replay from {@link #getOldestSequence()}.
+ */
+public class SecurityEventPublisher implements Flow.Publisher<SecurityEvent> {
+
+    public static final int DEFAULT_REPLAY_CAPACITY = 1024;
+
+    //returned by read() when the requested event has already been overwritten
+    private static final SecurityEvent OVERWRITTEN = new SecurityEvent(-1, 0, null, null, null, false, null, false, 0);
+
+    private final Slot[] ring;
+    private final int mask;
+    private final Executor executor;
+    private volatile EventSubscription[] subscriptions = new EventSubscription[0];
+    private long lastSequence;
+
+    public SecurityEventPublisher() {
+        this(DEFAULT_REPLAY_CAPACITY, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param replayCapacity Number of past events kept for replay, rounded up to a power of two
+     * @param executor Runs delivery to subscribers
+     */
+    public SecurityEventPublisher(int replayCapacity, Executor executor) {
+        if (replayCapacity < 1) {
+            throw new IllegalArgumentException("Replay capacity must be positive");
+        }
+        int capacity = Integer.highestOneBit(replayCapacity - 1) << 1;
+        capacity = Math.max(capacity, 1);
+        ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Slot();
+        }
+        mask = capacity - 1;
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes to events published from now on.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super SecurityEvent> subscriber) {
+        subscribe(subscriber, getLastSequence() + 1);
+    }
+
+    /**
+     * Subscribes starting at the given sequence number, replaying any events already in the ring.
+     * If that event has already been overwritten, the subscriber gets onError as soon as it requests.
+     * @param fromSequence First event to deliver. Must not be past the next event to be published
+     */
+    public void subscribe(Flow.Subscriber<? super SecurityEvent> subscriber, long fromSequence) {
+        Objects.requireNonNull(subscriber);
+        if (fromSequence > getLastSequence() + 1) {
+            throw new IllegalArgumentException("Sequence " + fromSequence + " has not been published yet");
+        }
+        EventSubscription subscription = new EventSubscription(subscriber, Math.max(fromSequence, 1));
+        synchronized (this) {
+            EventSubscription[] current = subscriptions;
+            EventSubscription[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subscription;
+            subscriptions = updated;
+        }
+        subscription.signal();
+    }
+
+    /**
+     * Sequence number of the latest event, or 0 if nothing has been published.
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Oldest sequence number that can still be replayed.
+     */
+    public synchronized long getOldestSequence() {
+        return Math.max(1, lastSequence - ring.length + 1);
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.length;
+    }
+
+    /**
+     * Appends an event to the ring and wakes up subscribers. Writes into a preallocated slot, so
+     * publishing doesn't allocate; events are only materialized when delivered.
+     */
+    long publish(SecurityEvent.Type type, AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected,
+                 UUID sensorId, boolean sensorActive) {
+        return append(type, alarmStatus, armingStatus, catDetected, sensorId, sensorActive, 0);
+    }
+
+    /**
+     * Publishes a single {@link SecurityEvent.Type#SENSORS_ADDED} event for a bulk add, so adding
+     * more sensors than the ring holds doesn't push subscribers out of the replay buffer.
+     */
+    long publishSensorsAdded(int count) {
+        return append(SecurityEvent.Type.SENSORS_ADDED, null, null, false, null, false, count);
+    }
+
+    private long append(SecurityEvent.Type type, AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected,
+                        UUID sensorId, boolean sensorActive, int sensorCount) {
+        long sequence;
+        synchronized (this) {
+            sequence = ++lastSequence;
+            Slot slot = ring[(int) (sequence & mask)];
+            slot.sequence = sequence;
+            slot.timestampMillis = System.currentTimeMillis();
+            slot.type = type;
+            slot.alarmStatus = alarmStatus;
+            slot.armingStatus = armingStatus;
+            slot.catDetected = catDetected;
+            slot.sensorId = sensorId;
+            slot.sensorActive = sensorActive;
+            slot.sensorCount = sensorCount;
+        }
+        EventSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            current[i].signal();
+        }
+        return sequence;
+    }
+
+    /**
+     * @return the event, null if it hasn't been published yet or {@link #OVERWRITTEN}
+     */
+    private synchronized SecurityEvent read(long sequence) {
+        if (sequence > lastSequence) {
+            return null;
+        }
+        Slot slot = ring[(int) (sequence & mask)];
+        if (slot.sequence != sequence) {
+            return OVERWRITTEN;
+        }
+        return new SecurityEvent(slot.sequence, slot.timestampMillis, slot.type, slot.alarmStatus, slot.armingStatus,
+                slot.catDetected, slot.sensorId, slot.sensorActive, slot.sensorCount);
+    }
+
+    private synchronized void remove(EventSubscription subscription) {
+        EventSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                EventSubscription[] updated = new EventSubscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscriptions = updated;
+                return;
+            }
+        }
+    }
+
+    private static final class Slot {
+        long sequence;
+        long timestampMillis;
+        SecurityEvent.Type type;
+        AlarmStatus alarmStatus;
+        ArmingStatus armingStatus;
+        boolean catDetected;
+        UUID sensorId;
+        boolean sensorActive;
+        int sensorCount;
+    }
+
+    /**
+     * Per-subscriber cursor. All signals to the subscriber come from run(), which the wip counter
+     * keeps to one executor thread at a time.
+     */
+    private final class EventSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super SecurityEvent> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private boolean started;
+        private long next;
+
+        EventSubscription(Flow.Subscriber<? super SecurityEvent> subscriber, long next) {
+            this.subscriber = subscriber;
+            this.next = next;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " events, must be positive");
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                try {
+                    drain();
+                } catch (Throwable t) {
+                    //a subscriber that throws is cancelled, as Flow requires
+                    cancel();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (cancelled) {
+                return;
+            }
+            if (!started) {
+                started = true;
+                subscriber.onSubscribe(this);
+            }
+            while (!cancelled) {
+                if (invalidRequest != null) {
+                    fail(invalidRequest);
+                    return;
+                }
+                if (demand.get() == 0) {
+                    return;
+                }
+                SecurityEvent event = read(next);
+                if (event == null) {
+                    return;
+                }
+                if (event == OVERWRITTEN) {
+                    fail(new IllegalStateException("Event " + next + " is no longer in the replay buffer, oldest is "
+                            + getOldestSequence()));
+                    return;
+                }
+                next++;
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                subscriber.onNext(event);
+            }
+        }
+
+        private void fail(Throwable error) {
+            cancel();
+            subscriber.onError(error);
+        }
+    }
+}
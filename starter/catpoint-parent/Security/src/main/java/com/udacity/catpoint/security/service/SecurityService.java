@@ -2,68 +2,171 @@ package com.udacity.catpoint.security.service;
 
 import com.udacity.catpoint.image.service.ImageService;
 import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.audit.AuditLog;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.ArmingStatus;
 import com.udacity.catpoint.security.data.SecurityRepository;
 import com.udacity.catpoint.security.data.Sensor;
 
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.UUID;
 
+/**
+ * Service that receives information about changes to the security system. Alarm decisions come
+ * from an {@link AlarmDecisionTable} compiled from {@link AlarmRules}; active sensors are counted
+ * per zone as they change, so no decision has to look at every sensor.
+ *
+ * State changes are serialized on the service, so it can be driven from several threads and
+ * listeners are notified in the order changes happen; classifying camera frames runs outside the
+ * lock. SecurityServiceConcurrencyTest checks concurrent histories against a sequential model.
+ *
+ * Sensor events allocate nothing once warmed up, as long as the repository doesn't either
+ * (see {@link com.udacity.catpoint.security.data.InMemorySecurityRepository}) and nobody is
+ * subscribed to the event feed. SecurityServiceAllocationTest checks this. Recording changes in
+ * an {@link AuditLog} doesn't allocate either.
+ */
 public class SecurityService {
 
     private final ImageService imageService;
     private final SecurityRepository securityRepository;
-    private final Set<StatusListener> statusListeners = new HashSet<>();
+    private final DetectionPolicy detectionPolicy;
+    private final SecurityEventPublisher eventPublisher = new SecurityEventPublisher();
+    //zone each sensor is counted as active in, or -1; updated in place so toggling doesn't allocate
+    private final Map<UUID, int[]> countedZones = new HashMap<>();
+    //copied on change and iterated by index, so notifying listeners doesn't allocate
+    private volatile StatusListener[] statusListeners = new StatusListener[0];
+    private volatile AuditLog auditLog;
     private boolean catDetectedStatus = false;
+    private AlarmDecisionTable decisionTable;
+    private int[] activeSensorsByZone;
+    private int activeSensors;
 
     public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
+        this(securityRepository, imageService, DetectionPolicy.everyFrame());
+    }
+
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, DetectionPolicy detectionPolicy) {
+        this(securityRepository, imageService, detectionPolicy, new AlarmRules());
+    }
+
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, DetectionPolicy detectionPolicy,
+                           AlarmRules alarmRules) {
         this.securityRepository = securityRepository;
         this.imageService = imageService;
+        this.detectionPolicy = detectionPolicy;
+        setAlarmRules(alarmRules);
+    }
+
+    /**
+     * Compiles and switches to new alarm rules. Active sensors are recounted from the repository.
+     */
+    public synchronized void setAlarmRules(AlarmRules rules) {
+        decisionTable = rules.compile();
+        activeSensorsByZone = new int[decisionTable.getZoneCount()];
+        activeSensors = 0;
+        countedZones.clear();
+        for (Sensor sensor : securityRepository.getSensors()) {
+            counted(sensor);
+        }
     }
 
-    public void setArmingStatus(ArmingStatus armingStatus) {
-        if (catDetectedStatus && armingStatus == ArmingStatus.ARMED_HOME) {
+    /**
+     * Number of active sensors in the zone. Zones without rules of their own are counted together
+     * with the default zone.
+     */
+    public synchronized int getActiveSensorCount(String zone) {
+        return activeSensorsByZone[decisionTable.zoneIndex(zone)];
+    }
+
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        if (catDetectedStatus && decisionTable.catTriggersAlarm(armingStatus)) {
             setAlarmStatus(AlarmStatus.ALARM);
         }
 
         if (armingStatus == ArmingStatus.DISARMED) {
             setAlarmStatus(AlarmStatus.NO_ALARM);
         } else {
-            ConcurrentSkipListSet<Sensor> sensors = new ConcurrentSkipListSet<>(getSensors());
-            sensors.forEach(sensor -> changeSensorActivationStatus(sensor, false));
+            //every sensor is reset under the old arming status, then stored in one repository write
+            List<Sensor> sensors = new ArrayList<>(securityRepository.getSensors());
+            for (Sensor sensor : sensors) {
+                applyActivation(sensor, false);
+            }
+            securityRepository.updateSensors(sensors);
+            for (Sensor sensor : sensors) {
+                publish(SecurityEvent.Type.SENSOR_UPDATED, null, null, false, sensor.getSensorId(), false);
+            }
         }
 
         securityRepository.setArmingStatus(armingStatus);
+        detectionPolicy.armingStatusChanged();
+        publish(SecurityEvent.Type.ARMING_STATUS, null, armingStatus, false, null, false);
     }
 
-    private void catDetected(Boolean cat) {
-        if (cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
+    //a cat counts while any camera still sees one; read under the lock so the latest answer wins
+    private synchronized void catDetected() {
+        boolean cat = detectionPolicy.isCatDetected();
+        if (cat && decisionTable.catTriggersAlarm(getArmingStatus())) {
             setAlarmStatus(AlarmStatus.ALARM);
-        } else {
-            boolean allSensorsInactive = securityRepository.getSensors().stream().noneMatch(Sensor::getActive);
-            if (allSensorsInactive) {
-                setAlarmStatus(AlarmStatus.NO_ALARM);
-            }
+        } else if (activeSensors == 0) {
+            setAlarmStatus(AlarmStatus.NO_ALARM);
         }
         catDetectedStatus = cat;
-        statusListeners.forEach(sl -> sl.catDetected(cat));
+        publish(SecurityEvent.Type.CAT_DETECTED, null, null, cat, null, false);
+        StatusListener[] listeners = statusListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].catDetected(cat);
+        }
+
+    }
+
+    public synchronized void addStatusListener(StatusListener statusListener) {
+        if (!Arrays.asList(statusListeners).contains(statusListener)) {
+            statusListeners = Arrays.copyOf(statusListeners, statusListeners.length + 1);
+            statusListeners[statusListeners.length - 1] = statusListener;
+        }
+    }
+
+    public synchronized void removeStatusListener(StatusListener statusListener) {
+        statusListeners = Arrays.stream(statusListeners).filter(sl -> !sl.equals(statusListener)).toArray(StatusListener[]::new);
+    }
 
+    /**
+     * Feed of every state change, with sequence numbers and replay. See {@link SecurityEventPublisher}.
+     */
+    public SecurityEventPublisher getEventPublisher() {
+        return eventPublisher;
     }
 
-    public void addStatusListener(StatusListener statusListener) {
-        statusListeners.add(statusListener);
+    /**
+     * Records every state change in the audit log from now on, or stops recording if null.
+     */
+    public void setAuditLog(AuditLog auditLog) {
+        this.auditLog = auditLog;
     }
 
-    public void removeStatusListener(StatusListener statusListener) {
-        statusListeners.remove(statusListener);
+    private void publish(SecurityEvent.Type type, AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected,
+                         UUID sensorId, boolean sensorActive) {
+        eventPublisher.publish(type, alarmStatus, armingStatus, catDetected, sensorId, sensorActive);
+        AuditLog audit = auditLog;
+        if (audit != null) {
+            audit.record(type, alarmStatus, armingStatus, catDetected, sensorId, sensorActive);
+        }
     }
 
-    public void setAlarmStatus(AlarmStatus status) {
+    public synchronized void setAlarmStatus(AlarmStatus status) {
         securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        publish(SecurityEvent.Type.ALARM_STATUS, status, null, false, null, false);
+        StatusListener[] listeners = statusListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].notify(status);
+        }
     }
 
     void handleSensorDeactivated() {
@@ -71,35 +174,63 @@ public class SecurityService {
             setAlarmStatus(AlarmStatus.NO_ALARM);
         }
     }
-    private void handleSensorActivated() {
-        if (securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
-            return; // No problem if the system is disarmed
-        }
-        AlarmStatus currentStatus = securityRepository.getAlarmStatus();
-        if (currentStatus == AlarmStatus.NO_ALARM) {
-            setAlarmStatus(AlarmStatus.PENDING_ALARM);
-        } else if (currentStatus == AlarmStatus.PENDING_ALARM) {
-            setAlarmStatus(AlarmStatus.ALARM);
+    private void handleSensorActivated(int zone, Sensor sensor) {
+        AlarmStatus next = decisionTable.afterActivation(zone, sensor.getSensorType(), securityRepository.getArmingStatus(),
+                securityRepository.getAlarmStatus(), activeSensorsByZone[zone]);
+        if (next != null) {
+            setAlarmStatus(next);
         }
     }
 
-    public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
-        if (!AlarmStatus.ALARM.equals(getAlarmStatus())) {
+    /**
+     * Whether the sensor was active before is taken from what the service last recorded for it, so
+     * repeating a change, or passing a copy whose activation is out of date, doesn't count it twice.
+     */
+    public synchronized void changeSensorActivationStatus(Sensor sensor, boolean active) {
+        applyActivation(sensor, active);
+        securityRepository.updateSensor(sensor);
+        publish(SecurityEvent.Type.SENSOR_UPDATED, null, null, false, sensor.getSensorId(), active);
+    }
+
+    //counts the change and updates the alarm, leaving storing and publishing it to the caller
+    private void applyActivation(Sensor sensor, boolean active) {
+        int zone = decisionTable.zoneIndex(sensor);
+        int[] counted = counted(sensor);
+        boolean wasActive = counted[0] >= 0;
+        count(counted, active ? zone : -1);
+        if (getAlarmStatus() != AlarmStatus.ALARM) {
             if (active) {
-                handleSensorActivated();
-            } else if (sensor.getActive()) {
+                handleSensorActivated(zone, sensor);
+            } else if (wasActive && decisionTable.deactivationCancelsPending(zone, sensor.getSensorType(), getArmingStatus())) {
                 handleSensorDeactivated();
             }
         }
         sensor.setActive(active);
-        securityRepository.updateSensor(sensor);
     }
 
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        processImage(DetectionPolicy.DEFAULT_CAMERA, currentCameraImage);
     }
 
-    public AlarmStatus getAlarmStatus() {
+    /**
+     * Sends a frame from the given camera to the image service, unless the detection policy
+     * decides this frame doesn't need to be classified. Each time the camera's consensus round is
+     * decided the cat status is applied again, and it stays set while any camera sees a cat.
+     * @param cameraId Camera that produced the frame
+     * @param currentCameraImage The frame
+     */
+    public void processImage(String cameraId, BufferedImage currentCameraImage) {
+        if (!detectionPolicy.shouldSample(cameraId, getArmingStatus())) {
+            return;
+        }
+        boolean cat = imageService.imageContainsCat(currentCameraImage, detectionPolicy.getConfidenceThreshold(cameraId));
+        detectionPolicy.recordResult(cameraId, cat);
+        if (detectionPolicy.vote(cameraId, cat)) {
+            catDetected();
+        }
+    }
+
+    public synchronized AlarmStatus getAlarmStatus() {
         return securityRepository.getAlarmStatus();
     }
 
@@ -107,15 +238,92 @@ public class SecurityService {
         return securityRepository.getSensors();
     }
 
-    public void addSensor(Sensor sensor) {
+    /**
+     * @see SecurityRepository#storesSensorsIncrementally()
+     */
+    public boolean storesSensorsIncrementally() {
+        return securityRepository.storesSensorsIncrementally();
+    }
+
+    /**
+     * Copies the sensors under the service lock, for threads that iterate them while others may be
+     * adding or removing sensors.
+     */
+    public synchronized List<Sensor> getSensorSnapshot() {
+        return new ArrayList<>(securityRepository.getSensors());
+    }
+
+    public synchronized boolean isCatDetected() {
+        return catDetectedStatus;
+    }
+
+    /**
+     * Adding a sensor that is already stored counts it once. Whether the stored copy is replaced is
+     * up to the repository; use {@link #changeSensorActivationStatus} to change a stored sensor.
+     */
+    public synchronized void addSensor(Sensor sensor) {
+        track(sensor);
         securityRepository.addSensor(sensor);
+        publish(SecurityEvent.Type.SENSOR_ADDED, null, null, false, sensor.getSensorId(), sensor.getActive());
     }
 
-    public void removeSensor(Sensor sensor) {
+    /**
+     * Adds many sensors with a single repository write, for example when importing a whole site.
+     * Subscribers to the event feed see a single {@link SecurityEvent.Type#SENSORS_ADDED} event.
+     */
+    public synchronized void addSensors(Collection<Sensor> sensors) {
+        for (Sensor sensor : sensors) {
+            track(sensor);
+        }
+        securityRepository.addSensors(sensors);
+        eventPublisher.publishSensorsAdded(sensors.size());
+        AuditLog audit = auditLog;
+        if (audit != null) {
+            audit.recordSensorsAdded(sensors.size());
+        }
+    }
+
+    public synchronized void removeSensor(Sensor sensor) {
+        int[] counted = countedZones.remove(sensor.getSensorId());
+        if (counted != null) {
+            count(counted, -1);
+        }
         securityRepository.removeSensor(sensor);
+        publish(SecurityEvent.Type.SENSOR_REMOVED, null, null, false, sensor.getSensorId(), sensor.getActive());
+    }
+
+    //records the sensor as it is now, whether or not it was seen before
+    private void track(Sensor sensor) {
+        count(counted(sensor), sensor.getActive() ? decisionTable.zoneIndex(sensor) : -1);
+    }
+
+    //a sensor seen for the first time is counted as it is, so counters only ever drop for sensors they include
+    private int[] counted(Sensor sensor) {
+        int[] counted = countedZones.get(sensor.getSensorId());
+        if (counted == null) {
+            counted = new int[]{-1};
+            countedZones.put(sensor.getSensorId(), counted);
+            count(counted, sensor.getActive() ? decisionTable.zoneIndex(sensor) : -1);
+        }
+        return counted;
+    }
+
+    private void count(int[] counted, int zone) {
+        if (counted[0] == zone) {
+            return;
+        }
+        if (counted[0] >= 0) {
+            activeSensorsByZone[counted[0]]--;
+            activeSensors--;
+        }
+        if (zone >= 0) {
+            activeSensorsByZone[zone]++;
+            activeSensors++;
+        }
+        counted[0] = zone;
     }
 
-    public ArmingStatus getArmingStatus() {
+    public synchronized ArmingStatus getArmingStatus() {
         return securityRepository.getArmingStatus();
     }
 }
@@ -0,0 +1,19 @@
+package com.udacity.catpoint.security.service;
+
+/**
+ * How a sensor activation affects the alarm.
+ */
+public enum SensorPolicy {
+    /**
+     * The activation is ignored.
+     */
+    IGNORE,
+    /**
+     * The first activation makes the alarm pending, a second one while pending sounds it.
+     */
+    TRIGGER,
+    /**
+     * The activation sounds the alarm straight away.
+     */
+    IMMEDIATE
+}
@@ -0,0 +1,38 @@
+package com.udacity.catpoint.security.tools;
+
+import com.udacity.catpoint.image.service.ImageService;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stub detector that sleeps for a seeded, exponentially distributed amount of time before
+ * asking the wrapped ImageService. Used to imitate a remote classifier during load tests.
+ */
+public class LatencyInjectingImageService implements ImageService {
+
+    private final ImageService delegate;
+    private final double meanLatencyNanos;
+    private final Random random;
+
+    public LatencyInjectingImageService(ImageService delegate, double meanLatencyMillis, long seed) {
+        this.delegate = delegate;
+        this.meanLatencyNanos = meanLatencyMillis * TimeUnit.MILLISECONDS.toNanos(1);
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        if (meanLatencyNanos > 0) {
+            long delay = (long) (-Math.log(1.0 - random.nextDouble()) * meanLatencyNanos);
+            long deadline = System.nanoTime() + delay;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+        return delegate.imageContainsCat(image, confidenceThreshold);
+    }
+}
@@ -0,0 +1,442 @@
+package com.udacity.catpoint.security.tools;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.LatencyHistogram;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.awt.image.BufferedImage;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Long running load generator for SecurityService. Drives a seeded mix of sensor events, arming
+ * changes and synthetic camera frames at fixed target rates and periodically reports throughput,
+ * latency percentiles, heap usage after GC, GC activity and the distribution of GC pauses as
+ * reported by the collectors, at their millisecond resolution. The same seed always produces the
+ * same sequence of events, see {@link #plan(int)}. The summary also shows how many bytes the
+ * driving thread allocated per event, which includes everything SecurityService did synchronously.
+ *
+ * Events are scheduled open-loop: latency is measured from when an event was due rather than from
+ * when it actually started, so a stalled engine shows up as latency instead of silently lowering
+ * the offered rate.
+ *
+ * Example:
+ *   java -cp Security-1.0-SNAPSHOT-jar-with-dependencies.jar \
+ *       com.udacity.catpoint.security.tools.LoadGenerator --duration=PT4H --sensor-rate=5000 --image-latency-ms=20
+ */
+public class LoadGenerator {
+
+    private static final int FRAME_POOL_SIZE = 16;
+    //parking is imprecise, so the last stretch before an event is due is spent spinning
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final LoadProfile profile;
+    private final PrintStream out;
+
+    public LoadGenerator(LoadProfile profile, PrintStream out) {
+        this.profile = profile;
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        LoadProfile profile = LoadProfile.fromArgs(args);
+        new LoadGenerator(profile, System.out).run();
+    }
+
+    public void run() {
+        Workload workload = new Workload();
+        SecurityRepository repository = new InMemorySecurityRepository();
+        workload.sensors.forEach(repository::addSensor);
+        long seed = profile.getSeed();
+        SecurityService securityService = new SecurityService(repository,
+                new LatencyInjectingImageService(new FakeImageService(seed), profile.getImageLatencyMillis(), seed + 1));
+        EventStream[] streams = workload.streams;
+
+        out.println("Starting load: " + profile);
+        HeapSample startHeap = HeapSample.take();
+        HeapSample intervalHeap = startHeap;
+        GcPauses gcPauses = new GcPauses();
+
+        long allocatedAtStart = allocatedBytes();
+        long start = System.nanoTime();
+        long end = start + profile.getDuration().toNanos();
+        long reportEvery = profile.getReportInterval().toNanos();
+        long nextReport = start + reportEvery;
+        long intervalStart = start;
+        for (EventStream stream : streams) {
+            stream.schedule(start);
+        }
+
+        while (true) {
+            EventStream next = workload.next();
+            long due = next == null ? end : Math.min(next.due, end);
+            if (due >= nextReport && nextReport < end) {
+                waitUntil(nextReport);
+                intervalHeap = report(streams, nextReport - intervalStart, intervalHeap, gcPauses);
+                intervalStart = nextReport;
+                nextReport += reportEvery;
+                continue;
+            }
+            if (next == null || next.due >= end) {
+                break;
+            }
+            waitUntil(next.due);
+
+            if (next == workload.sensorStream) {
+                Sensor sensor = workload.nextSensor();
+                securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+            } else if (next == workload.armingStream) {
+                securityService.setArmingStatus(workload.nextArmingStatus());
+            } else {
+                securityService.processImage(workload.frames[workload.nextFrame()]);
+            }
+            next.completed(System.nanoTime());
+        }
+
+        report(streams, System.nanoTime() - intervalStart, intervalHeap, gcPauses);
+        summarize(streams, System.nanoTime() - start, startHeap, allocatedBytes() - allocatedAtStart, gcPauses);
+        gcPauses.close();
+    }
+
+    /**
+     * Lists the first events a run with this profile drives, without waiting or touching a
+     * service: the stream, when the event is due relative to the start, and the sensor, arming
+     * status or frame it uses. Runs with the same seed drive exactly these events.
+     */
+    public List<String> plan(int count) {
+        Workload workload = new Workload();
+        for (EventStream stream : workload.streams) {
+            stream.schedule(0);
+        }
+        List<String> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EventStream next = workload.next();
+            if (next == null) {
+                break;
+            }
+            String choice;
+            if (next == workload.sensorStream) {
+                choice = workload.nextSensor().getName();
+            } else if (next == workload.armingStream) {
+                choice = workload.nextArmingStatus().name();
+            } else {
+                choice = "frame-" + workload.nextFrame();
+            }
+            events.add(next.name + " @" + next.due + "ns " + choice);
+            next.schedule(next.due);
+        }
+        return events;
+    }
+
+    private List<Sensor> createSensors(Random random) {
+        SensorType[] types = SensorType.values();
+        List<Sensor> sensors = new ArrayList<>(profile.getSensorCount());
+        for (int i = 0; i < profile.getSensorCount(); i++) {
+            Sensor sensor = new Sensor(String.format("sensor-%06d", i), types[i % types.length]);
+            sensor.setSensorId(new UUID(random.nextLong(), random.nextLong()));
+            sensors.add(sensor);
+        }
+        return sensors;
+    }
+
+    private BufferedImage[] createFrames(Random random) {
+        BufferedImage[] frames = new BufferedImage[FRAME_POOL_SIZE];
+        int[] row = new int[profile.getFrameWidth()];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new BufferedImage(profile.getFrameWidth(), profile.getFrameHeight(), BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < profile.getFrameHeight(); y++) {
+                for (int x = 0; x < row.length; x++) {
+                    row[x] = random.nextInt(0x1000000);
+                }
+                frames[i].setRGB(0, y, row.length, 1, row, 0, row.length);
+            }
+        }
+        return frames;
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private HeapSample report(EventStream[] streams, long intervalNanos, HeapSample previous, GcPauses gcPauses) {
+        HeapSample heap = HeapSample.take();
+        double seconds = intervalNanos / 1e9;
+        long events = 0;
+        for (EventStream stream : streams) {
+            events += stream.intervalCount;
+        }
+        out.printf("--- interval %.1fs: %.1f events/s, heap after GC %.1fMB (%+.1fMB), GC %d collections / %dms%n",
+                seconds, events / seconds, heap.usedAfterGc / 1e6, (heap.usedAfterGc - previous.usedAfterGc) / 1e6,
+                heap.gcCount - previous.gcCount, heap.gcMillis - previous.gcMillis);
+        for (EventStream stream : streams) {
+            if (stream.enabled()) {
+                out.printf("    %-7s %.1f/s %s%n", stream.name, stream.intervalCount / seconds, stream.interval.summary());
+                stream.interval.reset();
+                stream.intervalCount = 0;
+            }
+        }
+        out.printf("    %-7s %s%n", "gc", gcPauses.interval.summary());
+        gcPauses.interval.reset();
+        return heap;
+    }
+
+    private void summarize(EventStream[] streams, long elapsedNanos, HeapSample startHeap, long allocated, GcPauses gcPauses) {
+        HeapSample heap = HeapSample.take();
+        double seconds = elapsedNanos / 1e9;
+        out.printf("=== finished after %.1fs%n", seconds);
+        for (EventStream stream : streams) {
+            if (stream.enabled()) {
+                out.printf("    %-7s %.1f/s sustained %s%n", stream.name, stream.total.getCount() / seconds, stream.total.summary());
+            }
+        }
+        out.printf("    heap after GC %.1fMB -> %.1fMB (%+.1fMB), GC %d collections / %dms total%n",
+                startHeap.usedAfterGc / 1e6, heap.usedAfterGc / 1e6, (heap.usedAfterGc - startHeap.usedAfterGc) / 1e6,
+                heap.gcCount - startHeap.gcCount, heap.gcMillis - startHeap.gcMillis);
+        out.printf("    gc pauses %s%n", gcPauses.total.summary());
+        long events = 0;
+        for (EventStream stream : streams) {
+            events += stream.total.getCount();
+        }
+        if (events > 0) {
+            out.printf("    driver thread allocated %.1f bytes/event%n", (double) allocated / events);
+        }
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads instanceof com.sun.management.ThreadMXBean
+                ? ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes()
+                : 0;
+    }
+
+    /**
+     * Everything a run derives from the seed: the sensors, the frames, and the event streams and
+     * the choices they make.
+     */
+    private class Workload {
+        private final List<Sensor> sensors;
+        private final BufferedImage[] frames;
+        private final SensorPicker picker;
+        private final EventStream sensorStream;
+        private final EventStream armingStream;
+        private final EventStream frameStream;
+        private final EventStream[] streams;
+        private final ArmingStatus[] armingStatuses = ArmingStatus.values();
+
+        Workload() {
+            long seed = profile.getSeed();
+            Random setupRandom = new Random(seed);
+            sensors = createSensors(setupRandom);
+            frames = createFrames(setupRandom);
+            picker = new SensorPicker(sensors, setupRandom);
+            sensorStream = new EventStream("sensor", profile.getSensorEventsPerSecond(), new Random(seed + 2));
+            armingStream = new EventStream("arming", profile.getArmingChangesPerSecond(), new Random(seed + 3));
+            frameStream = new EventStream("frame", profile.getFramesPerSecond(), new Random(seed + 4));
+            streams = new EventStream[]{sensorStream, armingStream, frameStream};
+        }
+
+        //the stream whose event is due first, or null if every stream is disabled
+        EventStream next() {
+            EventStream next = null;
+            for (EventStream stream : streams) {
+                if (stream.enabled() && (next == null || stream.due < next.due)) {
+                    next = stream;
+                }
+            }
+            return next;
+        }
+
+        Sensor nextSensor() {
+            return picker.next(sensorStream.random);
+        }
+
+        ArmingStatus nextArmingStatus() {
+            return armingStatuses[armingStream.random.nextInt(armingStatuses.length)];
+        }
+
+        int nextFrame() {
+            return frameStream.random.nextInt(frames.length);
+        }
+    }
+
+    /**
+     * One seeded source of events with its own schedule and latency histograms.
+     */
+    private class EventStream {
+        private final String name;
+        private final double meanGapNanos;
+        private final Random random;
+        private final LatencyHistogram interval = new LatencyHistogram();
+        private final LatencyHistogram total = new LatencyHistogram();
+        private long due;
+        private long intervalCount;
+
+        EventStream(String name, double ratePerSecond, Random random) {
+            this.name = name;
+            this.meanGapNanos = ratePerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / ratePerSecond : 0;
+            this.random = random;
+        }
+
+        boolean enabled() {
+            return meanGapNanos > 0;
+        }
+
+        void schedule(long from) {
+            due = from + gap();
+        }
+
+        void completed(long now) {
+            interval.record(now - due);
+            total.record(now - due);
+            intervalCount++;
+            schedule(due);
+        }
+
+        private long gap() {
+            if (profile.getArrival() == LoadProfile.Arrival.CONSTANT) {
+                return (long) meanGapNanos;
+            }
+            return (long) (-Math.log(1.0 - random.nextDouble()) * meanGapNanos);
+        }
+    }
+
+    /**
+     * Chooses sensors either uniformly or following a Zipf distribution, so a handful of sensors
+     * receive most of the traffic the way busy doors do in a real installation.
+     */
+    private class SensorPicker {
+        private final Sensor[] sensors;
+        private final double[] cumulative;
+
+        SensorPicker(List<Sensor> sensorList, Random random) {
+            List<Sensor> shuffled = new ArrayList<>(sensorList);
+            Collections.shuffle(shuffled, random);
+            sensors = shuffled.toArray(new Sensor[0]);
+            cumulative = new double[sensors.length];
+            double sum = 0;
+            for (int rank = 0; rank < sensors.length; rank++) {
+                sum += profile.getSelection() == LoadProfile.Selection.ZIPF
+                        ? 1.0 / Math.pow(rank + 1, profile.getZipfExponent())
+                        : 1.0;
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < cumulative.length; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        Sensor next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return sensors[Math.min(index, sensors.length - 1)];
+        }
+    }
+
+    /**
+     * Histograms of the GC pauses the collectors report while the run lasts. ZGC and Shenandoah
+     * also report whole concurrent cycles under a "Cycles" collector; those aren't pauses and are
+     * left out.
+     */
+    private static class GcPauses implements NotificationListener, AutoCloseable {
+        private final LatencyHistogram interval = new LatencyHistogram();
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+        GcPauses() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gc instanceof NotificationEmitter && !gc.getName().endsWith("Cycles")) {
+                    ((NotificationEmitter) gc).addNotificationListener(this, null, null);
+                    emitters.add((NotificationEmitter) gc);
+                }
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long nanos = TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration());
+            interval.record(nanos);
+            total.record(nanos);
+        }
+
+        @Override
+        public void close() {
+            for (NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    //already gone
+                }
+            }
+        }
+    }
+
+    /**
+     * Heap occupancy right after the most recent collection plus cumulative GC counters.
+     * Watching the after-GC figure over hours shows whether anything is leaking.
+     */
+    private static class HeapSample {
+        private final long usedAfterGc;
+        private final long gcCount;
+        private final long gcMillis;
+
+        private HeapSample(long usedAfterGc, long gcCount, long gcMillis) {
+            this.usedAfterGc = usedAfterGc;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        static HeapSample take() {
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                MemoryUsage afterGc = pool.getCollectionUsage();
+                if (pool.getType() == MemoryType.HEAP && afterGc != null) {
+                    used += afterGc.getUsed();
+                }
+            }
+            long count = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                millis += Math.max(0, gc.getCollectionTime());
+            }
+            return new HeapSample(used, count, millis);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.udacity.catpoint.security.tools;
+
+import java.time.Duration;
+
+/**
+ * Settings for a {@link LoadGenerator} run. Every value can be overridden on the command line
+ * with --name=value, for example --duration=PT2H --sensor-rate=5000 --seed=7
+ */
+public class LoadProfile {
+
+    /**
+     * How the gap between two events of the same stream is chosen.
+     */
+    public enum Arrival {
+        CONSTANT, POISSON
+    }
+
+    /**
+     * How the sensor for the next sensor event is picked.
+     */
+    public enum Selection {
+        UNIFORM, ZIPF
+    }
+
+    private Duration duration = Duration.ofMinutes(5);
+    private Duration reportInterval = Duration.ofSeconds(30);
+    private long seed = 42;
+    private int sensorCount = 100;
+    private double sensorEventsPerSecond = 1000;
+    private double armingChangesPerSecond = 0.5;
+    private double framesPerSecond = 10;
+    private Arrival arrival = Arrival.POISSON;
+    private Selection selection = Selection.ZIPF;
+    private double zipfExponent = 1.1;
+    private double imageLatencyMillis = 0;
+    private int frameWidth = 640;
+    private int frameHeight = 480;
+
+    public static LoadProfile fromArgs(String[] args) {
+        LoadProfile profile = new LoadProfile();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (name) {
+                case "duration": profile.duration = Duration.parse(value); break;
+                case "report-interval": profile.reportInterval = Duration.parse(value); break;
+                case "seed": profile.seed = Long.parseLong(value); break;
+                case "sensors": profile.sensorCount = Integer.parseInt(value); break;
+                case "sensor-rate": profile.sensorEventsPerSecond = Double.parseDouble(value); break;
+                case "arming-rate": profile.armingChangesPerSecond = Double.parseDouble(value); break;
+                case "frame-rate": profile.framesPerSecond = Double.parseDouble(value); break;
+                case "arrival": profile.arrival = Arrival.valueOf(value.toUpperCase()); break;
+                case "selection": profile.selection = Selection.valueOf(value.toUpperCase()); break;
+                case "zipf-exponent": profile.zipfExponent = Double.parseDouble(value); break;
+                case "image-latency-ms": profile.imageLatencyMillis = Double.parseDouble(value); break;
+                case "frame-width": profile.frameWidth = Integer.parseInt(value); break;
+                case "frame-height": profile.frameHeight = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        if (profile.sensorCount <= 0) {
+            throw new IllegalArgumentException("At least one sensor is required");
+        }
+        return profile;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getReportInterval() {
+        return reportInterval;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getSensorCount() {
+        return sensorCount;
+    }
+
+    public double getSensorEventsPerSecond() {
+        return sensorEventsPerSecond;
+    }
+
+    public double getArmingChangesPerSecond() {
+        return armingChangesPerSecond;
+    }
+
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    public Arrival getArrival() {
+        return arrival;
+    }
+
+    public Selection getSelection() {
+        return selection;
+    }
+
+    public double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    public double getImageLatencyMillis() {
+        return imageLatencyMillis;
+    }
+
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("duration=%s seed=%d sensors=%d sensor-rate=%.1f/s arming-rate=%.2f/s frame-rate=%.1f/s "
+                        + "arrival=%s selection=%s image-latency=%.1fms frame=%dx%d",
+                duration, seed, sensorCount, sensorEventsPerSecond, armingChangesPerSecond, framesPerSecond,
+                arrival, selection, imageLatencyMillis, frameWidth, frameHeight);
+    }
+}
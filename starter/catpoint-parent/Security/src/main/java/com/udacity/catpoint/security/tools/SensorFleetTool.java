@@ -0,0 +1,49 @@
+package com.udacity.catpoint.security.tools;
+
+import com.udacity.catpoint.security.application.CatpointServices;
+import com.udacity.catpoint.security.fleet.ImportReport;
+import com.udacity.catpoint.security.fleet.SensorExporter;
+import com.udacity.catpoint.security.fleet.SensorImporter;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Imports or exports the application's sensors in bulk, using the same repository the
+ * application would (see {@link CatpointServices}). The format follows the file extension: .csv
+ * for CSV, anything else for NDJSON.
+ *
+ *   java -Dcatpoint.jdbc.url=jdbc:h2:~/catpoint -cp Security-1.0-SNAPSHOT-jar-with-dependencies.jar \
+ *       com.udacity.catpoint.security.tools.SensorFleetTool import site.ndjson [--all-or-nothing]
+ *   java -cp ... com.udacity.catpoint.security.tools.SensorFleetTool export sensors.csv
+ */
+public class SensorFleetTool {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !(args[0].equals("import") || args[0].equals("export"))) {
+            throw new IllegalArgumentException("Usage: SensorFleetTool import|export <file> [--all-or-nothing]");
+        }
+        Path file = Paths.get(args[1]);
+        boolean allOrNothing = args.length > 2 && args[2].equals("--all-or-nothing");
+        SecurityService securityService = CatpointServices.start().securityServiceReady().join();
+
+        if (args[0].equals("export")) {
+            long start = System.nanoTime();
+            long count = SensorExporter.exportTo(file, securityService.getSensors());
+            System.out.printf("exported %d sensors to %s in %.1fs%n", count, file, (System.nanoTime() - start) / 1e9);
+            return;
+        }
+        ImportReport report = new SensorImporter(securityService)
+                .setAllOrNothing(allOrNothing)
+                .setProgressListener((records, rejected) ->
+                        System.out.printf("read %d records, %d rejected%n", records, rejected), SensorImporter.DEFAULT_PROGRESS_INTERVAL)
+                .importFrom(file);
+        report.getErrors().forEach(System.out::println);
+        System.out.println(report);
+        if (report.getRejected() > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.udacity.catpoint.security.tools;
+
+import com.udacity.catpoint.security.application.CatpointApp;
+import com.udacity.catpoint.security.application.StartupTimer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Launches the application repeatedly in fresh JVMs and reports time-to-first-frame. Extra JVM
+ * options can be passed to compare setups, for example an AppCDS archive:
+ *
+ *   java -cp Security-1.0-SNAPSHOT-jar-with-dependencies.jar com.udacity.catpoint.security.tools.StartupBenchmark \
+ *       --runs=10 --java=target/catpoint-runtime/bin/java --jvm-arg=-XX:SharedArchiveFile=target/catpoint-runtime/catpoint.jsa
+ *
+ * Needs a display, since the window has to actually appear.
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = 10;
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> jvmArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(arg.substring("--runs=".length()));
+            } else if (arg.startsWith("--java=")) {
+                java = arg.substring("--java=".length());
+            } else if (arg.startsWith("--jvm-arg=")) {
+                jvmArgs.add(arg.substring("--jvm-arg=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        List<Long> millis = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            long result = launch(java, jvmArgs);
+            System.out.printf("run %d: %dms%n", i + 1, result);
+            millis.add(result);
+        }
+        Collections.sort(millis);
+        System.out.printf("time-to-first-frame over %d runs: min=%dms median=%dms p90=%dms max=%dms%n",
+                runs, millis.get(0), millis.get(millis.size() / 2),
+                millis.get(Math.min(millis.size() - 1, (int) (millis.size() * 0.9))), millis.get(millis.size() - 1));
+    }
+
+    private static long launch(String java, List<String> jvmArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmArgs);
+        command.add("-D" + StartupTimer.EXIT_PROPERTY + "=true");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(CatpointApp.class.getName());
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long result = -1;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(StartupTimer.REPORT_PREFIX)) {
+                    result = Long.parseLong(line.substring(StartupTimer.REPORT_PREFIX.length(), line.length() - 2));
+                }
+            }
+        }
+        if (process.waitFor() != 0 || result < 0) {
+            throw new IllegalStateException("Application did not report a first frame, exit code " + process.exitValue());
+        }
+        return result;
+    }
+}
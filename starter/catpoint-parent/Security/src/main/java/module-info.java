@@ -6,5 +6,9 @@ module com.udacity.catpoint.security {
     requires com.google.common;
     requires com.google.gson;
     requires java.sql;
+    requires java.management;
+    requires jdk.management;
+    requires org.slf4j;
     opens com.udacity.catpoint.security.data to com.google.gson;
+    uses com.udacity.catpoint.image.service.ImageService;
 }
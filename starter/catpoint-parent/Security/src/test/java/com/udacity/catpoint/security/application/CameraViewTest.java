@@ -0,0 +1,73 @@
+package com.udacity.catpoint.security.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CameraViewTest {
+
+    @Test
+    public void frameIsScaledToTheViewOffTheCallingThread() throws InterruptedException {
+        CameraView view = new CameraView(300, 225);
+        view.setBackground(Color.WHITE);
+        view.setFrame(solid(1200, 900, Color.RED));
+        await(() -> view.getRenderedFrames() == 1);
+
+        BufferedImage displayed = view.getDisplayedImage();
+        assertEquals(300, displayed.getWidth());
+        assertEquals(225, displayed.getHeight());
+        assertEquals(Color.RED.getRGB(), displayed.getRGB(150, 112));
+    }
+
+    @Test
+    public void burstOfFramesEndsOnTheLatest() throws InterruptedException {
+        CameraView view = new CameraView(320, 240);
+        BufferedImage[] frames = new BufferedImage[100];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = solid(640, 480, new Color(i, 0, 0));
+        }
+        for (BufferedImage frame : frames) {
+            view.setFrame(frame);
+        }
+        await(() -> view.getRenderedFrames() + view.getDroppedFrames() == frames.length);
+        assertEquals(new Color(99, 0, 0).getRGB(), view.getDisplayedImage().getRGB(160, 120));
+    }
+
+    @Test
+    public void buffersAreReused() throws InterruptedException {
+        CameraView view = new CameraView(100, 100);
+        view.setFrame(solid(50, 50, Color.RED));
+        await(() -> view.getRenderedFrames() == 1);
+        BufferedImage first = view.getDisplayedImage();
+        view.setFrame(solid(50, 50, Color.GREEN));
+        await(() -> view.getRenderedFrames() == 2);
+        BufferedImage second = view.getDisplayedImage();
+        view.setFrame(solid(50, 50, Color.BLUE));
+        await(() -> view.getRenderedFrames() == 3);
+
+        assertNotSame(first, second);
+        assertSame(first, view.getDisplayedImage());
+    }
+
+    private static BufferedImage solid(int width, int height, Color color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return image;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.archive.FrameArchive;
+import com.udacity.catpoint.image.service.SharedDetectionService;
+import com.udacity.catpoint.security.audit.AuditLog;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JdbcSecurityRepository;
+import com.udacity.catpoint.security.service.EventScheduler;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatpointServicesTest {
+
+    @TempDir
+    Path directory;
+
+    private CatpointServices services;
+
+    @AfterEach
+    public void cleanUp() throws Exception {
+        System.clearProperty(CatpointServices.JDBC_URL_PROPERTY);
+        System.clearProperty(CatpointServices.ARCHIVE_DIR_PROPERTY);
+        System.clearProperty(CatpointServices.AUDIT_DIR_PROPERTY);
+        AuditLog auditLog = services.auditLogReady().exceptionally(e -> null).get(5, TimeUnit.SECONDS);
+        if (auditLog != null) {
+            auditLog.close();
+        }
+        FrameArchive frameArchive = services.frameArchiveReady().exceptionally(e -> null).get(5, TimeUnit.SECONDS);
+        if (frameArchive != null) {
+            frameArchive.close();
+        }
+        EventScheduler scheduler = services.eventSchedulerReady().exceptionally(e -> null).get(5, TimeUnit.SECONDS);
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void everyServiceIsBuiltAndWiredTogether() throws Exception {
+        System.setProperty(CatpointServices.JDBC_URL_PROPERTY, "jdbc:h2:mem:catpoint-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        System.setProperty(CatpointServices.ARCHIVE_DIR_PROPERTY, directory.resolve("archive").toString());
+        System.setProperty(CatpointServices.AUDIT_DIR_PROPERTY, directory.resolve("audit").toString());
+        services = CatpointServices.start();
+
+        SecurityService securityService = services.securityServiceReady().get(5, TimeUnit.SECONDS);
+        assertTrue(services.securityRepositoryReady().get(5, TimeUnit.SECONDS) instanceof JdbcSecurityRepository);
+        assertNotNull(services.detectorsReady().get(5, TimeUnit.SECONDS));
+        assertNotNull(services.imageServiceReady().get(5, TimeUnit.SECONDS));
+        assertNotNull(services.frameArchiveReady().get(5, TimeUnit.SECONDS));
+        AuditLog auditLog = services.auditLogReady().get(5, TimeUnit.SECONDS);
+
+        //the archive listens to the event feed and the audit log records the service's changes
+        assertEquals(1, securityService.getEventPublisher().getSubscriberCount());
+        securityService.setAlarmStatus(AlarmStatus.ALARM);
+        assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+        assertEquals(1, auditLog.getWritten());
+        assertTrue(Files.size(directory.resolve("audit").resolve(AuditLog.FILE_NAME)) > 0);
+
+        //the user interface sends its events through the scheduler's lanes
+        EventScheduler scheduler = services.eventSchedulerReady().get(5, TimeUnit.SECONDS);
+        scheduler.setArmingStatus(ArmingStatus.ARMED_HOME).get(5, TimeUnit.SECONDS);
+        assertEquals(ArmingStatus.ARMED_HOME, securityService.getArmingStatus());
+    }
+
+    @Test
+    public void framesAreOnlyAnalysedWhileArmed() throws Exception {
+        System.setProperty(CatpointServices.JDBC_URL_PROPERTY, "jdbc:h2:mem:catpoint-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        services = CatpointServices.start();
+        SecurityService securityService = services.securityServiceReady().get(5, TimeUnit.SECONDS);
+        SharedDetectionService imageService = services.imageServiceReady().get(5, TimeUnit.SECONDS);
+
+        securityService.processImage(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB));
+        assertEquals(0, imageService.getAnalysedFrames());
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.processImage(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB));
+        assertEquals(1, imageService.getAnalysedFrames());
+    }
+
+    @Test
+    public void optionalServicesAreNullUnlessConfigured() throws Exception {
+        System.setProperty(CatpointServices.JDBC_URL_PROPERTY, "jdbc:h2:mem:catpoint-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        services = CatpointServices.start();
+
+        assertNotNull(services.securityServiceReady().get(5, TimeUnit.SECONDS));
+        assertNull(services.frameArchiveReady().get(5, TimeUnit.SECONDS));
+        assertNull(services.auditLogReady().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failureToBuildAServiceCompletesItsFutureExceptionally() throws Exception {
+        System.setProperty(CatpointServices.JDBC_URL_PROPERTY, "jdbc:h2:mem:catpoint-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        //a file where the archive directory should be
+        Path file = Files.createFile(directory.resolve("not-a-directory"));
+        System.setProperty(CatpointServices.ARCHIVE_DIR_PROPERTY, file.toString());
+        services = CatpointServices.start();
+
+        assertThrows(Exception.class, () -> services.frameArchiveReady().get(5, TimeUnit.SECONDS));
+        assertTrue(services.frameArchiveReady().isCompletedExceptionally());
+        //services that don't depend on the archive are unaffected
+        assertNotNull(services.securityServiceReady().get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,34 @@
+package com.udacity.catpoint.security.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StartupTimerTest {
+
+    @Test
+    public void onlyTheFirstFrameIsReported() {
+        PrintStream original = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setProperty(StartupTimer.REPORT_PROPERTY, "true");
+        try {
+            System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+            StartupTimer.firstFramePainted();
+            StartupTimer.firstFramePainted();
+        } finally {
+            System.setOut(original);
+            System.clearProperty(StartupTimer.REPORT_PROPERTY);
+        }
+
+        String[] lines = captured.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].matches(StartupTimer.REPORT_PREFIX + "\\d+ms"), lines[0]);
+        //measured from JVM start, so it can't be more than the time the JVM has been up
+        long millis = Long.parseLong(lines[0].substring(StartupTimer.REPORT_PREFIX.length(), lines[0].length() - 2));
+        assertTrue(millis <= java.lang.management.ManagementFactory.getRuntimeMXBean().getUptime() + 1_000);
+    }
+}
@@ -0,0 +1,159 @@
+package com.udacity.catpoint.security.archive;
+
+import com.udacity.catpoint.security.data.*;
+import com.udacity.catpoint.security.service.SecurityEventPublisher;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private FrameArchive archive;
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        archive.close();
+    }
+
+    @Test
+    public void identicalFramesAreStoredOnce() throws IOException {
+        archive = new FrameArchive(directory, Duration.ofSeconds(10));
+        ByteBuffer frame = frame("same picture", 1000);
+        for (int i = 0; i < 5; i++) {
+            archive.archive("front", frame, 1000 + i * 100);
+        }
+        assertEquals(0, frame.position());
+        archive.archive("front", frame("other picture", 1000), 1500);
+
+        assertEquals(6, archive.getFrameCount("front"));
+        assertEquals(2, archive.getStoredFrameCount("front"));
+    }
+
+    @Test
+    public void oldFramesAreDroppedByTimeAndSpace() throws IOException {
+        archive = new FrameArchive(directory, Duration.ofSeconds(1), Duration.ofSeconds(1), 10_000, 100);
+        for (int i = 0; i < 5; i++) {
+            archive.archive("front", frame("frame" + i, 100), i * 400);
+        }
+        //window is one second, so frames at 0 and 400 have expired by 1600
+        assertEquals(3, archive.getFrameCount("front"));
+
+        for (int i = 0; i < 50; i++) {
+            archive.archive("back", frame("frame" + i, 1000), 10_000 + i);
+        }
+        //only ten 1000 byte frames fit in the ring
+        assertTrue(archive.getStoredFrameCount("back") <= 10);
+        assertEquals(archive.getStoredFrameCount("back"), archive.getFrameCount("back"));
+    }
+
+    @Test
+    public void repeatedFramesAreFoundAfterTheRingWrapsManyTimes() throws IOException {
+        archive = new FrameArchive(directory, Duration.ofHours(1), Duration.ofHours(1), 16 * 100, 64);
+        //cycling through more pictures than fit evicts every blob many times over
+        for (int i = 0; i < 1_000; i++) {
+            archive.archive("front", frame("picture" + i % 40, 100), i);
+        }
+        assertEquals(16, archive.getStoredFrameCount("front"));
+        assertEquals(16, archive.getFrameCount("front"));
+
+        //pictures still in the ring are found again instead of pushing out older ones
+        for (int i = 992; i < 1_000; i++) {
+            archive.archive("front", frame("picture" + i % 40, 100), 1_000 + i);
+        }
+        assertEquals(16, archive.getStoredFrameCount("front"));
+        assertEquals(24, archive.getFrameCount("front"));
+    }
+
+    @Test
+    public void alarmPersistsFramesAroundIt() throws Exception {
+        archive = new FrameArchive(directory, Duration.ofSeconds(30), Duration.ofHours(1),
+                FrameArchive.DEFAULT_BYTES_PER_CAMERA, FrameArchive.DEFAULT_FRAMES_PER_CAMERA);
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+        archive.subscribeTo(securityService.getEventPublisher());
+
+        long now = System.currentTimeMillis();
+        archive.archive("front", frame("long before", 100), now - 60_000);
+        archive.archive("front", frame("just before", 100), now - 1_000);
+        archive.archive("front", frame("just before", 100), now - 500);
+        securityService.setAlarmStatus(AlarmStatus.ALARM);
+
+        //the alarm is handled on the event feed's thread, wait until the frames before it are written
+        Path incident = awaitManifest(directory.resolve("incidents"), 2);
+        archive.archive("front", frame("just after", 100), System.currentTimeMillis());
+        awaitManifest(directory.resolve("incidents"), 3);
+
+        List<String> manifest = Files.readAllLines(incident.resolve("front.frames"));
+        assertEquals(3, manifest.size());
+        try (Stream<Path> files = Files.list(incident)) {
+            List<Path> blobs = files.filter(p -> p.toString().endsWith(".bin")).collect(Collectors.toList());
+            assertEquals(2, blobs.size());
+            assertTrue(new String(Files.readAllBytes(blobs.get(0)), StandardCharsets.UTF_8).startsWith("just "));
+        }
+    }
+
+    @Test
+    public void alarmAfterTheFeedOverrunsStillPersistsFrames() throws Exception {
+        archive = new FrameArchive(directory, Duration.ofSeconds(30), Duration.ofHours(1),
+                FrameArchive.DEFAULT_BYTES_PER_CAMERA, FrameArchive.DEFAULT_FRAMES_PER_CAMERA);
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+        archive.subscribeTo(securityService.getEventPublisher());
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 4 * SecurityEventPublisher.DEFAULT_REPLAY_CAPACITY; i++) {
+            sensors.add(new Sensor("sensor" + i, SensorType.WINDOW));
+        }
+        securityService.addSensors(sensors);
+
+        //arming resets every sensor with an event each, far more than the feed keeps
+        for (int i = 0; i < 50 && archive.getResubscribeCount() == 0; i++) {
+            securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            securityService.setArmingStatus(ArmingStatus.DISARMED);
+        }
+        assertTrue(archive.getResubscribeCount() > 0);
+
+        archive.archive("front", frame("just before", 100), System.currentTimeMillis() - 500);
+        securityService.setAlarmStatus(AlarmStatus.ALARM);
+        Path incident = awaitManifest(directory.resolve("incidents"), 1);
+        assertEquals(1, Files.readAllLines(incident.resolve("front.frames")).size());
+    }
+
+    private static Path awaitManifest(Path incidents, int lines) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (System.nanoTime() < deadline) {
+            if (Files.exists(incidents)) {
+                try (Stream<Path> list = Files.list(incidents)) {
+                    Path incident = list.findFirst().orElse(null);
+                    Path manifest = incident == null ? null : incident.resolve("front.frames");
+                    if (manifest != null && Files.exists(manifest) && Files.readAllLines(manifest).size() >= lines) {
+                        return incident;
+                    }
+                }
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("No incident was written");
+    }
+
+    private static ByteBuffer frame(String contents, int size) {
+        byte[] bytes = new byte[size];
+        byte[] text = contents.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(text, 0, bytes, 0, text.length);
+        return ByteBuffer.wrap(bytes);
+    }
+}
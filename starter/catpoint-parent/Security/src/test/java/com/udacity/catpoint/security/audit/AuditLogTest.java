@@ -0,0 +1,186 @@
+package com.udacity.catpoint.security.audit;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.management.ThreadMXBean;
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.security.data.*;
+import com.udacity.catpoint.security.service.SecurityEvent;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    private AuditLog auditLog;
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        auditLog.close();
+    }
+
+    @Test
+    public void stateChangesAndDetectionsAreWrittenAsJsonLines() throws IOException {
+        auditLog = new AuditLog(directory);
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+        securityService.setAuditLog(auditLog);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.changeSensorActivationStatus(door, true);
+        auditLog.detected(null, new DetectionResult(List.of(new DetectionResult.Label("Cat", 97.5f),
+                new DetectionResult.Label("Say \"cheese\"", 60f))));
+        assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+
+        List<JsonObject> lines = read(directory.resolve(AuditLog.FILE_NAME));
+        //arming resets every sensor before the arming status itself changes
+        assertEquals(List.of("SENSOR_ADDED", "SENSOR_UPDATED", "ARMING_STATUS", "ALARM_STATUS", "SENSOR_UPDATED", "DETECTION"),
+                lines.stream().map(line -> line.get("event").getAsString()).collect(Collectors.toList()));
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(i + 1, lines.get(i).get("seq").getAsLong());
+        }
+        assertEquals(door.getSensorId().toString(), lines.get(0).get("sensor").getAsString());
+        assertFalse(lines.get(1).get("active").getAsBoolean());
+        assertEquals("ARMED_HOME", lines.get(2).get("arming").getAsString());
+        assertEquals("PENDING_ALARM", lines.get(3).get("alarm").getAsString());
+        assertTrue(lines.get(4).get("active").getAsBoolean());
+        JsonObject cat = lines.get(5).getAsJsonArray("labels").get(0).getAsJsonObject();
+        assertEquals("Cat", cat.get("name").getAsString());
+        assertEquals(97.5f, cat.get("confidence").getAsFloat());
+        assertEquals("Say \"cheese\"", lines.get(5).getAsJsonArray("labels").get(1).getAsJsonObject().get("name").getAsString());
+        assertEquals(6, auditLog.getWritten());
+        assertEquals(0, auditLog.getDropped());
+    }
+
+    @Test
+    public void filesRollOverKeepingTheNewest() throws IOException {
+        auditLog = new AuditLog(directory, 64, 2_000, 2);
+        UUID sensor = UUID.randomUUID();
+        for (int i = 0; i < 500; i++) {
+            auditLog.record(SecurityEvent.Type.SENSOR_UPDATED, null, null, false, sensor, i % 2 == 0);
+            if (i % 50 == 49) {
+                assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(0, auditLog.getDropped());
+
+        assertTrue(Files.size(directory.resolve("audit.1.log")) >= 2_000);
+        assertTrue(Files.size(directory.resolve("audit.2.log")) >= 2_000);
+        assertFalse(Files.exists(directory.resolve("audit.3.log")));
+        List<JsonObject> older = read(directory.resolve("audit.2.log"));
+        List<JsonObject> newer = read(directory.resolve("audit.1.log"));
+        assertEquals(older.get(older.size() - 1).get("seq").getAsLong() + 1, newer.get(0).get("seq").getAsLong());
+        List<JsonObject> current = read(directory.resolve(AuditLog.FILE_NAME));
+        long last = current.isEmpty() ? newer.get(newer.size() - 1).get("seq").getAsLong()
+                : current.get(current.size() - 1).get("seq").getAsLong();
+        assertEquals(500, last);
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() throws IOException {
+        auditLog = new AuditLog(directory);
+        SecurityService securityService = auditedService();
+        Sensor door = securityService.getSensors().iterator().next();
+        Runnable toggle = () -> {
+            securityService.changeSensorActivationStatus(door, true);
+            securityService.changeSensorActivationStatus(door, false);
+        };
+        assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+        long setUp = auditLog.getWritten();
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 50_000; i++) {
+            toggle.run();
+        }
+        int measured = 100_000;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < measured; i++) {
+            toggle.run();
+        }
+        long bytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(0, bytes / measured);
+        //flat out, the writer may fall behind and drop entries, but every entry is accounted for
+        assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+        assertEquals(setUp + 150_000 * 4L, auditLog.getWritten() + auditLog.getDropped());
+    }
+
+    @Test
+    public void writerKeepsUpWithASustainedEventRate() throws IOException {
+        auditLog = new AuditLog(directory);
+        SecurityService securityService = auditedService();
+        Sensor door = securityService.getSensors().iterator().next();
+        assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+        long setUp = auditLog.getWritten();
+
+        //200,000 entries a second for half a second, in bursts of 1,000 every 5ms
+        long next = System.nanoTime();
+        for (int burst = 0; burst < 100; burst++) {
+            for (int i = 0; i < 250; i++) {
+                securityService.changeSensorActivationStatus(door, true);
+                securityService.changeSensorActivationStatus(door, false);
+            }
+            next += TimeUnit.MILLISECONDS.toNanos(5);
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+        assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+        assertEquals(0, auditLog.getDropped());
+        assertEquals(setUp + 100_000, auditLog.getWritten());
+    }
+
+    @Test
+    public void idleWriterSleepsUntilTheNextEntry() throws Exception {
+        auditLog = new AuditLog(directory);
+        SecurityService securityService = auditedService();
+        assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+
+        //an untimed park, rather than polling on a timer
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writerState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline, "writer never parked");
+            Thread.sleep(1);
+        }
+
+        securityService.setAlarmStatus(AlarmStatus.ALARM);
+        assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+        assertEquals(0, auditLog.getDropped());
+    }
+
+    private static Thread.State writerState() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("audit-log-writer"))
+                .map(Thread::getState)
+                .filter(state -> state == Thread.State.WAITING)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private SecurityService auditedService() {
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+        securityService.setAuditLog(auditLog);
+        securityService.addSensor(new Sensor("door", SensorType.DOOR));
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        return securityService;
+    }
+
+    private static List<JsonObject> read(Path file) throws IOException {
+        return Files.readAllLines(file).stream()
+                .map(line -> JsonParser.parseString(line).getAsJsonObject())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,149 @@
+package com.udacity.catpoint.security.dashboard;
+
+import com.udacity.catpoint.security.data.*;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DashboardServerTest {
+
+    private SecurityService securityService;
+    private DashboardServer server;
+    private final List<DashboardClient> clients = new ArrayList<>();
+
+    @BeforeEach
+    public void initialize() throws IOException {
+        securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+        for (int i = 0; i < 100; i++) {
+            securityService.addSensor(new Sensor("sensor" + i, SensorType.WINDOW));
+        }
+        server = new DashboardServer(securityService, 0);
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        for (DashboardClient client : clients) {
+            client.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void clientFollowsSnapshotAndDeltas() throws Exception {
+        DashboardClient client = connect();
+        await(() -> client.getTick() >= 0);
+        assertEquals(100, client.getSensorCount());
+        assertEquals(ArmingStatus.DISARMED, client.getArmingStatus());
+
+        Sensor door = new Sensor("front door", SensorType.DOOR, "hall");
+        securityService.addSensor(door);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.changeSensorActivationStatus(door, true);
+        await(() -> Boolean.TRUE.equals(client.isSensorActive(door.getSensorId())));
+        assertEquals("front door", client.getSensorName(door.getSensorId()));
+        assertEquals(AlarmStatus.PENDING_ALARM, client.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_AWAY, client.getArmingStatus());
+
+        securityService.removeSensor(door);
+        await(() -> client.getSensorCount() == 100);
+        assertNull(client.isSensorActive(door.getSensorId()));
+    }
+
+    @Test
+    public void changesWithinATickShareOneSmallDelta() throws Exception {
+        DashboardClient client = connect();
+        await(() -> client.getTick() >= 0);
+        long snapshotBytes = client.getBytesReceived();
+        long tick = client.getTick();
+
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        List<Sensor> sensors = new ArrayList<>(securityService.getSensors());
+        for (int i = 0; i < 10; i++) {
+            securityService.changeSensorActivationStatus(sensors.get(i * 10), true);
+        }
+        await(() -> client.getActiveSensorCount() == 10);
+
+        //a handful of deltas at most, each a few bytes per changed sensor instead of a new snapshot
+        assertTrue(client.getTick() - tick <= 3, "ticks: " + (client.getTick() - tick));
+        assertTrue(client.getBytesReceived() - snapshotBytes < 60, "delta bytes: " + (client.getBytesReceived() - snapshotBytes));
+        assertEquals(AlarmStatus.ALARM, client.getAlarmStatus());
+    }
+
+    @Test
+    public void lateClientStartsFromCurrentState() throws Exception {
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        Sensor first = securityService.getSensors().iterator().next();
+        securityService.changeSensorActivationStatus(first, true);
+        DashboardClient early = connect();
+        await(() -> early.getActiveSensorCount() == 1);
+
+        DashboardClient late = connect();
+        await(() -> late.getTick() >= 0);
+        assertEquals(1, late.getActiveSensorCount());
+        assertEquals(ArmingStatus.ARMED_AWAY, late.getArmingStatus());
+        assertEquals(2, server.getClientCount());
+    }
+
+    @Test
+    public void bulkAddLargerThanTheReplayBufferKeepsClientsInSync() throws Exception {
+        DashboardClient client = connect();
+        await(() -> client.getTick() >= 0);
+        List<Sensor> fleet = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            fleet.add(new Sensor("fleet" + i, SensorType.MOTION, "yard"));
+        }
+        securityService.addSensors(fleet);
+        await(() -> client.getSensorCount() == 5_100);
+        assertEquals("fleet42", client.getSensorName(fleet.get(42).getSensorId()));
+
+        //still subscribed to the event feed afterwards
+        securityService.setAlarmStatus(AlarmStatus.ALARM);
+        await(() -> client.getAlarmStatus() == AlarmStatus.ALARM);
+    }
+
+    @Test
+    public void serverThatFallsOutOfTheReplayBufferResynchronizes() throws Exception {
+        List<Sensor> fleet = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            fleet.add(new Sensor("fleet" + i, SensorType.MOTION, "yard"));
+        }
+        securityService.addSensors(fleet);
+        DashboardClient client = connect();
+        await(() -> client.getSensorCount() == 3_100);
+
+        //far more events than the replay buffer holds, published faster than they're delivered
+        for (Sensor sensor : fleet) {
+            securityService.changeSensorActivationStatus(sensor, true);
+        }
+        securityService.removeSensor(fleet.get(0));
+        await(() -> client.getSensorCount() == 3_099 && client.getActiveSensorCount() == 2_999);
+        assertNull(client.isSensorActive(fleet.get(0).getSensorId()));
+        assertTrue(client.isSensorActive(fleet.get(1).getSensorId()));
+
+        securityService.setAlarmStatus(AlarmStatus.ALARM);
+        await(() -> client.getAlarmStatus() == AlarmStatus.ALARM);
+    }
+
+    private DashboardClient connect() throws IOException {
+        DashboardClient client = new DashboardClient("localhost", server.getPort());
+        clients.add(client);
+        return client;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+            Thread.sleep(5);
+        }
+    }
+}
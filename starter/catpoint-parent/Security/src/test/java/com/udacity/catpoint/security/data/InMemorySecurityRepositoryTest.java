@@ -0,0 +1,31 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemorySecurityRepositoryTest {
+
+    @Test
+    public void updateFromAnotherInstanceReplacesTheStoredSensor() {
+        InMemorySecurityRepository repository = new InMemorySecurityRepository();
+        Sensor stored = new Sensor("door", SensorType.DOOR);
+        repository.addSensor(stored);
+
+        //the same sensor as read back from elsewhere, for example a standby or an import
+        Sensor copy = new Sensor("door", SensorType.DOOR);
+        copy.setSensorId(stored.getSensorId());
+        copy.setActive(true);
+        repository.updateSensor(copy);
+
+        assertEquals(1, repository.getSensors().size());
+        Sensor current = repository.getSensors().iterator().next();
+        assertSame(copy, current);
+        assertTrue(current.getActive());
+
+        //the stored instance itself is already up to date and stays put
+        copy.setActive(false);
+        repository.updateSensor(copy);
+        assertSame(copy, repository.getSensors().iterator().next());
+    }
+}
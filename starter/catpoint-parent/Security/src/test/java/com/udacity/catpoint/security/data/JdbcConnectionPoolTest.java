@@ -0,0 +1,44 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcConnectionPoolTest {
+
+    private JdbcConnectionPool pool;
+
+    @BeforeEach
+    public void initialize() {
+        pool = new JdbcConnectionPool("jdbc:h2:mem:pool-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", null, null, 1);
+    }
+
+    @AfterEach
+    public void cleanUp() throws SQLException {
+        pool.close();
+    }
+
+    @Test
+    public void releasedConnectionIsReused() throws SQLException {
+        JdbcConnectionPool.PooledConnection connection = pool.borrow();
+        pool.release(connection);
+        assertSame(connection, pool.borrow());
+    }
+
+    @Test
+    public void discardedConnectionIsClosedAndReplaced() throws SQLException {
+        JdbcConnectionPool.PooledConnection broken = pool.borrow();
+        pool.discard(broken);
+        assertTrue(broken.connection().isClosed());
+
+        //the pool only holds one connection, so this only succeeds if the discarded one freed its slot
+        JdbcConnectionPool.PooledConnection replacement = pool.borrow();
+        assertNotSame(broken, replacement);
+        assertTrue(replacement.connection().isValid(1));
+    }
+}
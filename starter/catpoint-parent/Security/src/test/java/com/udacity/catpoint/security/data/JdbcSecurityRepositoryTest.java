@@ -0,0 +1,121 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcSecurityRepositoryTest {
+
+    private String url;
+    private JdbcSecurityRepository repository;
+
+    @BeforeEach
+    public void initialize() {
+        //keep the in-memory database alive between connections so a second repository can reopen it
+        url = "jdbc:h2:mem:catpoint-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        repository = new JdbcSecurityRepository(url);
+    }
+
+    @AfterEach
+    public void cleanUp() throws SQLException {
+        repository.close();
+    }
+
+    @Test
+    public void stateSurvivesReopeningTheDatabase() throws SQLException {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        repository.addSensor(door);
+        repository.addSensor(new Sensor("window", SensorType.WINDOW));
+        door.setActive(true);
+        repository.updateSensor(door);
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+        try (JdbcSecurityRepository reopened = new JdbcSecurityRepository(url)) {
+            Set<Sensor> sensors = reopened.getSensors();
+            assertEquals(2, sensors.size());
+            Sensor stored = sensors.iterator().next();
+            assertEquals(door, stored);
+            assertTrue(stored.getActive());
+            assertEquals(ArmingStatus.ARMED_HOME, reopened.getArmingStatus());
+            assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+        }
+    }
+
+    @Test
+    public void bulkAddRollsBackOnDuplicate() {
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 25_000; i++) {
+            sensors.add(new Sensor("sensor" + i, SensorType.WINDOW, "zone" + i % 4));
+        }
+        repository.addSensors(sensors);
+        assertEquals(25_000, repository.getSensors().size());
+
+        //the duplicate fails the last batch, and with it everything else in the call
+        List<Sensor> more = List.of(new Sensor("new", SensorType.DOOR), sensors.get(0));
+        assertThrows(IllegalStateException.class, () -> repository.addSensors(more));
+        assertEquals(25_000, repository.getSensors().size());
+    }
+
+    @Test
+    public void removedSensorIsGone() {
+        Sensor motion = new Sensor("motion", SensorType.MOTION);
+        repository.addSensor(motion);
+        repository.removeSensor(motion);
+        assertTrue(repository.getSensors().isEmpty());
+    }
+
+    @Test
+    public void batchUpdateChangesAndInsertsSensors() {
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Sensor sensor = new Sensor("sensor" + i, SensorType.WINDOW);
+            sensors.add(sensor);
+            if (i < 25) {
+                repository.addSensor(sensor);
+            }
+        }
+        sensors.forEach(s -> s.setActive(true));
+        repository.updateSensors(sensors);
+
+        assertEquals(50, repository.getSensors().size());
+        assertEquals(50, repository.getActiveSensorCount());
+    }
+
+    @Test
+    public void addingAStoredSensorAgainReplacesIt() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        repository.addSensor(door);
+        door.setActive(true);
+        repository.addSensor(door);
+
+        assertEquals(1, repository.getSensors().size());
+        assertEquals(1, repository.getActiveSensorCount());
+    }
+
+    @Test
+    public void sensorsAreServedFromMemoryAndKeptInStep() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        repository.addSensor(door);
+        Set<Sensor> sensors = repository.getSensors();
+        assertThrows(UnsupportedOperationException.class, () -> sensors.add(new Sensor("window", SensorType.WINDOW)));
+
+        //a different instance of the same sensor replaces the cached one
+        Sensor copy = new Sensor("door", SensorType.DOOR);
+        copy.setSensorId(door.getSensorId());
+        copy.setActive(true);
+        repository.updateSensor(copy);
+        assertSame(copy, sensors.iterator().next());
+
+        repository.removeSensor(door);
+        assertTrue(sensors.isEmpty());
+    }
+}
@@ -0,0 +1,185 @@
+package com.udacity.catpoint.security.fleet;
+
+import com.udacity.catpoint.security.data.*;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorImporterTest {
+
+    private CountingRepository repository;
+    private SecurityService securityService;
+
+    @BeforeEach
+    public void initialize() {
+        repository = new CountingRepository();
+        securityService = new SecurityService(repository, (image, threshold) -> false);
+    }
+
+    @Test
+    public void exportedSensorsImportUnchanged() throws IOException {
+        List<Sensor> original = new ArrayList<>();
+        original.add(new Sensor("Front door", SensorType.DOOR, "hall"));
+        original.add(new Sensor("Window, \"east\"", SensorType.WINDOW));
+        original.get(1).setActive(true);
+        original.add(new Sensor("Garage motion", SensorType.MOTION, "garage"));
+
+        for (SensorFormat format : SensorFormat.values()) {
+            StringWriter out = new StringWriter();
+            assertEquals(3, SensorExporter.exportTo(out, format, original));
+            initialize();
+            ImportReport report = new SensorImporter(securityService).importFrom(new StringReader(out.toString()), format);
+
+            assertEquals(3, report.getImported(), format + ": " + report.getErrors());
+            for (Sensor expected : original) {
+                Sensor imported = securityService.getSensors().stream()
+                        .filter(s -> s.getSensorId().equals(expected.getSensorId())).findFirst().orElseThrow();
+                assertEquals(expected.getName(), imported.getName());
+                assertEquals(expected.getSensorType(), imported.getSensorType());
+                assertEquals(expected.getZone(), imported.getZone());
+                assertEquals(expected.getActive(), imported.getActive());
+            }
+            assertEquals(1, securityService.getActiveSensorCount(Sensor.DEFAULT_ZONE));
+        }
+    }
+
+    @Test
+    public void invalidRecordsAreReportedAndSkipped() throws IOException {
+        String id = UUID.randomUUID().toString();
+        String input = String.join("\n",
+                "{\"id\":\"" + id + "\",\"name\":\"door\",\"type\":\"DOOR\"}",
+                "{\"name\":\"window\",\"type\":\"SKYLIGHT\"}",
+                "{\"type\":\"MOTION\"}",
+                "{\"id\":\"" + id + "\",\"name\":\"again\",\"type\":\"DOOR\"}",
+                "{\"id\":\"not-a-uuid\",\"name\":\"x\",\"type\":\"DOOR\"}",
+                "{\"name\":\"broken\"",
+                "",
+                "{\"name\":\"motion\",\"type\":\"MOTION\",\"active\":true}");
+        ImportReport report = new SensorImporter(securityService).importFrom(new StringReader(input), SensorFormat.NDJSON);
+
+        assertEquals(7, report.getRecords());
+        assertEquals(2, report.getImported());
+        assertEquals(5, report.getRejected());
+        assertTrue(report.getErrors().get(0).startsWith("record 2: unknown type"), report.getErrors().toString());
+        assertTrue(report.getErrors().get(2).contains("duplicate id"), report.getErrors().toString());
+        assertEquals(2, securityService.getSensors().size());
+    }
+
+    @Test
+    public void partialChunkIsWrittenAtTheEnd() throws IOException {
+        ImportReport report = new SensorImporter(securityService).setChunkSize(2)
+                .importFrom(new GeneratedNdjson(5), SensorFormat.NDJSON);
+
+        assertEquals(5, report.getImported());
+        assertEquals(5, securityService.getSensors().size());
+        assertEquals(3, repository.writes);
+    }
+
+    @Test
+    public void repositoryThatRewritesEverythingGetsOneWrite() throws IOException {
+        repository.incremental = false;
+        ImportReport report = new SensorImporter(securityService).setChunkSize(2)
+                .importFrom(new GeneratedNdjson(5), SensorFormat.NDJSON);
+
+        assertEquals(5, report.getImported());
+        assertEquals(5, securityService.getSensors().size());
+        assertEquals(1, repository.writes);
+    }
+
+    @Test
+    public void allOrNothingStoresNothingWhenARecordIsInvalid() throws IOException {
+        String input = "name,type,zone\nfront door,DOOR,hall\nback door,GATE,\n";
+        ImportReport report = new SensorImporter(securityService).setAllOrNothing(true)
+                .importFrom(new StringReader(input), SensorFormat.CSV);
+
+        assertFalse(report.isCommitted());
+        assertEquals(1, report.getRejected());
+        assertTrue(securityService.getSensors().isEmpty());
+        assertEquals(0, repository.writes);
+    }
+
+    @Test
+    public void millionSensorsStreamInChunks() throws IOException {
+        int count = 1_000_000;
+        List<Long> progress = new ArrayList<>();
+        long start = System.nanoTime();
+        ImportReport report = new SensorImporter(securityService)
+                .setProgressListener((records, rejected) -> progress.add(records), 250_000)
+                .importFrom(new GeneratedNdjson(count), SensorFormat.NDJSON);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(count, report.getImported());
+        assertEquals(count, securityService.getSensors().size());
+        assertEquals(count / SensorImporter.DEFAULT_CHUNK_SIZE, repository.writes);
+        assertEquals(List.of(250_000L, 500_000L, 750_000L, 1_000_000L, 1_000_000L), progress);
+        assertTrue(millis < 30_000, "took " + millis + "ms");
+    }
+
+    private static final class CountingRepository extends InMemorySecurityRepository {
+        private int writes;
+        private boolean incremental = true;
+
+        @Override
+        public void addSensor(Sensor sensor) {
+            writes++;
+            super.addSensor(sensor);
+        }
+
+        @Override
+        public void addSensors(Collection<Sensor> sensors) {
+            writes++;
+            super.addSensors(sensors);
+        }
+
+        @Override
+        public boolean storesSensorsIncrementally() {
+            return incremental;
+        }
+    }
+
+    /**
+     * Produces NDJSON sensor records on demand, so a huge input needs no memory of its own.
+     */
+    private static final class GeneratedNdjson extends Reader {
+        private static final SensorType[] TYPES = SensorType.values();
+        private final int count;
+        private int next;
+        private String line = "";
+        private int position;
+
+        GeneratedNdjson(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == line.length()) {
+                if (next == count) {
+                    return -1;
+                }
+                //plain concatenation, String.format would dominate the measured time
+                line = "{\"id\":\"" + new UUID(0, next) + "\",\"name\":\"sensor-" + next + "\",\"type\":\"" + TYPES[next % TYPES.length]
+                        + "\",\"zone\":\"floor-" + next % 20 + "\",\"active\":false}\n";
+                position = 0;
+                next++;
+            }
+            int n = Math.min(length, line.length() - position);
+            line.getChars(position, position + n, buffer, offset);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.udacity.catpoint.security.replication;
+
+import com.udacity.catpoint.security.data.*;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicationTest {
+
+    private ReplicationPrimary primary;
+    private StandbyReplica standby;
+
+    @AfterEach
+    public void shutdown() throws IOException {
+        if (standby != null) {
+            standby.close();
+        }
+        if (primary != null) {
+            primary.close();
+        }
+    }
+
+    @Test
+    public void standbyCatchesUpFromSnapshotThenFollowsChanges() throws Exception {
+        primary = new ReplicationPrimary(new InMemorySecurityRepository(), 0, AckMode.SYNC);
+        SecurityService service = new SecurityService(primary, (image, threshold) -> false);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        service.addSensor(door);
+        service.addSensor(window);
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        SecurityRepository replica = new InMemorySecurityRepository();
+        standby = new StandbyReplica(replica, "localhost", primary.getPort());
+        assertTrue(standby.awaitSnapshot(Duration.ofSeconds(5)));
+        assertEquals(2, replica.getSensors().size());
+        assertEquals(ArmingStatus.ARMED_AWAY, replica.getArmingStatus());
+
+        service.changeSensorActivationStatus(door, true);
+        service.removeSensor(window);
+
+        //SYNC mode: the standby has applied each change before the call returns
+        assertEquals(AlarmStatus.PENDING_ALARM, replica.getAlarmStatus());
+        assertEquals(1, replica.getSensors().size());
+        assertTrue(replica.getSensors().iterator().next().getActive());
+        assertEquals(0, primary.getReplicationLag());
+        assertTrue(primary.getAckLatency().getCount() > 0);
+    }
+
+    @Test
+    public void standbyTakesOverWithinASecondOfPrimaryFailure() throws Exception {
+        primary = new ReplicationPrimary(new InMemorySecurityRepository(), 0, AckMode.ASYNC);
+        SecurityService service = new SecurityService(primary, (image, threshold) -> false);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        service.addSensor(door);
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        service.changeSensorActivationStatus(door, true);
+
+        CountDownLatch lost = new CountDownLatch(1);
+        standby = new StandbyReplica(new InMemorySecurityRepository(), "localhost", primary.getPort(),
+                Duration.ofMillis(300), lost::countDown);
+        assertTrue(standby.awaitSnapshot(Duration.ofSeconds(5)));
+
+        //heartbeats keep the standby happy while the primary is idle
+        Thread.sleep(500);
+        assertTrue(standby.isPrimaryAlive());
+
+        long failedAt = System.nanoTime();
+        primary.close();
+        assertTrue(lost.await(1, TimeUnit.SECONDS));
+        SecurityRepository promoted = standby.promote();
+        assertTrue(Duration.ofNanos(System.nanoTime() - failedAt).toMillis() < 1000);
+
+        SecurityService takeover = new SecurityService(promoted, (image, threshold) -> false);
+        assertEquals(ArmingStatus.ARMED_HOME, takeover.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, takeover.getAlarmStatus());
+        assertTrue(takeover.getSensors().iterator().next().getActive());
+    }
+
+    @Test
+    public void laggingStandbyIsSentASnapshotInsteadOfItsBacklog() throws Exception {
+        primary = new ReplicationPrimary(new InMemorySecurityRepository(),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), AckMode.ASYNC, Duration.ofSeconds(1), 8);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        primary.addSensor(door);
+
+        CountDownLatch release = new CountDownLatch(1);
+        SecurityRepository replica = new InMemorySecurityRepository() {
+            @Override
+            public void addSensor(Sensor sensor) {
+                //stall the standby on the second sensor so changes pile up on the primary
+                if (sensor.getName().equals("window")) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.addSensor(sensor);
+            }
+        };
+        standby = new StandbyReplica(replica, "localhost", primary.getPort());
+        assertTrue(standby.awaitSnapshot(Duration.ofSeconds(5)));
+        primary.addSensor(new Sensor("window", SensorType.WINDOW));
+
+        //keep changing state until the socket buffers and the queue behind them are full
+        for (int i = 0; i < 2_000_000 && primary.getResyncCount() == 0; i++) {
+            door.setActive(i % 2 == 0);
+            primary.updateSensor(door);
+        }
+        assertTrue(primary.getResyncCount() > 0);
+        door.setActive(true);
+        primary.updateSensor(door);
+        release.countDown();
+
+        await(() -> standby.getAppliedSequence() == primary.getLastSequence());
+        assertTrue(standby.isPrimaryAlive());
+        assertEquals(1, primary.getStandbyCount());
+        assertEquals(2, replica.getSensors().size());
+        assertTrue(replica.getSensors().stream().anyMatch(sensor -> sensor.getName().equals("door") && sensor.getActive()));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventSchedulerTest {
+
+    //the alarm path must stay below this at the 99th percentile however far behind the image lane is
+    private static final long ALARM_P99_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AtomicInteger classified = new AtomicInteger();
+    private final BufferedImage frame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    private EventScheduler scheduler;
+
+    @AfterEach
+    public void cleanUp() {
+        scheduler.close();
+    }
+
+    private SecurityService service(long classifyMillis, CountDownLatch release) {
+        return new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> {
+            try {
+                release.await();
+                Thread.sleep(classifyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            classified.incrementAndGet();
+            return false;
+        });
+    }
+
+    @Test
+    public void alarmLaneKeepsItsLatencyUnderImageOverload() throws Exception {
+        SecurityService securityService = service(20, new CountDownLatch(0));
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        scheduler = new EventScheduler(securityService, 2, 4);
+        scheduler.setArmingStatus(ArmingStatus.ARMED_AWAY).get(1, TimeUnit.SECONDS);
+
+        //far more frames than two threads at 20ms each can keep up with
+        Thread cameras = new Thread(() -> {
+            for (int i = 0; i < 400; i++) {
+                scheduler.processImage("camera" + i % 16, frame);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        cameras.start();
+        List<CompletableFuture<Void>> events = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            events.add(scheduler.changeSensorActivationStatus(door, i % 2 == 0));
+            Thread.sleep(2);
+        }
+        CompletableFuture.allOf(events.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        cameras.join();
+
+        //every sensor change plus the arming went through the alarm lane, and all of it was measured
+        assertEquals(201, scheduler.getAlarmLaneLatency().getCount(), scheduler.summary());
+        assertTrue(scheduler.getAlarmLaneLatency().getPercentileNanos(99) < ALARM_P99_NANOS, scheduler.summary());
+        assertTrue(scheduler.getShedFrames() + scheduler.getSupersededFrames() > 0);
+        assertFalse(door.getActive());
+    }
+
+    @Test
+    public void newerFrameFromTheSameCameraReplacesTheQueuedOne() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler = new EventScheduler(service(0, release), 1, 4);
+        CompletableFuture<Void> running = scheduler.processImage("porch", frame);
+        Thread.sleep(50);
+        CompletableFuture<Void> stale = scheduler.processImage("porch", frame);
+        CompletableFuture<Void> newest = scheduler.processImage("porch", frame);
+        release.countDown();
+
+        newest.get(1, TimeUnit.SECONDS);
+        running.get(1, TimeUnit.SECONDS);
+        assertTrue(stale.isCancelled());
+        assertEquals(2, classified.get());
+        assertEquals(1, scheduler.getSupersededFrames());
+    }
+
+    @Test
+    public void fullImageLaneShedsFramesFromOtherCameras() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler = new EventScheduler(service(0, release), 1, 2);
+        scheduler.processImage("camera0", frame);
+        Thread.sleep(50);
+        scheduler.processImage("camera1", frame);
+        scheduler.processImage("camera2", frame);
+        CompletableFuture<Void> shed = scheduler.processImage("camera3", frame);
+        release.countDown();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> shed.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertEquals(1, scheduler.getShedFrames());
+    }
+}
@@ -0,0 +1,83 @@
+package com.udacity.catpoint.security.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 63; i++) {
+            histogram.record(i);
+        }
+        assertEquals(63, histogram.getCount());
+        assertEquals(32, histogram.getPercentileNanos(50));
+        assertEquals(1, histogram.getPercentileNanos(0));
+        assertEquals(63, histogram.getPercentileNanos(100));
+        assertEquals(32.0, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void percentilesUseTheNearestRank() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+        //rank ceil(n * p / 100), reported as the upper bound of that value's bucket
+        assertBucketBound(50_000_000L, histogram.getPercentileNanos(50));
+        assertBucketBound(90_000_000L, histogram.getPercentileNanos(90));
+        assertBucketBound(99_000_000L, histogram.getPercentileNanos(99));
+        //never above the largest value seen
+        assertEquals(100_000_000L, histogram.getPercentileNanos(100));
+        assertEquals(100_000_000L, histogram.getPercentileNanos(99.9));
+        assertEquals(100_000_000L, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void bucketsAreAtMostThreePercentWide() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            long value = 64 + (random.nextLong() >>> (2 + random.nextInt(56)));
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(Long.MAX_VALUE);
+            assertBucketBound(value, histogram.getPercentileNanos(50));
+        }
+    }
+
+    @Test
+    public void bucketBoundariesFallBetweenPowersOfTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        //64..65 share a bucket once values need more than six bits, 66 starts the next one
+        histogram.record(64);
+        histogram.record(65);
+        histogram.record(66);
+        histogram.record(1_000);
+        assertEquals(65, histogram.getPercentileNanos(50));
+        assertEquals(67, histogram.getPercentileNanos(75));
+    }
+
+    @Test
+    public void negativeValuesCountAsZeroAndResetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(100));
+
+        histogram.record(1_000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(0.0, histogram.getMeanNanos());
+    }
+
+    private static void assertBucketBound(long value, long reported) {
+        assertTrue(reported >= value, reported + " is below " + value);
+        assertTrue(reported - value <= value / 32, reported + " is more than 3% above " + value);
+    }
+}
@@ -0,0 +1,103 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.image.service.PreprocessingImageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PluggableImageServiceTest {
+
+    private static final ImageService ALWAYS_CAT = (image, threshold) -> true;
+    private static final ImageService NEVER_CAT = (image, threshold) -> false;
+
+    private final BufferedImage frame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    private PluggableImageService service;
+
+    @AfterEach
+    public void cleanUp() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Test
+    public void providersAreDiscoveredByName() {
+        assertTrue(PluggableImageService.availableProviders().contains("FakeImageService"));
+        assertTrue(PluggableImageService.availableProviders().contains("AwsImageService"));
+        service = new PluggableImageService(ALWAYS_CAT, "always");
+        service.use("FakeImageService");
+        assertEquals("FakeImageService", service.getActiveName());
+        assertThrows(IllegalArgumentException.class, () -> service.use("NoSuchService"));
+    }
+
+    @Test
+    public void remoteProvidersAreWrappedAndLocalOnesAreNot() {
+        assertTrue(PluggableImageService.loadProvider("FakeImageService") instanceof FakeImageService);
+        ImageService remote = PluggableImageService.loadProvider("AwsImageService");
+        assertTrue(remote instanceof PreprocessingImageService);
+        //without credentials the remote call fails and the local fallback answers instead
+        assertNotNull(remote.detect(new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB), 50.0f));
+    }
+
+    @Test
+    public void swapTakesEffectOnTheNextFrame() {
+        service = new PluggableImageService(ALWAYS_CAT, "always");
+        assertTrue(service.imageContainsCat(frame, 50.0f));
+        service.swap(NEVER_CAT, "never");
+        assertFalse(service.imageContainsCat(frame, 50.0f));
+        assertEquals("never", service.getActiveName());
+    }
+
+    @Test
+    public void shadowComparesASampleOfFrames() throws InterruptedException {
+        service = new PluggableImageService(ALWAYS_CAT, "always");
+        FakeImageService candidate = new FakeImageService(42);
+        service.startShadow(candidate, "fake", 0.25);
+        for (int i = 0; i < 40; i++) {
+            assertTrue(service.imageContainsCat(frame, 50.0f));
+        }
+        await(() -> service.getShadowReport().getCompared() == 10);
+
+        PluggableImageService.ShadowReport report = service.stopShadow();
+        assertEquals(10, report.getMirrored());
+        assertEquals(10, report.getCandidateLatency().getCount());
+        //a coin-flipping candidate agrees with an always-yes detector some of the time but not always
+        assertTrue(report.getAgreed() > 0 && report.getAgreed() < 10, report.summary());
+        assertNull(service.getShadowReport());
+    }
+
+    @Test
+    public void slowCandidateNeverHoldsUpTheActiveDetector() {
+        service = new PluggableImageService(ALWAYS_CAT, "always");
+        service.startShadow((image, threshold) -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }, "slow", 1.0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            service.imageContainsCat(frame, 50.0f);
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 200);
+        assertTrue(service.getShadowReport().getDropped() > 50);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityEventPublisherTest {
+
+    private SecurityService securityService;
+
+    @BeforeEach
+    public void initialize() {
+        securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+    }
+
+    @Test
+    public void subscriberReceivesChangesInSequenceOrder() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        securityService.getEventPublisher().subscribe(subscriber);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.changeSensorActivationStatus(door, true);
+
+        subscriber.awaitEvents(5);
+        List<SecurityEvent> events = subscriber.events;
+        assertEquals(SecurityEvent.Type.SENSOR_ADDED, events.get(0).getType());
+        assertEquals(door.getSensorId(), events.get(0).getSensorId());
+        assertEquals(SecurityEvent.Type.SENSOR_UPDATED, events.get(1).getType());
+        assertEquals(ArmingStatus.ARMED_AWAY, events.get(2).getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, events.get(3).getAlarmStatus());
+        assertTrue(events.get(4).getSensorActive());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).getSequence());
+        }
+    }
+
+    @Test
+    public void subscriberOnlyReceivesWhatItRequested() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+        securityService.getEventPublisher().subscribe(subscriber);
+        for (int i = 0; i < 10; i++) {
+            securityService.setAlarmStatus(i % 2 == 0 ? AlarmStatus.PENDING_ALARM : AlarmStatus.NO_ALARM);
+        }
+        subscriber.awaitEvents(2);
+        Thread.sleep(50);
+        assertEquals(2, subscriber.events.size());
+
+        subscriber.subscription.request(8);
+        subscriber.awaitEvents(10);
+        assertEquals(10, subscriber.events.get(9).getSequence());
+    }
+
+    @Test
+    public void subscriberCanResumeFromAnOffset() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            securityService.addSensor(new Sensor("sensor" + i, SensorType.WINDOW));
+        }
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        securityService.getEventPublisher().subscribe(subscriber, 3);
+        securityService.setAlarmStatus(AlarmStatus.ALARM);
+
+        subscriber.awaitEvents(4);
+        assertEquals(3, subscriber.events.get(0).getSequence());
+        assertEquals(SecurityEvent.Type.ALARM_STATUS, subscriber.events.get(3).getType());
+        assertEquals(6, subscriber.events.get(3).getSequence());
+    }
+
+    @Test
+    public void subscriberThatFallsOutOfTheReplayBufferGetsAnError() throws InterruptedException {
+        SecurityEventPublisher publisher = new SecurityEventPublisher(4, Runnable::run);
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(SecurityEvent.Type.CAT_DETECTED, null, null, true, null, false);
+        }
+        assertEquals(7, publisher.getOldestSequence());
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber, 2);
+        assertTrue(subscriber.failed.await(1, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalStateException);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void bulkAddIsOneEvent() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        securityService.getEventPublisher().subscribe(subscriber);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            sensors.add(new Sensor("sensor" + i, SensorType.WINDOW));
+        }
+        securityService.addSensors(sensors);
+        securityService.setAlarmStatus(AlarmStatus.ALARM);
+
+        subscriber.awaitEvents(2);
+        assertEquals(SecurityEvent.Type.SENSORS_ADDED, subscriber.events.get(0).getType());
+        assertEquals(100_000, subscriber.events.get(0).getSensorCount());
+        assertEquals(AlarmStatus.ALARM, subscriber.events.get(1).getAlarmStatus());
+        assertNull(subscriber.error);
+        assertEquals(1, securityService.getEventPublisher().getSubscriberCount());
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<SecurityEvent> {
+
+        private final long initialDemand;
+        private final List<SecurityEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        RecordingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        void awaitEvents(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (events.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(events.size() >= count, "only received " + events);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(SecurityEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.udacity.catpoint.security.service;
+
+import com.sun.management.ThreadMXBean;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the allocation-free sensor event path. Each test warms the path up first so class
+ * loading and interpreter effects are out of the way, then requires less than one byte per
+ * operation on average.
+ */
+public class SecurityServiceAllocationTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int MEASURED = 100_000;
+
+    private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private SecurityService securityService;
+    private Sensor door;
+    private Sensor window;
+
+    @BeforeEach
+    public void initialize() {
+        securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> false);
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        });
+        door = new Sensor("door", SensorType.DOOR);
+        window = new Sensor("window", SensorType.WINDOW, "upstairs");
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    }
+
+    @Test
+    public void togglingASensorDoesNotAllocate() {
+        //each round goes NO_ALARM -> PENDING_ALARM -> NO_ALARM, so listeners and the event feed run every time
+        Runnable toggle = () -> {
+            securityService.changeSensorActivationStatus(door, true);
+            securityService.changeSensorActivationStatus(door, false);
+        };
+        assertEquals(0, bytesPerOperation(toggle));
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    public void alarmingSensorsDoNotAllocate() {
+        //reaches ALARM, then keeps toggling sensors that can no longer change the alarm
+        Runnable toggle = () -> {
+            securityService.changeSensorActivationStatus(door, true);
+            securityService.changeSensorActivationStatus(window, true);
+            securityService.changeSensorActivationStatus(door, false);
+            securityService.changeSensorActivationStatus(window, false);
+        };
+        assertEquals(0, bytesPerOperation(toggle));
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    private long bytesPerOperation(Runnable operation) {
+        assertTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED; i++) {
+            operation.run();
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / MEASURED;
+    }
+}
@@ -0,0 +1,342 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers SecurityService from several threads. Short rounds record every call with logical
+ * invocation and response times and check the history is linearizable against a sequential model
+ * of the alarm state machine; a longer run measures throughput and checks invariants once the
+ * threads have stopped. Listeners check on every notification that the status they are told about
+ * is the one the service reports.
+ */
+public class SecurityServiceConcurrencyTest {
+
+    private static final int THREADS = 4;
+    private static final int OPS_PER_THREAD = 6;
+    private static final int ROUNDS = 400;
+    private static final int SENSORS = 3;
+    private static final long STRESS_MILLIS = 500;
+
+    private static final int ACTIVATE = 0;
+    private static final int ARM = 1;
+    private static final int SCAN = 2;
+    private static final int READ_ALARM = 3;
+    private static final int READ_ARMING = 4;
+    private static final int ADD_LISTENER = 5;
+    private static final int REMOVE_LISTENER = 6;
+    private static final String[] OP_NAMES = {"activate", "arm", "scan", "readAlarm", "readArming", "addListener", "removeListener"};
+
+    private static final ArmingStatus[] ARMING = ArmingStatus.values();
+    private static final AlarmStatus[] ALARM = AlarmStatus.values();
+    private static final BufferedImage CAT = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+    private static final BufferedImage NO_CAT = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS * 2);
+    private final AtomicInteger listenerViolations = new AtomicInteger();
+    private final AtomicLong clock = new AtomicLong();
+    private SecurityService securityService;
+    private Sensor[] sensors;
+
+    @AfterEach
+    public void cleanUp() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentHistoriesAreLinearizable() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            newService();
+            CyclicBarrier start = new CyclicBarrier(THREADS);
+            List<Future<List<Op>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                long seed = round * 31L + t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    StatusListener listener = new CheckingListener();
+                    List<Op> ops = new ArrayList<>();
+                    start.await();
+                    for (int i = 0; i < OPS_PER_THREAD; i++) {
+                        ops.add(perform(random, listener, true));
+                    }
+                    return ops;
+                }));
+            }
+            List<Op> history = new ArrayList<>();
+            for (Future<List<Op>> future : futures) {
+                history.addAll(future.get(10, TimeUnit.SECONDS));
+            }
+            int round0 = round;
+            assertTrue(LinearizabilityChecker.check(history, Model.INITIAL),
+                    () -> "round " + round0 + " is not linearizable:\n" + describe(history));
+        }
+        assertEquals(0, listenerViolations.get(), "listeners saw a status other than the service's");
+    }
+
+    @Test
+    public void stressKeepsInvariantsAndReportsThroughput() throws Exception {
+        newService();
+        int threads = THREADS * 2;
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        AtomicLong operations = new AtomicLong();
+        long[] deadline = new long[1];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                StatusListener listener = new CheckingListener();
+                start.await();
+                long count = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    perform(random, listener, false);
+                    count++;
+                }
+                operations.addAndGet(count);
+                return null;
+            }));
+        }
+        deadline[0] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STRESS_MILLIS);
+        start.await();
+        long begin = System.nanoTime();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        int active = 0;
+        for (Sensor sensor : sensors) {
+            active += sensor.getActive() ? 1 : 0;
+        }
+        List<String> violations = new ArrayList<>();
+        if (securityService.getActiveSensorCount(Sensor.DEFAULT_ZONE) != active) {
+            violations.add("counted " + securityService.getActiveSensorCount(Sensor.DEFAULT_ZONE) + " active sensors but " + active + " are active");
+        }
+        if (securityService.getArmingStatus() == ArmingStatus.DISARMED && securityService.getAlarmStatus() != AlarmStatus.NO_ALARM) {
+            violations.add("disarmed but alarm is " + securityService.getAlarmStatus());
+        }
+        if (listenerViolations.get() != 0) {
+            violations.add(listenerViolations.get() + " listener notifications disagreed with the service");
+        }
+        System.out.printf("SecurityService stress: %d threads, %,d operations in %dms (%,.0f ops/s), %d invariant violations%n",
+                threads, operations.get(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                operations.get() * 1e9 / elapsed, violations.size());
+        assertTrue(violations.isEmpty(), String.join("\n", violations));
+    }
+
+    private void newService() {
+        securityService = new SecurityService(new InMemorySecurityRepository(), (image, threshold) -> image.getWidth() == CAT.getWidth());
+        securityService.addStatusListener(new CheckingListener());
+        sensors = new Sensor[SENSORS];
+        for (int i = 0; i < SENSORS; i++) {
+            sensors[i] = new Sensor("sensor" + i, SensorType.values()[i % SensorType.values().length]);
+            securityService.addSensor(sensors[i]);
+        }
+    }
+
+    private Op perform(Random random, StatusListener listener, boolean record) {
+        int kind = random.nextInt(OP_NAMES.length);
+        Op op = new Op(kind);
+        op.call = record ? clock.incrementAndGet() : 0;
+        switch (kind) {
+            case ACTIVATE:
+                int sensor = random.nextInt(SENSORS);
+                boolean active = random.nextBoolean();
+                op.arg = sensor << 1 | (active ? 1 : 0);
+                securityService.changeSensorActivationStatus(sensors[sensor], active);
+                break;
+            case ARM:
+                op.arg = random.nextInt(ARMING.length);
+                securityService.setArmingStatus(ARMING[op.arg]);
+                break;
+            case SCAN:
+                op.arg = random.nextBoolean() ? 1 : 0;
+                securityService.processImage(op.arg == 1 ? CAT : NO_CAT);
+                break;
+            case READ_ALARM:
+                op.result = securityService.getAlarmStatus().ordinal();
+                break;
+            case READ_ARMING:
+                op.result = securityService.getArmingStatus().ordinal();
+                break;
+            case ADD_LISTENER:
+                securityService.addStatusListener(listener);
+                break;
+            default:
+                securityService.removeStatusListener(listener);
+        }
+        op.ret = record ? clock.incrementAndGet() : 0;
+        return op;
+    }
+
+    private static String describe(List<Op> history) {
+        List<Op> sorted = new ArrayList<>(history);
+        sorted.sort(Comparator.comparingLong(op -> op.call));
+        StringBuilder out = new StringBuilder();
+        for (Op op : sorted) {
+            out.append(String.format("  [%d, %d] %s", op.call, op.ret, OP_NAMES[op.kind]));
+            switch (op.kind) {
+                case ACTIVATE -> out.append(" sensor").append(op.arg >> 1).append(' ').append((op.arg & 1) == 1);
+                case ARM -> out.append(' ').append(ARMING[op.arg]);
+                case SCAN -> out.append(op.arg == 1 ? " cat" : " no cat");
+                case READ_ALARM -> out.append(" -> ").append(ALARM[op.result]);
+                case READ_ARMING -> out.append(" -> ").append(ARMING[op.result]);
+                default -> { }
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    private final class CheckingListener implements StatusListener {
+        @Override
+        public void notify(AlarmStatus status) {
+            if (securityService.getAlarmStatus() != status) {
+                listenerViolations.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+        }
+    }
+
+    private static final class Op {
+        private final int kind;
+        private int arg;
+        private int result;
+        private long call;
+        private long ret;
+
+        Op(int kind) {
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * Sequential specification of the service with the default alarm rules, over states packed
+     * into an int: arming status, alarm status, cat flag and one bit per sensor.
+     */
+    private static final class Model {
+        static final int INITIAL = pack(ArmingStatus.DISARMED.ordinal(), AlarmStatus.NO_ALARM.ordinal(), false, 0);
+
+        static int pack(int arming, int alarm, boolean cat, int sensors) {
+            return arming | alarm << 2 | (cat ? 1 : 0) << 4 | sensors << 5;
+        }
+
+        /**
+         * @return the state after the operation, or -1 if the operation's result can't be
+         * observed in this state
+         */
+        static int apply(int state, Op op) {
+            int arming = state & 3;
+            int alarm = state >> 2 & 3;
+            boolean cat = (state >> 4 & 1) == 1;
+            int active = state >> 5;
+            switch (op.kind) {
+                case ACTIVATE:
+                    return activate(state, op.arg >> 1, (op.arg & 1) == 1);
+                case ARM:
+                    if (cat && op.arg == ArmingStatus.ARMED_HOME.ordinal()) {
+                        alarm = AlarmStatus.ALARM.ordinal();
+                    }
+                    if (op.arg == ArmingStatus.DISARMED.ordinal()) {
+                        alarm = AlarmStatus.NO_ALARM.ordinal();
+                    }
+                    state = pack(arming, alarm, cat, active);
+                    if (op.arg != ArmingStatus.DISARMED.ordinal()) {
+                        //sensors are reset while the old arming status is still in force
+                        for (int i = 0; i < SENSORS; i++) {
+                            state = activate(state, i, false);
+                        }
+                    }
+                    return state & ~3 | op.arg;
+                case SCAN:
+                    if (op.arg == 1 && arming == ArmingStatus.ARMED_HOME.ordinal()) {
+                        alarm = AlarmStatus.ALARM.ordinal();
+                    } else if (active == 0) {
+                        alarm = AlarmStatus.NO_ALARM.ordinal();
+                    }
+                    return pack(arming, alarm, op.arg == 1, active);
+                case READ_ALARM:
+                    return op.result == alarm ? state : -1;
+                case READ_ARMING:
+                    return op.result == arming ? state : -1;
+                default:
+                    return state;
+            }
+        }
+
+        private static int activate(int state, int sensor, boolean active) {
+            int arming = state & 3;
+            int alarm = state >> 2 & 3;
+            boolean cat = (state >> 4 & 1) == 1;
+            int sensors = state >> 5;
+            boolean wasActive = (sensors >> sensor & 1) == 1;
+            boolean armed = arming != ArmingStatus.DISARMED.ordinal();
+            if (alarm != AlarmStatus.ALARM.ordinal() && armed) {
+                if (active) {
+                    alarm = alarm == AlarmStatus.NO_ALARM.ordinal() ? AlarmStatus.PENDING_ALARM.ordinal() : AlarmStatus.ALARM.ordinal();
+                } else if (wasActive && alarm == AlarmStatus.PENDING_ALARM.ordinal()) {
+                    alarm = AlarmStatus.NO_ALARM.ordinal();
+                }
+            }
+            sensors = active ? sensors | 1 << sensor : sensors & ~(1 << sensor);
+            return pack(arming, alarm, cat, sensors);
+        }
+    }
+
+    /**
+     * Wing and Gong's search: repeatedly pick an operation that could take effect first (it was
+     * invoked before every remaining operation returned), apply it to the model and backtrack on
+     * a mismatch. Visited (linearized set, state) pairs are remembered so the search stays small.
+     */
+    private static final class LinearizabilityChecker {
+
+        static boolean check(List<Op> history, int initialState) {
+            if (history.size() > 40) {
+                throw new IllegalArgumentException("History too long to check: " + history.size());
+            }
+            Op[] ops = history.toArray(new Op[0]);
+            Arrays.sort(ops, Comparator.comparingLong(op -> op.call));
+            return search(ops, 0L, initialState, new HashSet<>());
+        }
+
+        private static boolean search(Op[] ops, long done, int state, Set<List<Long>> visited) {
+            if (Long.bitCount(done) == ops.length) {
+                return true;
+            }
+            long firstReturn = Long.MAX_VALUE;
+            for (int i = 0; i < ops.length; i++) {
+                if ((done & 1L << i) == 0) {
+                    firstReturn = Math.min(firstReturn, ops[i].ret);
+                }
+            }
+            for (int i = 0; i < ops.length && ops[i].call < firstReturn; i++) {
+                if ((done & 1L << i) != 0) {
+                    continue;
+                }
+                int next = Model.apply(state, ops[i]);
+                long nextDone = done | 1L << i;
+                if (next >= 0 && visited.add(List.of(nextDone, (long) next)) && search(ops, nextDone, next, visited)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.udacity.catpoint.security.service;
 
 import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.application.StatusListener;
 import com.udacity.catpoint.security.data.*;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,9 +13,15 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.awt.image.BufferedImage;
+import java.time.Duration;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -201,4 +208,234 @@ public class SecurityServiceTest {
         verify(mockSecurityRepository, never()).setAlarmStatus(any(AlarmStatus.class));
     }
 
+    @Test
+    public void disarmedPolicySkipsClassification() {
+        securitySystem = new SecurityService(mockSecurityRepository, mockImageService, DetectionPolicy.armingAware());
+        when(mockSecurityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+        securitySystem.processImage(testBufferedImage);
+        verify(mockImageService, never()).imageContainsCat(any(), anyFloat());
+    }
+
+    @Test
+    public void cameraConfidenceThresholdPassedToImageService() {
+        DetectionPolicy policy = DetectionPolicy.everyFrame().setConfidenceThreshold("garage", 80.0f);
+        securitySystem = new SecurityService(mockSecurityRepository, mockImageService, policy);
+        securitySystem.processImage("garage", testBufferedImage);
+        securitySystem.processImage("porch", testBufferedImage);
+        verify(mockImageService).imageContainsCat(testBufferedImage, 80.0f);
+        verify(mockImageService).imageContainsCat(testBufferedImage, 50.0f);
+    }
+
+    @Test
+    public void catDetectionTemporarilyRaisesSamplingRate() {
+        AtomicLong clock = new AtomicLong();
+        DetectionPolicy policy = new DetectionPolicy(clock::get)
+                .setFramesPerSecond(ArmingStatus.ARMED_AWAY, 1)
+                .setAdaptiveBoost(10, Duration.ofSeconds(5));
+        securitySystem = new SecurityService(mockSecurityRepository, mockImageService, policy);
+        when(mockSecurityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+
+        when(mockImageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(false);
+        securitySystem.processImage(testBufferedImage);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        securitySystem.processImage(testBufferedImage);
+        verify(mockImageService, times(1)).imageContainsCat(any(BufferedImage.class), anyFloat());
+
+        when(mockImageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(true);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        securitySystem.processImage(testBufferedImage);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        securitySystem.processImage(testBufferedImage);
+        verify(mockImageService, times(3)).imageContainsCat(any(BufferedImage.class), anyFloat());
+    }
+
+    @Test
+    public void noisyDetectorNeedsConsensusToRaiseAlarm() {
+        DetectionPolicy policy = DetectionPolicy.everyFrame().setConsensus(2, 3);
+        securitySystem = new SecurityService(mockSecurityRepository, mockImageService, policy);
+        when(mockSecurityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(mockImageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(true, false, false, true, true);
+
+        for (int i = 0; i < 3; i++) {
+            securitySystem.processImage(testBufferedImage);
+        }
+        verify(mockSecurityRepository, never()).setAlarmStatus(AlarmStatus.ALARM);
+        //two hits decide the next round, so its third frame isn't classified
+        for (int i = 0; i < 3; i++) {
+            securitySystem.processImage(testBufferedImage);
+        }
+        verify(mockSecurityRepository).setAlarmStatus(AlarmStatus.ALARM);
+        verify(mockImageService, times(5)).imageContainsCat(any(BufferedImage.class), anyFloat());
+    }
+
+    @Test
+    public void consensusRoundEndsOnceOutcomeIsDecided() {
+        DetectionPolicy policy = DetectionPolicy.everyFrame().setConsensus(3, 5);
+        securitySystem = new SecurityService(mockSecurityRepository, mockImageService, policy);
+        when(mockImageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(false);
+
+        //after three misses two hits can no longer reach three, so each round of five needs three frames
+        for (int i = 0; i < 10; i++) {
+            securitySystem.processImage(testBufferedImage);
+        }
+        verify(mockImageService, times(6)).imageContainsCat(any(BufferedImage.class), anyFloat());
+        verify(mockSecurityRepository, times(2)).setAlarmStatus(AlarmStatus.NO_ALARM);
+        assertThrows(IllegalArgumentException.class, () -> policy.setConsensus(4, 3));
+    }
+
+    @Test
+    public void firstFrameAfterArmingIsClassifiedEvenAfterAnEarlyDecision() {
+        DetectionPolicy policy = DetectionPolicy.everyFrame().setConsensus(3, 5);
+        securitySystem = new SecurityService(mockSecurityRepository, mockImageService, policy);
+        when(mockImageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(false);
+        for (int i = 0; i < 3; i++) {
+            securitySystem.processImage(testBufferedImage);
+        }
+
+        securitySystem.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securitySystem.processImage(testBufferedImage);
+        verify(mockImageService, times(4)).imageContainsCat(any(BufferedImage.class), anyFloat());
+    }
+
+    @Test
+    public void armingResetsAllSensorsInOneRepositoryWrite() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        door.setActive(true);
+        when(mockSecurityRepository.getSensors()).thenReturn(Set.of(door, window));
+        when(mockSecurityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        when(mockSecurityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+
+        securitySystem.setArmingStatus(ArmingStatus.ARMED_HOME);
+        verify(mockSecurityRepository).updateSensors(argThat(sensors -> sensors.size() == 2));
+        verify(mockSecurityRepository, never()).updateSensor(any(Sensor.class));
+        assertFalse(door.getActive());
+    }
+
+    @Test
+    public void repeatedNoCatScanResetsTheAlarmOnceSensorsAreInactive() {
+        SecurityService service = new SecurityService(new InMemorySecurityRepository(), mockImageService);
+        AtomicInteger catVerdicts = new AtomicInteger();
+        service.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+                catVerdicts.incrementAndGet();
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        });
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        service.addSensor(door);
+        service.addSensor(window);
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        when(mockImageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(false);
+
+        service.processImage(testBufferedImage);
+        service.changeSensorActivationStatus(door, true);
+        service.changeSensorActivationStatus(window, true);
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+        service.changeSensorActivationStatus(door, false);
+        service.changeSensorActivationStatus(window, false);
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+
+        //the same no-cat answer again still counts as a verdict
+        service.processImage(testBufferedImage);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        assertEquals(2, catVerdicts.get());
+    }
+
+    @Test
+    public void cameraWithoutCatDoesNotClearAnotherCamerasCat() {
+        BufferedImage porchFrame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        BufferedImage garageFrame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        SecurityService service = new SecurityService(new InMemorySecurityRepository(), mockImageService);
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        when(mockImageService.imageContainsCat(eq(porchFrame), anyFloat())).thenReturn(true);
+        when(mockImageService.imageContainsCat(eq(garageFrame), anyFloat())).thenReturn(false);
+
+        service.processImage("porch", porchFrame);
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+        for (int i = 0; i < 3; i++) {
+            service.processImage("garage", garageFrame);
+        }
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+
+        //once the porch camera also stops seeing the cat it is gone, and with no active sensors so is the alarm
+        when(mockImageService.imageContainsCat(eq(porchFrame), anyFloat())).thenReturn(false);
+        service.processImage("porch", porchFrame);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+    }
+
+    @Test
+    public void zoneRuleIgnoresMotionWhileArmedHome() {
+        AlarmRules rules = new AlarmRules()
+                .setZonePolicy("living room", SensorType.MOTION, ArmingStatus.ARMED_HOME, SensorPolicy.IGNORE);
+        SecurityService service = new SecurityService(new InMemorySecurityRepository(), mockImageService,
+                DetectionPolicy.everyFrame(), rules);
+        Sensor livingRoomMotion = new Sensor("couch", SensorType.MOTION, "living room");
+        Sensor hallMotion = new Sensor("hall", SensorType.MOTION);
+        service.addSensor(livingRoomMotion);
+        service.addSensor(hallMotion);
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        service.changeSensorActivationStatus(livingRoomMotion, true);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        service.changeSensorActivationStatus(hallMotion, true);
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+        //deactivating the ignored sensor doesn't cancel the pending alarm
+        service.changeSensorActivationStatus(livingRoomMotion, false);
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+    }
+
+    @Test
+    public void zoneThresholdNeedsSeveralActiveSensors() {
+        AlarmRules rules = new AlarmRules()
+                .setZonePolicy("garage", ArmingStatus.ARMED_AWAY, SensorPolicy.IMMEDIATE)
+                .setZoneActivationThreshold("garage", 2);
+        SecurityService service = new SecurityService(new InMemorySecurityRepository(), mockImageService,
+                DetectionPolicy.everyFrame(), rules);
+        Sensor door = new Sensor("garage door", SensorType.DOOR, "garage");
+        Sensor window = new Sensor("garage window", SensorType.WINDOW, "garage");
+        service.addSensor(door);
+        service.addSensor(window);
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        service.changeSensorActivationStatus(door, true);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        assertEquals(1, service.getActiveSensorCount("garage"));
+        service.changeSensorActivationStatus(window, true);
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+        assertEquals(2, service.getActiveSensorCount("garage"));
+        assertEquals(0, service.getActiveSensorCount(Sensor.DEFAULT_ZONE));
+    }
+
+    @Test
+    public void repeatedAndStaleChangesAreCountedOnce() {
+        SecurityService service = new SecurityService(new InMemorySecurityRepository(), mockImageService);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        door.setActive(true);
+        service.addSensor(door);
+        service.addSensor(door);
+        assertEquals(1, service.getActiveSensorCount(Sensor.DEFAULT_ZONE));
+
+        //a copy that still says inactive must not count the door a second time
+        Sensor copy = new Sensor("door", SensorType.DOOR);
+        copy.setSensorId(door.getSensorId());
+        service.changeSensorActivationStatus(copy, true);
+        assertEquals(1, service.getActiveSensorCount(Sensor.DEFAULT_ZONE));
+
+        service.changeSensorActivationStatus(door, false);
+        service.changeSensorActivationStatus(door, false);
+        assertEquals(0, service.getActiveSensorCount(Sensor.DEFAULT_ZONE));
+        service.removeSensor(door);
+        service.removeSensor(door);
+        assertEquals(0, service.getActiveSensorCount(Sensor.DEFAULT_ZONE));
+    }
 }
@@ -0,0 +1,81 @@
+package com.udacity.catpoint.security.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+
+    private static final String[] SMALL = {"--frame-width=8", "--frame-height=8", "--sensor-rate=1000",
+            "--arming-rate=50", "--frame-rate=100"};
+
+    @Test
+    public void sameSeedDrivesTheSameEvents() {
+        List<String> first = generator("--seed=7").plan(2_000);
+        assertEquals(2_000, first.size());
+        assertEquals(first, generator("--seed=7").plan(2_000));
+        assertNotEquals(first, generator("--seed=8").plan(2_000));
+        //every stream takes part
+        assertTrue(first.stream().anyMatch(event -> event.startsWith("arming ")));
+        assertTrue(first.stream().anyMatch(event -> event.startsWith("frame ")));
+    }
+
+    @Test
+    public void zipfSelectionFavoursAFewSensors() {
+        Map<String, Long> zipf = sensorCounts(generator("--selection=zipf").plan(20_000));
+        Map<String, Long> uniform = sensorCounts(generator("--selection=uniform").plan(20_000));
+        long busiestZipf = zipf.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        long busiestUniform = uniform.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        //100 sensors: uniform gives each about 1%, Zipf with exponent 1.1 gives the top one about 20%
+        assertTrue(busiestUniform < 400, "uniform busiest " + busiestUniform);
+        assertTrue(busiestZipf > 2_000, "zipf busiest " + busiestZipf);
+    }
+
+    @Test
+    public void constantArrivalSpacesEventsEvenly() {
+        List<String> plan = generator("--arrival=constant", "--arming-rate=0", "--frame-rate=0").plan(3);
+        assertTrue(plan.get(0).startsWith("sensor @1000000ns "), plan.get(0));
+        assertTrue(plan.get(1).startsWith("sensor @2000000ns "), plan.get(1));
+        assertTrue(plan.get(2).startsWith("sensor @3000000ns "), plan.get(2));
+    }
+
+    @Test
+    public void shortRunReportsLatencyAndGcPauses() {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        LoadProfile profile = LoadProfile.fromArgs(concat("--duration=PT0.3S", "--report-interval=PT0.1S"));
+        new LoadGenerator(profile, new PrintStream(captured, true, StandardCharsets.UTF_8)).run();
+
+        String report = captured.toString(StandardCharsets.UTF_8);
+        assertTrue(report.contains("=== finished after"), report);
+        assertTrue(report.contains("sensor "), report);
+        assertTrue(report.contains("gc pauses n="), report);
+        assertTrue(report.contains("bytes/event"), report);
+    }
+
+    private static LoadGenerator generator(String... args) {
+        return new LoadGenerator(LoadProfile.fromArgs(concat(args)), System.out);
+    }
+
+    //later arguments override the small defaults
+    private static String[] concat(String... args) {
+        String[] all = new String[SMALL.length + args.length];
+        System.arraycopy(SMALL, 0, all, 0, SMALL.length);
+        System.arraycopy(args, 0, all, SMALL.length, args.length);
+        return all;
+    }
+
+    private static Map<String, Long> sensorCounts(List<String> plan) {
+        return plan.stream()
+                .filter(event -> event.startsWith("sensor "))
+                .map(event -> event.substring(event.lastIndexOf(' ') + 1))
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    }
+}
@@ -0,0 +1,50 @@
+package com.udacity.catpoint.security.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadProfileTest {
+
+    @Test
+    public void defaultsApplyWithoutArguments() {
+        LoadProfile profile = LoadProfile.fromArgs(new String[0]);
+        assertEquals(Duration.ofMinutes(5), profile.getDuration());
+        assertEquals(42, profile.getSeed());
+        assertEquals(100, profile.getSensorCount());
+        assertEquals(LoadProfile.Arrival.POISSON, profile.getArrival());
+        assertEquals(LoadProfile.Selection.ZIPF, profile.getSelection());
+    }
+
+    @Test
+    public void everyOptionCanBeOverridden() {
+        LoadProfile profile = LoadProfile.fromArgs(new String[]{"--duration=PT2H", "--report-interval=PT1M", "--seed=7",
+                "--sensors=5000", "--sensor-rate=2500.5", "--arming-rate=0", "--frame-rate=30", "--arrival=constant",
+                "--selection=uniform", "--zipf-exponent=1.5", "--image-latency-ms=20", "--frame-width=320",
+                "--frame-height=240"});
+        assertEquals(Duration.ofHours(2), profile.getDuration());
+        assertEquals(Duration.ofMinutes(1), profile.getReportInterval());
+        assertEquals(7, profile.getSeed());
+        assertEquals(5000, profile.getSensorCount());
+        assertEquals(2500.5, profile.getSensorEventsPerSecond());
+        assertEquals(0, profile.getArmingChangesPerSecond());
+        assertEquals(30, profile.getFramesPerSecond());
+        assertEquals(LoadProfile.Arrival.CONSTANT, profile.getArrival());
+        assertEquals(LoadProfile.Selection.UNIFORM, profile.getSelection());
+        assertEquals(1.5, profile.getZipfExponent());
+        assertEquals(20, profile.getImageLatencyMillis());
+        assertEquals(320, profile.getFrameWidth());
+        assertEquals(240, profile.getFrameHeight());
+    }
+
+    @Test
+    public void malformedArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.fromArgs(new String[]{"seed=7"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.fromArgs(new String[]{"--seed"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.fromArgs(new String[]{"--speed=7"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.fromArgs(new String[]{"--sensors=0"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.fromArgs(new String[]{"--arrival=bursty"}));
+    }
+}